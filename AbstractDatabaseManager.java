@@ -3,16 +3,38 @@ package org.teverus.adventoraBans.database;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.cache.ActivePunishmentIndex;
+import org.teverus.adventoraBans.cache.AltAccount;
+import org.teverus.adventoraBans.cache.AltAccountGraph;
+import org.teverus.adventoraBans.cache.MuteCache;
+import org.teverus.adventoraBans.cache.PunishedKeyFilter;
+import org.teverus.adventoraBans.cache.PunishmentCounters;
 import org.teverus.adventoraBans.punishments.BanRecord;
 import org.teverus.adventoraBans.punishments.PunishmentType;
 import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.IpRange;
+import org.teverus.adventoraBans.util.UUIDUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 /**
@@ -22,20 +44,119 @@ import java.util.logging.Level;
 public abstract class AbstractDatabaseManager implements DatabaseManager {
 
     protected final AdventoraBans plugin;
-    protected ExecutorService executor; // Пул потоков для асинхронных операций с БД
+    protected final EnumMap<DatabaseLane, LaneExecutor> lanes = new EnumMap<>(DatabaseLane.class); // Полосы пула запросов к БД
+    protected final ActivePunishmentIndex punishmentIndex = new ActivePunishmentIndex(); // Активные баны в памяти для проверки входа
+    protected final MuteCache muteCache = new MuteCache(); // Состояние мутов онлайн-игроков для проверки чата и команд
+    protected final PunishmentCounters punishmentCounters = new PunishmentCounters(); // Количества наказаний для пагинации истории
+    protected final AltAccountGraph altGraph = new AltAccountGraph(); // Граф аккаунт - IP для поиска мультиаккаунтов
+    protected final PunishedKeyFilter punishedKeyFilter; // Фильтр Блума по наказанным UUID и IP: "точно не наказан" без БД
+    protected final PlayerIpWriteBuffer playerIpBuffer; // Отложенная пакетная запись IP игроков
+    protected final ExpiryScheduler expiryScheduler; // Снятие временных наказаний в момент истечения
+    protected final PunishmentGroupCommitter punishmentCommitter; // Групповая запись одиночных addPunishment
 
-    protected AbstractDatabaseManager(AdventoraBans plugin) {
+    private static final String ALL_ACTIVE_SQL = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE active = TRUE AND " +
+            PunishmentQueries.categoryRange("type", PunishmentType.BAN, PunishmentType.MUTE);
+    private static final int EXPIRY_SWEEP_CHUNK_SIZE = 500; // Наказаний в одной транзакции при очистке истекших
+    private static final int MAX_PAGE_LIMIT = 1000; // Записей в одной странице keyset-запроса; список страницы собирается в памяти
+    private final int streamFetchSize; // Строк в одной порции потокового чтения (database.stream_fetch_size)
+    private static final String INSERT_PUNISHMENT_SQL = "INSERT INTO punishments (punished_uuid, punished_name, punished_ip, moderator_uuid, moderator_name, " +
+            "type, reason, ban_time, expire_time, active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IP_RANGE_SQL = "INSERT INTO ip_ban_ranges (punishment_id, network, prefix_length, range_start, range_end) VALUES (?, ?, ?, ?, ?)";
+    private final int transferChunkRows; // Записей в одной транзакции загрузки и между отчетами о ходе (database.transfer.chunk_rows)
+    private final int batchSize; // Строк в одном пакете executeBatch (database.batch_size)
+
+    // Журнал punishment_events для синхронизации нескольких серверов с общей БД
+    private static final String EVENT_ADD = "ADD";
+    private static final String EVENT_DEACTIVATE = "DEACTIVATE";
+    private static final long EVENT_GAP_TIMEOUT_MILLIS = 10000; // Сколько ждать событие с пропущенным id (его транзакция еще не закоммичена)
+    private static final int MAX_TRACKED_EVENT_GAPS = 100; // Пропусков id, ожидаемых после одного события
+
+    protected final boolean syncEnabled; // Запись и чтение журнала изменений наказаний
+    protected final String syncServerId; // Отметка событий этого сервера: свои события уже применены и при чтении пропускаются
+    private final AtomicBoolean eventPollInProgress = new AtomicBoolean(false);
+    private final TreeMap<Long, Long> eventGaps = new TreeMap<>(); // Пропущенный id события -> срок ожидания; только в потоке опроса
+    private long lastEventId; // Последний прочитанный id события; только в потоке опроса
+
+    /**
+     * @param plugin Плагин.
+     * @param connectionPoolSize Суммарный размер пулов соединений с БД - основа пределов одновременных запросов полос.
+     */
+    protected AbstractDatabaseManager(AdventoraBans plugin, int connectionPoolSize) {
         this.plugin = plugin;
-        this.executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.syncEnabled = plugin.getConfigManager().isSyncEnabled();
+        String configuredServerId = plugin.getConfigManager().getSyncServerId();
+        this.syncServerId = configuredServerId == null || configuredServerId.isEmpty() ? UUID.randomUUID().toString() : configuredServerId;
+        createLanes(Math.max(1, connectionPoolSize));
+        this.streamFetchSize = Math.max(1, plugin.getConfigManager().getDatabaseStreamFetchSize());
+        this.transferChunkRows = Math.max(1, plugin.getConfigManager().getTransferChunkRows());
+        this.batchSize = Math.max(1, plugin.getConfigManager().getDatabaseBatchSize());
+        this.punishedKeyFilter = new PunishedKeyFilter(plugin.getConfigManager().getPunishedFilterFalsePositiveRate());
+        this.playerIpBuffer = new PlayerIpWriteBuffer(plugin, this::writePlayerIps,
+                plugin.getConfigManager().getPlayerIpFlushIntervalMillis(),
+                plugin.getConfigManager().getPlayerIpFlushBatchSize());
+        this.expiryScheduler = new ExpiryScheduler(plugin, this::deactivateExpiredPunishments);
+        this.punishmentCommitter = new PunishmentGroupCommitter(plugin, this::commitPunishments, this::applyAddedPunishments,
+                lane(DatabaseLane.MODERATION),
+                plugin.getConfigManager().getGroupCommitWindowMillis(),
+                plugin.getConfigManager().getGroupCommitMaxBatchSize());
+    }
+
+    /**
+     * Создает полосы пула запросов к БД в режиме из config.yml (database.executor.mode):
+     * FIXED - фиксированные пулы потоков платформы, VIRTUAL - виртуальный поток на задачу.
+     * Полоса входа в обоих режимах работает в потоках платформы: JDBC-вызов закрепляет виртуальный поток за потоком-носителем,
+     * и когда все носители заняты запросами модераторов, проверка входа ждала бы свободный носитель, а не свое соединение.
+     * Пределы по умолчанию делят пул соединений без пересечения: обслуживание - одно соединение,
+     * команды модераторов - половина остатка, вход - все остальные. Так ни одна полоса не ждет соединение,
+     * занятое другой, и у проверок входа всегда есть свои соединения.
+     * @param poolSize Суммарный размер пулов соединений.
+     */
+    private void createLanes(int poolSize) {
+        boolean virtualThreads = "VIRTUAL".equalsIgnoreCase(plugin.getConfigManager().getDatabaseExecutorMode());
+        int background = laneConcurrency(DatabaseLane.BACKGROUND, 1);
+        int moderation = laneConcurrency(DatabaseLane.MODERATION, Math.max(1, (poolSize - background) / 2));
+        int login = laneConcurrency(DatabaseLane.LOGIN, Math.max(1, poolSize - background - moderation));
+        lanes.put(DatabaseLane.LOGIN, new LaneExecutor(DatabaseLane.LOGIN, login, false));
+        lanes.put(DatabaseLane.MODERATION, new LaneExecutor(DatabaseLane.MODERATION, moderation, virtualThreads));
+        lanes.put(DatabaseLane.BACKGROUND, new LaneExecutor(DatabaseLane.BACKGROUND, background, virtualThreads));
+        if (login + moderation + background > poolSize) {
+            plugin.getLogger().warning("Сумма пределов полос пула запросов (" + (login + moderation + background) + ") больше пула соединений с БД ("
+                    + poolSize + "): проверки входа могут ждать соединение, занятое командами модераторов или обслуживанием.");
+        }
+        plugin.getLogger().info("Пул запросов к БД (" + (virtualThreads ? "виртуальные потоки, вход - потоки платформы" : "потоки платформы") + "): вход - "
+                + lanes.get(DatabaseLane.LOGIN).getMaxConcurrency() + ", модерация - " + lanes.get(DatabaseLane.MODERATION).getMaxConcurrency()
+                + ", обслуживание - " + lanes.get(DatabaseLane.BACKGROUND).getMaxConcurrency() + " одновременных запросов.");
     }
 
     /**
-     * Возвращает ExecutorService, используемый для асинхронных операций с БД.
-     * Это может быть полезно для других частей плагина, которым нужна асинхронность.
-     * @return ExecutorService, используемый этим менеджером.
+     * @param lane Полоса пула запросов.
+     * @param defaultConcurrency Предел по умолчанию.
+     * @return Предел из config.yml (database.executor.lanes) или предел по умолчанию, если там 0.
+     */
+    private int laneConcurrency(DatabaseLane lane, int defaultConcurrency) {
+        int configured = plugin.getConfigManager().getDatabaseLaneConcurrency(lane.getConfigKey());
+        return configured > 0 ? configured : defaultConcurrency;
+    }
+
+    /**
+     * @param lane Полоса пула запросов.
+     * @return Исполнитель полосы.
+     */
+    protected ExecutorService lane(DatabaseLane lane) {
+        return lanes.get(lane);
+    }
+
+    @Override
+    public LaneExecutor getLaneExecutor(DatabaseLane lane) {
+        return lanes.get(lane);
+    }
+
+    /**
+     * Возвращает ExecutorService для асинхронных операций с БД из других частей плагина (полоса команд модераторов).
+     * @return ExecutorService полосы {@link DatabaseLane#MODERATION}.
      */
     public ExecutorService getExecutor() {
-        return executor;
+        return lanes.get(DatabaseLane.MODERATION);
     }
 
     /**
@@ -47,12 +168,55 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
      */
     protected abstract Connection getConnection() throws SQLException;
 
+    /**
+     * Возвращает соединение для операций записи (INSERT/UPDATE).
+     * По умолчанию совпадает с {@link #getConnection()}; SQLite переопределяет его,
+     * чтобы все записи шли через единственное соединение-писатель.
+     * @return Connection соединение для записи.
+     * @throws SQLException если произошла ошибка при получении соединения.
+     */
+    protected Connection getWriteConnection() throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Подготавливает частый запрос проверки входа или мута; вызывающий закрывает его как обычно.
+     * По умолчанию - обычный prepareStatement: MySQL переиспользует подготовленные запросы в драйвере (cachePrepStmts),
+     * SQLite переопределяет метод своим кэшем запросов на соединение.
+     * @param conn Соединение из {@link #getConnection()}.
+     * @param sql Текст запроса из {@link PunishmentQueries}.
+     * @return Подготовленный запрос.
+     * @throws SQLException если запрос не удалось подготовить.
+     */
+    protected PreparedStatement prepareHotStatement(Connection conn, String sql) throws SQLException {
+        return conn.prepareStatement(sql);
+    }
+
     /**
      * Создает необходимые таблицы в базе данных.
      * Вызывается один раз при успешном подключении.
      */
     protected abstract void createTables();
 
+    /**
+     * @return Диалект SQL этой БД (для миграций схемы и запросов с различающимся синтаксисом).
+     */
+    protected abstract SqlDialect getDialect();
+
+    /**
+     * Применяет недостающие миграции схемы (индексы и последующие изменения таблиц).
+     * Вызывается после {@link #createTables()} при подключении.
+     * @throws SQLException если миграцию не удалось применить.
+     */
+    protected void migrateSchema() throws SQLException {
+        try (Connection conn = getWriteConnection()) {
+            new SchemaMigrator(plugin, getDialect()).migrate(conn);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Ошибка при миграции схемы БД: " + e.getMessage(), e);
+            throw e;
+        }
+    }
+
     @Override
     public boolean isConnected() {
         try (Connection connection = getConnection()) {
@@ -66,256 +230,869 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
     @Override
     public void connect() throws SQLException {
         createTables();
+        migrateSchema();
+        loadCaches();
     }
 
     @Override
-    public void disconnect() {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
+    public ActivePunishmentIndex getActivePunishmentIndex() {
+        return punishmentIndex;
+    }
+
+    @Override
+    public MuteCache getMuteCache() {
+        return muteCache;
+    }
+
+    @Override
+    public PunishedKeyFilter getPunishedKeyFilter() {
+        return punishedKeyFilter;
+    }
+
+    @Override
+    public boolean isLocalStateAuthoritative() {
+        return getDialect() == SqlDialect.SQLITE || syncEnabled;
+    }
+
+    /**
+     * Загружает резидентные структуры (индекс активных банов) из БД.
+     * Вызывается синхронно после создания таблиц, до регистрации слушателей.
+     * При ошибке индекс остается незагруженным, и проверки входа выполняются через SQL.
+     */
+    protected void loadCaches() {
+        playerIpBuffer.start(); // Таймер записи IP - только после подключения, когда соединения с БД уже открыты
+        if (!isLocalStateAuthoritative()) {
+            plugin.getLogger().warning("MySQL без синхронизации (sync.enabled: false): наказания других серверов не попадают в кэши, " +
+                    "поэтому проверки входа и мутов выполняются запросами к БД. Включите sync.enabled, если БД общая для нескольких серверов.");
+        }
+        // Позиция в журнале фиксируется до загрузки кэшей: события, записанные во время загрузки, будут прочитаны повторно, а не потеряны
+        if (syncEnabled) {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT MAX(id) FROM punishment_events");
+                 ResultSet rs = stmt.executeQuery()) {
+                lastEventId = rs.next() ? rs.getLong(1) : 0;
+                plugin.getLogger().info("Синхронизация наказаний: чтение журнала начнется после события " + lastEventId + " (сервер " + syncServerId + ").");
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Не удалось получить позицию журнала изменений наказаний, журнал будет прочитан с начала: " + e.getMessage(), e);
+            }
+        }
+
+        String sql = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE active = TRUE AND " +
+                PunishmentQueries.categoryRange("type", PunishmentType.BAN, PunishmentType.IP_BAN) + " AND (expire_time = 0 OR expire_time > ?)";
+        List<BanRecord> activeBans = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, System.currentTimeMillis());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    activeBans.add(PunishmentRowMapper.read(rs));
+                }
+            }
+            punishmentIndex.load(activeBans);
+            plugin.getLogger().info("Индекс активных банов загружен: " + punishmentIndex.size() + " записей.");
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Не удалось загрузить индекс активных банов, проверки входа будут выполняться через БД: " + e.getMessage(), e);
+        }
+
+        // Все активные временные наказания (включая уже истекшие) передаются планировщику истечения
+        String expirySql = "SELECT id, expire_time FROM punishments WHERE active = TRUE AND expire_time > 0";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(expirySql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                expiryScheduler.schedule(rs.getInt("id"), rs.getLong("expire_time"));
+            }
+            plugin.getLogger().info("Планировщик истечения загружен: " + expiryScheduler.size() + " временных наказаний.");
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Не удалось загрузить временные наказания в планировщик, они будут сняты задачей очистки: " + e.getMessage(), e);
+        }
+        expiryScheduler.start();
+
+        try (Connection conn = getConnection()) {
+            long stamp = punishmentCounters.beginLoad();
+            punishmentCounters.setTotal(countAllPunishments(conn), stamp);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Не удалось загрузить общее количество наказаний, оно будет посчитано при первом запросе: " + e.getMessage(), e);
+        }
+
+        if (plugin.getConfigManager().isAltGraphCacheEnabled()) {
+            loadAltGraph();
+        }
+
+        if (plugin.getConfigManager().isPunishedFilterEnabled()) {
             try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) { // Добавьте импорт TimeUnit
-                    executor.shutdownNow();
-                    plugin.getLogger().warning("Пул потоков БД не завершился в течение 5 секунд, принудительное завершение.");
+                loadPunishedKeyFilter();
+                plugin.getLogger().info("Фильтр наказанных UUID и IP загружен: " + punishedKeyFilter.sizeInBytes() / 1024 + " КБ.");
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Не удалось загрузить фильтр наказанных UUID и IP, проверки будут выполняться через БД: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Перестраивает фильтр наказанных UUID и IP из активных наказаний в БД.
+     * Наказания, выданные во время чтения, добавляются и в новый фильтр (см. {@link PunishedKeyFilter#beginRebuild(int)}).
+     * @throws SQLException если чтение не удалось; прежний фильтр остается в силе.
+     */
+    private void loadPunishedKeyFilter() throws SQLException {
+        String where = " FROM punishments WHERE active = TRUE AND " +
+                PunishmentQueries.categoryRange("type", PunishmentType.BAN, PunishmentType.MUTE) + " AND (expire_time = 0 OR expire_time > ?)";
+        try (Connection conn = getConnection()) {
+            int count;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*)" + where)) {
+                stmt.setLong(1, System.currentTimeMillis());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    count = rs.next() ? rs.getInt(1) : 0;
                 }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
-                plugin.getLogger().log(Level.SEVERE, "Прерывание во время завершения пула потоков БД.", e);
             }
-            plugin.getLogger().info("Пул потоков БД завершает работу.");
+            // Запас на ключи наказаний, выданных до следующего перестроения
+            punishedKeyFilter.beginRebuild(Math.max(1024, count * 2));
+            long now = System.currentTimeMillis();
+            readPunishments(conn, "SELECT " + PunishmentRowMapper.COLUMNS + where, (stmt, index) -> {
+                stmt.setLong(index, now);
+                return index + 1;
+            }, punishedKeyFilter::addToRebuild);
+            punishedKeyFilter.finishRebuild();
+        } catch (SQLException e) {
+            punishedKeyFilter.abortRebuild();
+            throw e;
         }
     }
 
     @Override
-    public CompletableFuture<Void> addPunishment(BanRecord record) {
-        if (plugin.getConfigManager().isDebugModeEnabled()) { // Assumed method in AdventoraBans for config-based debug logging
-            plugin.getLogger().info("DEBUG: Попытка добавить наказание для " + record.getPunishedName() + " (Тип: " + record.getPunishmentType() + ")");
-        }
+    public CompletableFuture<Void> rebuildPunishedKeyFilter() {
         return CompletableFuture.runAsync(() -> {
-            String sql = "INSERT INTO punishments (punished_uuid, punished_name, punished_ip, moderator_uuid, moderator_name, " +
-                    "type, reason, ban_time, expire_time, active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, record.getPunishedUuid() != null ? record.getPunishedUuid().toString() : null);
-                stmt.setString(2, record.getPunishedName());
-                stmt.setString(3, IPUtils.normalizeIpAddress(record.getPunishedIp()));
-                stmt.setString(4, record.getModeratorUuid() != null ? record.getModeratorUuid().toString() : null);
-                stmt.setString(5, record.getModeratorName());
-                stmt.setString(6, record.getPunishmentType().name());
-                stmt.setString(7, record.getReason());
-                stmt.setLong(8, record.getBanTime());
-                stmt.setLong(9, record.getExpireTime());
-                stmt.setBoolean(10, record.isActive());
-
+            try {
+                loadPunishedKeyFilter();
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL INSERT для наказания: " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Фильтр наказанных UUID и IP перестроен: " + punishedKeyFilter.sizeInBytes() / 1024 + " КБ.");
                 }
-                int rowsAffected = stmt.executeUpdate();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при перестроении фильтра наказанных UUID и IP: " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+        }, lane(DatabaseLane.BACKGROUND));
+    }
 
+    private void loadAltGraph() {
+        altGraph.clear();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT player_uuid, ip_address FROM player_ip_history");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                altGraph.addEdge(UUID.fromString(rs.getString("player_uuid")), getIpAddress(rs, "ip_address"));
+            }
+            altGraph.markLoaded();
+            plugin.getLogger().info("Граф мультиаккаунтов загружен: " + altGraph.size() + " пар аккаунт - IP.");
+        } catch (SQLException | IllegalArgumentException e) {
+            altGraph.clear();
+            plugin.getLogger().log(Level.SEVERE, "Не удалось загрузить граф мультиаккаунтов, поиск будет выполняться через БД: " + e.getMessage(), e);
+        }
+    }
+
+    private int countAllPunishments(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM punishments");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> reconcileCounters() {
+        return CompletableFuture.runAsync(() -> {
+            try (Connection conn = getConnection()) {
+                long stamp = punishmentCounters.beginLoad();
+                int total = countAllPunishments(conn);
+                Integer cached = punishmentCounters.getTotal();
+                punishmentCounters.setTotal(total, stamp);
+                punishmentCounters.resetKeyed();
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    if (rowsAffected > 0) {
-                        plugin.getLogger().info("DEBUG: Наказание для " + record.getPunishedName() + " (" + record.getPunishmentType() + ") успешно добавлено. Строк затронуто: " + rowsAffected);
-                    } else {
-                        plugin.getLogger().warning("DEBUG: Добавление наказания для " + record.getPunishedName() + " (" + record.getPunishmentType() + ") не затронуло ни одной строки.");
-                    }
+                    plugin.getLogger().info("DEBUG: Сверка счетчиков наказаний: в кэше " + cached + ", в БД " + total + ".");
                 }
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при добавлении наказания: " + e.getMessage(), e);
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при сверке счетчиков наказаний: " + e.getMessage(), e);
                 throw new CompletionException(e);
             }
-        }, executor);
+        }, lane(DatabaseLane.BACKGROUND));
     }
 
     @Override
-    public CompletableFuture<Void> deactivatePunishment(int punishmentId) {
+    public void disconnect() {
+        playerIpBuffer.close(); // Дописываем накопленные IP, пока соединения с БД еще открыты
+        punishmentCommitter.close();
+        expiryScheduler.stop();
+        if (lanes.values().stream().allMatch(ExecutorService::isShutdown)) {
+            return;
+        }
+        lanes.values().forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); // Общий срок на все полосы
+        try {
+            for (LaneExecutor laneExecutor : lanes.values()) {
+                if (!laneExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    laneExecutor.shutdownNow();
+                    plugin.getLogger().warning("Полоса " + laneExecutor.getLane() + " пула БД не завершилась в течение 5 секунд, принудительное завершение.");
+                }
+            }
+        } catch (InterruptedException e) {
+            lanes.values().forEach(ExecutorService::shutdownNow);
+            Thread.currentThread().interrupt();
+            plugin.getLogger().log(Level.SEVERE, "Прерывание во время завершения пула потоков БД.", e);
+        }
+        plugin.getLogger().info("Пул потоков БД завершает работу.");
+    }
+
+    @Override
+    public CompletableFuture<Void> addPunishment(BanRecord record) {
+        if (plugin.getConfigManager().isDebugModeEnabled()) { // Assumed method in AdventoraBans for config-based debug logging
+            plugin.getLogger().info("DEBUG: Попытка добавить наказание для " + record.getPunishedName() + " (Тип: " + record.getPunishmentType() + ")");
+        }
+        normalizePunishedIp(record);
+        // Наказания, выданные одновременно (например, волна ботов), уходят в БД одной транзакцией
+        return punishmentCommitter.submit(record);
+    }
+
+    @Override
+    public CompletableFuture<List<Integer>> addPunishments(Collection<BanRecord> records) {
+        List<BanRecord> batch = new ArrayList<>(records);
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
         if (plugin.getConfigManager().isDebugModeEnabled()) {
-            plugin.getLogger().info("DEBUG: Попытка деактивировать наказание с ID: " + punishmentId);
+            plugin.getLogger().info("DEBUG: Попытка добавить " + batch.size() + " наказаний одной транзакцией.");
         }
-        return CompletableFuture.runAsync(() -> {
-            String sql = "UPDATE punishments SET active = FALSE WHERE id = ?";
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, punishmentId);
-                if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации наказания ID " + punishmentId + ": " + stmt.toString().replaceFirst(".*: ", ""));
+        for (BanRecord record : batch) {
+            normalizePunishedIp(record);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                writePunishments(batch);
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при добавлении " + batch.size() + " наказаний: " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+            List<Integer> ids = new ArrayList<>(batch.size());
+            for (BanRecord record : batch) {
+                ids.add(record.getId());
+            }
+            return ids;
+        }, lane(DatabaseLane.MODERATION));
+    }
+
+    /**
+     * Приводит IP наказания к канонической записи, такой же, какая вернется из БД: индекс и счетчики сравнивают IP в ней.
+     * Диапазонный IP-бан (CIDR) хранится в канонической записи диапазона.
+     */
+    private static void normalizePunishedIp(BanRecord record) {
+        IpRange range = ipRangeOf(record);
+        record.setPunishedIp(range != null ? range.toString() : IPUtils.normalizeIpAddress(record.getPunishedIp()));
+    }
+
+    /**
+     * Добавляет наказания одной транзакцией ({@link #commitPunishments}) и применяет их к кэшам и счетчикам.
+     * @param records Наказания с IP в канонической записи; получают ID из БД.
+     * @throws SQLException если запись не удалась; транзакция откатывается целиком.
+     */
+    private void writePunishments(List<BanRecord> records) throws SQLException {
+        commitPunishments(records);
+        applyAddedPunishments(records);
+    }
+
+    /**
+     * Добавляет наказания одной транзакцией на соединении-писателе: INSERT, строки ip_ban_ranges
+     * и события журнала синхронизации фиксируются вместе.
+     * @param records Наказания с IP в канонической записи; получают ID из БД.
+     * @throws SQLException только если транзакция не закоммичена; сбой после коммита (возврат соединения) логируется,
+     * чтобы вызывающий не записал уже добавленные наказания повторно.
+     */
+    private void commitPunishments(List<BanRecord> records) throws SQLException {
+        punishmentCounters.onPunishmentsWriting(records.size()); // Подсчеты в БД во время записи не запоминаются
+        boolean committed = false;
+        try (Connection conn = getWriteConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                insertPunishments(conn, records);
+                if (syncEnabled) {
+                    // ID пакета растут по порядку; чужие строки внутри диапазона получат лишнее событие, а его применение безопасно
+                    int firstId = records.get(0).getId();
+                    int lastId = records.get(records.size() - 1).getId();
+                    recordPunishmentEvents(conn, EVENT_ADD, "id BETWEEN ? AND ?", (eventStmt, index) -> {
+                        eventStmt.setInt(index, firstId);
+                        eventStmt.setInt(index + 1, lastId);
+                        return index + 2;
+                    });
                 }
-                int rowsAffected = stmt.executeUpdate();
+                conn.commit();
+                committed = true;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            if (!committed) {
+                throw e;
+            }
+            plugin.getLogger().log(Level.WARNING, "Наказания записаны, но соединение с БД не удалось вернуть в пул: " + e.getMessage(), e);
+        } finally {
+            if (!committed) {
+                punishmentCounters.onPunishmentsWritten(records.size());
+            }
+        }
+    }
 
-                if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    if (rowsAffected > 0) {
-                        plugin.getLogger().info("DEBUG: Наказание с ID " + punishmentId + " деактивировано. Строк затронуто: " + rowsAffected);
-                    } else {
-                        plugin.getLogger().warning("DEBUG: Попытка деактивировать несуществующее наказание с ID " + punishmentId + " или уже неактивное.");
+    /**
+     * Применяет добавленные наказания к счетчикам, фильтру, индексу банов, кэшу мутов и планировщику истечения.
+     * @param records Закоммиченные наказания с ID.
+     */
+    private void applyAddedPunishments(List<BanRecord> records) {
+        try {
+            for (BanRecord record : records) {
+                punishmentCounters.onPunishmentAdded(record);
+                if (record.isActive()) {
+                    punishedKeyFilter.add(record); // До кэша мутов: загрузка мута при входе опирается на фильтр
+                    punishmentIndex.add(record);
+                    muteCache.onPunishmentAdded(record);
+                    expiryScheduler.schedule(record.getId(), record.getExpireTime());
+                }
+            }
+        } finally {
+            punishmentCounters.onPunishmentsWritten(records.size());
+        }
+    }
+
+    /**
+     * Привязывает поля наказания к параметрам {@link #INSERT_PUNISHMENT_SQL}.
+     */
+    private static void bindPunishment(PreparedStatement stmt, BanRecord record) throws SQLException {
+        setUuid(stmt, 1, record.getPunishedUuid());
+        stmt.setString(2, record.getPunishedName());
+        setIpAddress(stmt, 3, record.getPunishedIp());
+        setUuid(stmt, 4, record.getModeratorUuid());
+        stmt.setString(5, record.getModeratorName());
+        stmt.setInt(6, record.getPunishmentType().getCode());
+        stmt.setString(7, record.getReason());
+        stmt.setLong(8, record.getBanTime());
+        stmt.setLong(9, record.getExpireTime());
+        stmt.setBoolean(10, record.isActive());
+    }
+
+    /**
+     * @param record Наказание.
+     * @return Диапазон CIDR для IP-бана диапазона или null для остальных наказаний.
+     */
+    private static IpRange ipRangeOf(BanRecord record) {
+        PunishmentType type = record.getPunishmentType();
+        return type == PunishmentType.IP_BAN || type == PunishmentType.TEMP_IP_BAN ? IpRange.parse(record.getPunishedIp()) : null;
+    }
+
+    private static void bindIpRange(PreparedStatement stmt, int punishmentId, IpRange range) throws SQLException {
+        stmt.setInt(1, punishmentId);
+        stmt.setString(2, range.toString());
+        stmt.setInt(3, range.getPrefixLength());
+        stmt.setString(4, range.getStartKey());
+        stmt.setString(5, range.getEndKey());
+    }
+
+    /**
+     * Добавляет наказания в открытой транзакции: в MySQL INSERT уходит пакетами по database.batch_size строк,
+     * в SQLite - по одной строке (драйвер возвращает ключ только последней строки пакета; в одной транзакции
+     * однострочный INSERT не требует отдельной записи на диск). Назначенные БД ID записываются в сами записи,
+     * строки диапазонных IP-банов добавляются в ip_ban_ranges пакетом.
+     * IP в записях должны быть уже в канонической записи.
+     * @param conn Соединение для записи с выключенным автокоммитом.
+     * @param records Наказания; получают ID в порядке списка.
+     * @throws SQLException при ошибке записи; транзакцию откатывает вызывающий.
+     */
+    private void insertPunishments(Connection conn, List<BanRecord> records) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_PUNISHMENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            if (getDialect() == SqlDialect.SQLITE) {
+                for (BanRecord record : records) {
+                    bindPunishment(stmt, record);
+                    stmt.executeUpdate();
+                    assignGeneratedIds(stmt, Collections.singletonList(record));
+                }
+            } else {
+                int batchStart = 0;
+                for (int i = 0; i < records.size(); i++) {
+                    bindPunishment(stmt, records.get(i));
+                    stmt.addBatch();
+                    if (i + 1 - batchStart == batchSize || i == records.size() - 1) {
+                        stmt.executeBatch();
+                        assignGeneratedIds(stmt, records.subList(batchStart, i + 1));
+                        batchStart = i + 1;
                     }
                 }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации наказания с ID " + punishmentId + ": " + e.getMessage(), e);
-                throw new CompletionException(e);
             }
-        }, executor);
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_IP_RANGE_SQL)) {
+            int pending = 0;
+            for (BanRecord record : records) {
+                IpRange range = ipRangeOf(record);
+                if (range == null) {
+                    continue;
+                }
+                bindIpRange(stmt, record.getId(), range);
+                stmt.addBatch();
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Записывает в наказания ID, назначенные БД при выполнении запроса: по одному ключу на строку в порядке вставки.
+     * @throws SQLException если драйвер вернул не по ключу на строку; транзакцию откатывает вызывающий.
+     */
+    private void assignGeneratedIds(PreparedStatement stmt, List<BanRecord> batch) throws SQLException {
+        List<Integer> keys = new ArrayList<>(batch.size());
+        try (ResultSet rs = stmt.getGeneratedKeys()) {
+            while (rs.next()) {
+                keys.add(rs.getInt(1));
+            }
+        }
+        if (keys.size() != batch.size()) {
+            throw new SQLException("Драйвер вернул " + keys.size() + " сгенерированных ключей для " + batch.size() + " наказаний");
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(keys.get(i));
+        }
+    }
+
+    /**
+     * Записывает в журнал punishment_events событие для каждого наказания, удовлетворяющего условию.
+     * Вызывается в транзакции, изменяющей эти наказания, чтобы другие серверы не увидели событие без изменения и наоборот.
+     */
+    private void recordPunishmentEvents(Connection conn, String action, String condition, StatementBinder binder) throws SQLException {
+        try (PreparedStatement stmt = prepareEventInsert(conn, action, condition)) {
+            binder.bind(stmt, 4);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Готовит запись событий журнала для наказаний, удовлетворяющих условию; параметры условия начинаются с 4.
+     * Для пакетной записи событий (addBatch с разными параметрами условия).
+     */
+    private PreparedStatement prepareEventInsert(Connection conn, String action, String condition) throws SQLException {
+        String sql = "INSERT INTO punishment_events (punishment_id, action, origin, created_at) SELECT id, ?, ?, ? FROM punishments WHERE " + condition;
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        try {
+            stmt.setString(1, action);
+            stmt.setString(2, syncServerId);
+            stmt.setLong(3, System.currentTimeMillis());
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+        return stmt;
+    }
+
+    /**
+     * Выполняет UPDATE деактивации. При включенной синхронизации перед ним в той же транзакции
+     * в журнал записываются события для наказаний, которые он затронет (условие должно совпадать с WHERE запроса).
+     * @return Количество деактивированных строк.
+     */
+    private int executeDeactivation(Connection conn, PreparedStatement update, String condition, StatementBinder binder) throws SQLException {
+        if (!syncEnabled) {
+            return update.executeUpdate();
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            recordPunishmentEvents(conn, EVENT_DEACTIVATE, condition, binder);
+            int rowsAffected = update.executeUpdate();
+            conn.commit();
+            return rowsAffected;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
     }
 
     @Override
-    public CompletableFuture<Void> deactivatePunishments(UUID playerUuid, PunishmentType type) {
-        if (plugin.getConfigManager().isDebugModeEnabled()) {
-            plugin.getLogger().info("DEBUG: Попытка деактивировать наказания типа " + type + " для UUID: " + playerUuid);
+    public CompletableFuture<List<BanRecord>> pollPunishmentEvents() {
+        // Опросы не пересекаются: позиция журнала и пропуски принадлежат одному опросу за раз
+        if (!syncEnabled || !eventPollInProgress.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(List.of());
         }
-        return CompletableFuture.runAsync(() -> {
-            String sql;
-            // Убедитесь, что логика IN ('BAN', 'TEMPBAN') корректно обрабатывается для каждого типа
-            if (type == PunishmentType.BAN || type == PunishmentType.TEMPBAN) {
-                sql = "UPDATE punishments SET active = FALSE WHERE punished_uuid = ? AND type IN ('BAN', 'TEMPBAN') AND active = TRUE";
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                // Пропуск, не заполненный за отведенное время, - откат транзакции или зарезервированный, но не использованный id
+                eventGaps.values().removeIf(deadline -> deadline < now);
+                List<Long> gaps = new ArrayList<>(eventGaps.keySet());
+                String sql = "SELECT e.id AS event_id, e.punishment_id AS event_punishment_id, e.action AS event_action, e.origin AS event_origin, " +
+                        PunishmentRowMapper.columns("p.") + " " + // Столбцы наказания начинаются с пятого
+                        "FROM punishment_events e LEFT JOIN punishments p ON p.id = e.punishment_id WHERE e.id > ?" +
+                        (gaps.isEmpty() ? "" : " OR e.id IN (" + PunishmentQueries.placeholders(gaps.size()) + ")") +
+                        " ORDER BY e.id LIMIT ?";
+
+                List<BanRecord> added = new ArrayList<>();
+                Set<UUID> punishedPlayers = new HashSet<>(); // Игроки, наказанные на других серверах: их связи аккаунт - IP
+                int applied = 0;
                 try (Connection conn = getConnection();
                      PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, playerUuid.toString());
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации BAN/TEMPBAN для UUID " + playerUuid + ": " + stmt.toString().replaceFirst(".*: ", ""));
+                    int index = 1;
+                    stmt.setLong(index++, lastEventId);
+                    for (long gap : gaps) {
+                        stmt.setLong(index++, gap);
                     }
-                    int rowsAffected = stmt.executeUpdate();
-
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        if (rowsAffected > 0) {
-                            plugin.getLogger().info("DEBUG: Деактивировано " + rowsAffected + " активных наказаний типа BAN/TEMPBAN для " + playerUuid);
+                    stmt.setInt(index, plugin.getConfigManager().getSyncBatchSize());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            long eventId = rs.getLong("event_id");
+                            if (eventId > lastEventId) {
+                                // id выдаются при вставке, а видны после коммита: меньший id другого сервера может появиться позже
+                                for (long missing = Math.max(lastEventId + 1, eventId - MAX_TRACKED_EVENT_GAPS); missing < eventId; missing++) {
+                                    eventGaps.put(missing, now + EVENT_GAP_TIMEOUT_MILLIS);
+                                }
+                                lastEventId = eventId;
+                            } else {
+                                eventGaps.remove(eventId);
+                            }
+                            if (syncServerId.equals(rs.getString("event_origin"))) {
+                                continue;
+                            }
+                            BanRecord current = rs.getObject(5) != null ? PunishmentRowMapper.read(rs, 5) : null;
+                            applyRemoteChange(rs.getInt("event_punishment_id"), current);
+                            if (current != null && EVENT_ADD.equals(rs.getString("event_action"))) {
+                                punishmentCounters.onPunishmentAdded(current);
+                                if (current.getPunishedUuid() != null) {
+                                    punishedPlayers.add(current.getPunishedUuid());
+                                }
+                                if (current.isActive() && !current.isExpired()) {
+                                    added.add(current);
+                                }
+                            }
+                            applied++;
                         }
                     }
+                    if (!punishedPlayers.isEmpty() && altGraph.isLoaded()) {
+                        loadAltEdges(conn, punishedPlayers);
+                    }
                 } catch (SQLException e) {
-                    plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации BAN/TEMPBAN для " + playerUuid + ": " + e.getMessage(), e);
+                    plugin.getLogger().log(Level.SEVERE, "Ошибка при чтении журнала изменений наказаний: " + e.getMessage(), e);
                     throw new CompletionException(e);
                 }
-            } else if (type == PunishmentType.MUTE || type == PunishmentType.TEMPMUTE) {
-                sql = "UPDATE punishments SET active = FALSE WHERE punished_uuid = ? AND type IN ('MUTE', 'TEMPMUTE') AND active = TRUE";
-                try (Connection conn = getConnection();
-                     PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, playerUuid.toString());
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации MUTE/TEMPMUTE для UUID " + playerUuid + ": " + stmt.toString().replaceFirst(".*: ", ""));
-                    }
-                    int rowsAffected = stmt.executeUpdate();
+                if (applied > 0 && plugin.getConfigManager().isDebugModeEnabled()) {
+                    plugin.getLogger().info("DEBUG: Применено событий других серверов: " + applied + ", последнее событие " + lastEventId + ", ожидается пропусков: " + eventGaps.size());
+                }
+                return added;
+            } finally {
+                eventPollInProgress.set(false);
+            }
+        }, lane(DatabaseLane.MODERATION));
+    }
 
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        if (rowsAffected > 0) {
-                            plugin.getLogger().info("DEBUG: Деактивировано " + rowsAffected + " активных наказаний типа MUTE/TEMPMUTE для " + playerUuid);
-                        }
-                    }
-                } catch (SQLException e) {
-                    plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации MUTE/TEMPMUTE для " + playerUuid + ": " + e.getMessage(), e);
-                    throw new CompletionException(e);
+    /**
+     * Добавляет в граф мультиаккаунтов связи игроков из player_ip_history.
+     * Входы на других серверах пишутся в общую БД, но в граф этого сервера попадают только при загрузке,
+     * поэтому наказание с другого сервера подтягивает связи наказанного игрока: /alts видит IP, с которых он входил там.
+     * @param playerUuids Игроки.
+     */
+    private void loadAltEdges(Connection conn, Collection<UUID> playerUuids) throws SQLException {
+        String sql = "SELECT player_uuid, ip_address FROM player_ip_history WHERE player_uuid IN (" + PunishmentQueries.placeholders(playerUuids.size()) + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (UUID playerUuid : playerUuids) {
+                stmt.setString(index++, playerUuid.toString());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    altGraph.addEdge(UUID.fromString(rs.getString("player_uuid")), getIpAddress(rs, "ip_address"));
                 }
-            } else if (type == PunishmentType.IP_BAN) {
-                sql = "UPDATE punishments SET active = FALSE WHERE punished_uuid = ? AND type = 'IP_BAN' AND active = TRUE";
-                try (Connection conn = getConnection();
-                     PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, playerUuid.toString());
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации IP_BAN для UUID " + playerUuid + ": " + stmt.toString().replaceFirst(".*: ", ""));
-                    }
-                    int rowsAffected = stmt.executeUpdate();
+            }
+        }
+    }
 
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        if (rowsAffected > 0) {
-                            plugin.getLogger().info("DEBUG: Деактивировано " + rowsAffected + " активных наказаний типа IP_BAN для " + playerUuid);
-                        }
+    /**
+     * Приводит кэши к текущему состоянию наказания в БД после изменения на другом сервере.
+     * Состояние берется из строки punishments, а не из события, поэтому повторное или запоздалое применение безопасно.
+     * @param punishmentId ID наказания из события.
+     * @param current Текущая запись наказания или null, если ее нет в БД.
+     */
+    private void applyRemoteChange(int punishmentId, BanRecord current) {
+        punishmentIndex.remove(punishmentId);
+        reloadMutes(muteCache.remove(punishmentId));
+        expiryScheduler.cancel(punishmentId);
+        if (current != null && current.isActive() && !current.isExpired()) {
+            punishedKeyFilter.add(current);
+            punishmentIndex.add(current);
+            muteCache.onPunishmentAdded(current);
+            expiryScheduler.schedule(current.getId(), current.getExpireTime());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> prunePunishmentEvents(long olderThan) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = getWriteConnection();
+                 PreparedStatement stmt = conn.prepareStatement("DELETE FROM punishment_events WHERE created_at < ?")) {
+                stmt.setLong(1, olderThan);
+                return stmt.executeUpdate();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при удалении старых событий журнала наказаний: " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+        }, lane(DatabaseLane.BACKGROUND));
+    }
+
+    @Override
+    public CompletableFuture<Optional<BanRecord>> getActiveIpRangeBan(String ipAddress) {
+        if (plugin.getConfigManager().isDebugModeEnabled()) {
+            plugin.getLogger().info("DEBUG: Запрос активного диапазонного IP-бана для IP: " + ipAddress);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            byte[] address = IPUtils.toAddressBytes(IPUtils.normalizeIpAddress(ipAddress));
+            if (address == null) {
+                return Optional.<BanRecord>empty();
+            }
+            String key = IPUtils.toRangeKey(address);
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = prepareHotStatement(conn, PunishmentQueries.activeIpRangeBan())) {
+                stmt.setString(1, key);
+                stmt.setString(2, key);
+                stmt.setLong(3, System.currentTimeMillis());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.of(PunishmentRowMapper.read(rs));
                     }
-                } catch (SQLException e) {
-                    plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации IP_BAN для " + playerUuid + ": " + e.getMessage(), e);
-                    throw new CompletionException(e);
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при поиске диапазонного IP-бана для " + ipAddress + ": " + e.getMessage(), e);
+                throw new CompletionException(e);
             }
-            else {
-                sql = "UPDATE punishments SET active = FALSE WHERE punished_uuid = ? AND type = ? AND active = TRUE";
-                try (Connection conn = getConnection();
-                     PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, playerUuid.toString());
-                    stmt.setString(2, type.name());
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации " + type.name() + " для UUID " + playerUuid + ": " + stmt.toString().replaceFirst(".*: ", ""));
-                    }
-                    int rowsAffected = stmt.executeUpdate();
+            return Optional.<BanRecord>empty();
+        }, lane(DatabaseLane.LOGIN));
+    }
 
-                    if (plugin.getConfigManager().isDebugModeEnabled()) {
-                        if (rowsAffected > 0) {
-                            plugin.getLogger().info("DEBUG: Деактивировано " + rowsAffected + " активных наказаний типа " + type.name() + " для " + playerUuid); // Changed from playerManagerUuid
+    @Override
+    public CompletableFuture<Optional<BanRecord>> checkLoginBan(UUID playerUuid, String ipAddress) {
+        if (plugin.getConfigManager().isDebugModeEnabled()) {
+            plugin.getLogger().info("DEBUG: Проверка банов при входе для UUID: " + playerUuid + ", IP: " + ipAddress);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            String normalizedIpAddress = IPUtils.normalizeIpAddress(ipAddress);
+            byte[] address = IPUtils.toAddressBytes(normalizedIpAddress);
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = prepareHotStatement(conn, PunishmentQueries.loginBan())) {
+                long now = System.currentTimeMillis();
+                String rangeKey = address != null ? IPUtils.toRangeKey(address) : null; // NULL не входит ни в один диапазон
+                setUuid(stmt, 1, playerUuid);
+                stmt.setLong(2, now);
+                setIpAddress(stmt, 3, normalizedIpAddress);
+                stmt.setLong(4, now);
+                stmt.setString(5, rangeKey);
+                stmt.setString(6, rangeKey);
+                stmt.setLong(7, now);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        BanRecord record = PunishmentRowMapper.read(rs);
+                        if (plugin.getConfigManager().isDebugModeEnabled()) {
+                            plugin.getLogger().info("DEBUG: Найден бан при входе для UUID " + playerUuid + ": ID=" + record.getId() + ", Тип=" + record.getPunishmentType() + ".");
                         }
+                        return Optional.of(record);
                     }
-                } catch (SQLException e) {
-                    plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации наказаний для " + playerUuid + " типа " + type + ": " + e.getMessage(), e);
-                    throw new CompletionException(e);
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при проверке банов при входе для UUID " + playerUuid + ", IP " + ipAddress + ": " + e.getMessage(), e);
+                throw new CompletionException(e);
             }
-        }, executor);
+            return Optional.<BanRecord>empty();
+        }, lane(DatabaseLane.LOGIN));
     }
 
-
     @Override
-    public CompletableFuture<Void> deactivateIpPunishments(String ipAddress) {
+    public CompletableFuture<Void> deactivatePunishment(int punishmentId) {
         if (plugin.getConfigManager().isDebugModeEnabled()) {
-            plugin.getLogger().info("DEBUG: Попытка деактивировать IP-баны для IP: " + ipAddress);
+            plugin.getLogger().info("DEBUG: Попытка деактивировать наказание с ID: " + punishmentId);
         }
         return CompletableFuture.runAsync(() -> {
-            String sql = "UPDATE punishments SET active = FALSE WHERE punished_ip = ? AND type = 'IP_BAN' AND active = TRUE";
-            try (Connection conn = getConnection();
+            String sql = "UPDATE punishments SET active = FALSE WHERE id = ?";
+            try (Connection conn = getWriteConnection();
                  PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, IPUtils.normalizeIpAddress(ipAddress));
+                stmt.setInt(1, punishmentId);
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации IP-банов для IP " + IPUtils.normalizeIpAddress(ipAddress) + ": " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации наказания ID " + punishmentId + ": " + sql);
                 }
-                int rowsAffected = stmt.executeUpdate();
+                int rowsAffected = executeDeactivation(conn, stmt, "id = ? AND active = TRUE", (eventStmt, index) -> {
+                    eventStmt.setInt(index, punishmentId);
+                    return index + 1;
+                });
+                punishmentIndex.remove(punishmentId);
+                reloadMutes(muteCache.remove(punishmentId));
+                expiryScheduler.cancel(punishmentId);
 
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
                     if (rowsAffected > 0) {
-                        plugin.getLogger().info("DEBUG: Деактивировано " + rowsAffected + " активных IP-банов для " + IPUtils.normalizeIpAddress(ipAddress));
+                        plugin.getLogger().info("DEBUG: Наказание с ID " + punishmentId + " деактивировано. Строк затронуто: " + rowsAffected);
+                    } else {
+                        plugin.getLogger().warning("DEBUG: Попытка деактивировать несуществующее наказание с ID " + punishmentId + " или уже неактивное.");
                     }
                 }
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации IP-банов для " + ipAddress + ": " + e.getMessage(), e);
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации наказания с ID " + punishmentId + ": " + e.getMessage(), e);
                 throw new CompletionException(e);
             }
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
-    public CompletableFuture<List<BanRecord>> getActivePunishments(List<PunishmentType> types) {
+    public CompletableFuture<Integer> deactivatePunishments(Collection<Integer> punishmentIds) {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(punishmentIds));
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
         if (plugin.getConfigManager().isDebugModeEnabled()) {
-            plugin.getLogger().info("DEBUG: Попытка получить список активных наказаний типов: " + types);
+            plugin.getLogger().info("DEBUG: Попытка деактивировать " + ids.size() + " наказаний одной транзакцией.");
         }
         return CompletableFuture.supplyAsync(() -> {
-            List<BanRecord> activePunishments = new ArrayList<>();
-            // Строим часть запроса для IN (...)
-            StringBuilder typePlaceholders = new StringBuilder();
-            for (int i = 0; i < types.size(); i++) {
-                typePlaceholders.append("?");
-                if (i < types.size() - 1) {
-                    typePlaceholders.append(", ");
+            String condition = "id = ? AND active = TRUE";
+            int deactivated = 0;
+            try (Connection conn = getWriteConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement update = conn.prepareStatement("UPDATE punishments SET active = FALSE WHERE " + condition);
+                     PreparedStatement events = syncEnabled ? prepareEventInsert(conn, EVENT_DEACTIVATE, condition) : null) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        int punishmentId = ids.get(i);
+                        if (events != null) {
+                            events.setInt(4, punishmentId);
+                            events.addBatch();
+                        }
+                        update.setInt(1, punishmentId);
+                        update.addBatch();
+                        if ((i + 1) % batchSize == 0 || i == ids.size() - 1) {
+                            if (events != null) {
+                                events.executeBatch(); // До UPDATE, пока наказания пакета еще активны
+                            }
+                            for (int rows : update.executeBatch()) {
+                                deactivated += Math.max(0, rows);
+                            }
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации " + ids.size() + " наказаний: " + e.getMessage(), e);
+                throw new CompletionException(e);
             }
+            evictPunishments(ids);
+            if (plugin.getConfigManager().isDebugModeEnabled()) {
+                plugin.getLogger().info("DEBUG: Деактивировано наказаний: " + deactivated + " из " + ids.size());
+            }
+            return deactivated;
+        }, lane(DatabaseLane.MODERATION));
+    }
 
-            String sql = "SELECT * FROM punishments WHERE type IN (" + typePlaceholders.toString() + ") AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC";
-
-            try (Connection conn = getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-                // Устанавливаем параметры для IN (...)
-                for (int i = 0; i < types.size(); i++) {
-                    pstmt.setString(i + 1, types.get(i).name());
+    @Override
+    public CompletableFuture<Void> deactivatePunishments(UUID playerUuid, PunishmentType type) {
+        if (plugin.getConfigManager().isDebugModeEnabled()) {
+            plugin.getLogger().info("DEBUG: Попытка деактивировать наказания типа " + type + " для UUID: " + playerUuid);
+        }
+        return CompletableFuture.runAsync(() -> {
+            // Группа типа (BAN/TEMPBAN, MUTE/TEMPMUTE или отдельный тип) - готовый вариант запроса из реестра
+            String condition = PunishmentQueries.activeByUuidCondition(type);
+            String sql = PunishmentQueries.deactivateByUuid(type);
+            try (Connection conn = getWriteConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                setUuid(stmt, 1, playerUuid);
+                if (plugin.getConfigManager().isDebugModeEnabled()) {
+                    plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации " + type.name() + " для UUID " + playerUuid + ": " + sql);
                 }
-                // Устанавливаем параметр для expire_time
-                pstmt.setLong(types.size() + 1, System.currentTimeMillis());
+                int rowsAffected = executeDeactivation(conn, stmt, condition, (eventStmt, index) -> {
+                    setUuid(eventStmt, index, playerUuid);
+                    return index + 1;
+                });
 
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для активных наказаний: " + pstmt.toString().replaceFirst(".*: ", ""));
+                    if (rowsAffected > 0) {
+                        plugin.getLogger().info("DEBUG: Деактивировано " + rowsAffected + " активных наказаний (" + PunishmentQueries.typeCondition(type) + ") для " + playerUuid);
+                    }
                 }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации наказаний для " + playerUuid + " типа " + type + ": " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+            // Снимаем из индекса те же записи, что затронул UPDATE выше
+            punishmentIndex.removeMatching(record -> playerUuid.equals(record.getPunishedUuid())
+                    && ((type == PunishmentType.BAN || type == PunishmentType.TEMPBAN)
+                        ? (record.getPunishmentType() == PunishmentType.BAN || record.getPunishmentType() == PunishmentType.TEMPBAN)
+                        : record.getPunishmentType() == type));
+            if (type == PunishmentType.MUTE || type == PunishmentType.TEMPMUTE) {
+                muteCache.clear(playerUuid);
+            }
+        }, lane(DatabaseLane.MODERATION));
+    }
 
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        activePunishments.add(mapResultSetToBanRecord(rs));
+
+    @Override
+    public CompletableFuture<Void> deactivateIpPunishments(String ipAddress) {
+        if (plugin.getConfigManager().isDebugModeEnabled()) {
+            plugin.getLogger().info("DEBUG: Попытка деактивировать IP-баны для IP: " + ipAddress);
+        }
+        return CompletableFuture.runAsync(() -> {
+            // Постоянные и временные IP-баны - одна категория: /ipunban снимает оба
+            String condition = "punished_ip = ? AND " + PunishmentQueries.categoryRange("type", PunishmentType.IP_BAN, PunishmentType.IP_BAN) + " AND active = TRUE";
+            String sql = "UPDATE punishments SET active = FALSE WHERE " + condition;
+            try (Connection conn = getWriteConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                setIpAddress(stmt, 1, ipAddress);
+                if (plugin.getConfigManager().isDebugModeEnabled()) {
+                    plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для деактивации IP-банов для IP " + IPUtils.normalizeIpAddress(ipAddress) + ": " + sql);
+                }
+                int rowsAffected = executeDeactivation(conn, stmt, condition, (eventStmt, index) -> {
+                    setIpAddress(eventStmt, index, ipAddress);
+                    return index + 1;
+                });
+                String normalizedIp = IPUtils.normalizeIpAddress(ipAddress);
+                punishmentIndex.removeMatching(record -> record.getPunishmentType().isSameCategory(PunishmentType.IP_BAN)
+                        && record.getPunishedIp() != null
+                        && normalizedIp.equals(IPUtils.normalizeIpAddress(record.getPunishedIp())));
+
+                if (plugin.getConfigManager().isDebugModeEnabled()) {
+                    if (rowsAffected > 0) {
+                        plugin.getLogger().info("DEBUG: Деактивировано " + rowsAffected + " активных IP-банов для " + IPUtils.normalizeIpAddress(ipAddress));
                     }
                 }
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при получении активных наказаний типов " + types + ": " + e.getMessage(), e);
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации IP-банов для " + ipAddress + ": " + e.getMessage(), e);
                 throw new CompletionException(e);
             }
-            return activePunishments;
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
+    }
+
+    @Override
+    public CompletableFuture<List<BanRecord>> getActivePunishments(List<PunishmentType> types) {
+        List<BanRecord> activePunishments = new ArrayList<>();
+        return streamActivePunishments(types, activePunishments::add).thenApply(rows -> activePunishments);
+    }
+
+    @Override
+    public CompletableFuture<Long> streamActivePunishments(List<PunishmentType> types, Consumer<BanRecord> consumer) {
+        long now = System.currentTimeMillis();
+        // Готовый вариант запроса для такого числа типов; параметры: типы, затем текущее время
+        return streamPunishments(PunishmentQueries.activeByTypes(types.size()), (stmt, index) -> {
+            for (PunishmentType type : types) {
+                stmt.setInt(index++, type.getCode());
+            }
+            stmt.setLong(index++, now);
+            return index;
+        }, consumer, DatabaseLane.MODERATION, "активных наказаний типов " + types);
     }
 
     @Override
@@ -324,41 +1101,24 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
             plugin.getLogger().info("DEBUG: Запрос активного наказания для UUID: " + playerUuid + ", Тип: " + type.name());
         }
         return CompletableFuture.supplyAsync(() -> {
-            String sql;
-            // Убедитесь, что логика IN ('BAN', 'TEMPBAN') корректно обрабатывается для каждого типа
-            if (type == PunishmentType.BAN || type == PunishmentType.TEMPBAN) {
-                sql = "SELECT * FROM punishments WHERE punished_uuid = ? AND type IN ('BAN', 'TEMPBAN') AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC LIMIT 1";
-            } else if (type == PunishmentType.MUTE || type == PunishmentType.TEMPMUTE) {
-                sql = "SELECT * FROM punishments WHERE punished_uuid = ? AND type IN ('MUTE', 'TEMPMUTE') AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC LIMIT 1";
-            } else if (type == PunishmentType.IP_BAN) {
-                if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().warning("DEBUG: Запрос IP_BAN для UUID. Обычно IP_BAN проверяется по IP-адресу. Проверяем по UUID, но это может быть неверно.");
-                }
-                sql = "SELECT * FROM punishments WHERE punished_uuid = ? AND type = 'IP_BAN' AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC LIMIT 1";
-            } else {
-                sql = "SELECT * FROM punishments WHERE punished_uuid = ? AND type = ? AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC LIMIT 1";
+            if (type == PunishmentType.IP_BAN && plugin.getConfigManager().isDebugModeEnabled()) {
+                plugin.getLogger().warning("DEBUG: Запрос IP_BAN для UUID. Обычно IP_BAN проверяется по IP-адресу. Проверяем по UUID, но это может быть неверно.");
             }
+            // Группа типа (BAN/TEMPBAN, MUTE/TEMPMUTE или отдельный тип) - готовый вариант запроса из реестра
+            String sql = PunishmentQueries.activeByUuid(type);
 
             try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, playerUuid.toString());
-
-                if (type == PunishmentType.BAN || type == PunishmentType.TEMPBAN ||
-                        type == PunishmentType.MUTE || type == PunishmentType.TEMPMUTE ||
-                        type == PunishmentType.IP_BAN) {
-                    stmt.setLong(2, System.currentTimeMillis());
-                } else {
-                    stmt.setString(2, type.name());
-                    stmt.setLong(3, System.currentTimeMillis());
-                }
+                 PreparedStatement stmt = prepareHotStatement(conn, sql)) {
+                setUuid(stmt, 1, playerUuid);
+                stmt.setLong(2, System.currentTimeMillis());
 
 
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для активного наказания (UUID): " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для активного наказания (UUID): " + sql);
                 }
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        BanRecord record = readPunishmentRecord(rs);
+                        BanRecord record = PunishmentRowMapper.read(rs);
                         if (plugin.getConfigManager().isDebugModeEnabled()) {
                             plugin.getLogger().info("DEBUG: Найдено наказание в БД для UUID " + playerUuid + ": ID=" + record.getId() + ", Тип=" + record.getPunishmentType() + ", Активно=" + record.isActive() + ", Истекает=" + (record.isPermanent() ? "НИКОГДА" : new java.util.Date(record.getExpireTime())));
                         }
@@ -383,7 +1143,7 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Активного наказания не найдено в БД для UUID: " + playerUuid + ", Тип: " + type.name());
             }
             return Optional.empty();
-        }, executor);
+        }, lane(DatabaseLane.LOGIN));
     }
 
     @Override
@@ -409,21 +1169,21 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
             }
 
             // SQL-запрос для получения активного IP-наказания (IP_BAN или TEMP_IP_BAN)
-            // Используем 'IN' для проверки обоих типов IP-банов.
-            // Убедитесь, что 'TEMP_IP_BAN' соответствует имени в вашем enum PunishmentType.
-            String sql = "SELECT * FROM punishments WHERE punished_ip = ? AND type IN ('IP_BAN', 'TEMP_IP_BAN') AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC LIMIT 1";
+            // Диапазон кодов категории IP-банов покрывает оба типа.
+            String sql = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE punished_ip = ? AND " +
+                    PunishmentQueries.categoryRange("type", PunishmentType.IP_BAN, PunishmentType.IP_BAN) + " AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC LIMIT 1";
 
             try (Connection conn = getConnection();
                  PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, normalizedIpAddress);
+                setIpAddress(stmt, 1, normalizedIpAddress);
                 stmt.setLong(2, System.currentTimeMillis()); // Для проверки истечения временного бана
 
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для активного наказания (IP): " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для активного наказания (IP): " + sql);
                 }
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        BanRecord record = readPunishmentRecord(rs);
+                        BanRecord record = PunishmentRowMapper.read(rs);
                         if (plugin.getConfigManager().isDebugModeEnabled()) {
                             plugin.getLogger().info("DEBUG: Найдено наказание в БД для IP " + normalizedIpAddress + ": ID=" + record.getId() + ", Тип=" + record.getPunishmentType() + ", Активно=" + record.isActive() + ", Истекает=" + (record.isPermanent() ? "НИКОГДА" : new java.util.Date(record.getExpireTime())));
                         }
@@ -449,67 +1209,239 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Активного наказания не найдено в БД для IP: " + ipAddress + ", Тип: " + type.name());
             }
             return Optional.empty();
-        }, executor);
+        }, lane(DatabaseLane.LOGIN));
     }
 
     @Override
     public CompletableFuture<List<BanRecord>> getPunishmentHistory(UUID playerUuid) {
+        List<BanRecord> history = new ArrayList<>();
+        return streamPunishmentHistory(playerUuid, history::add).thenApply(rows -> history);
+    }
+
+    @Override
+    public CompletableFuture<Long> streamPunishmentHistory(UUID playerUuid, Consumer<BanRecord> consumer) {
+        String sql = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE punished_uuid = ? ORDER BY ban_time DESC";
+        return streamPunishments(sql, (stmt, index) -> {
+            setUuid(stmt, index, playerUuid);
+            return index + 1;
+        }, consumer, DatabaseLane.MODERATION, "истории наказаний UUID " + playerUuid);
+    }
+
+    @Override
+    public CompletableFuture<List<BanRecord>> getPunishmentHistory(String ipAddress) {
+        List<BanRecord> history = new ArrayList<>();
+        return streamPunishmentHistory(ipAddress, history::add).thenApply(rows -> history);
+    }
+
+    @Override
+    public CompletableFuture<Long> streamPunishmentHistory(String ipAddress, Consumer<BanRecord> consumer) {
+        String sql = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE punished_ip = ? ORDER BY ban_time DESC";
+        return streamPunishments(sql, (stmt, index) -> {
+            setIpAddress(stmt, index, ipAddress);
+            return index + 1;
+        }, consumer, DatabaseLane.MODERATION, "истории наказаний IP " + ipAddress);
+    }
+
+    /**
+     * Привязывает параметры условия WHERE к запросу.
+     */
+    @FunctionalInterface
+    protected interface StatementBinder {
+        /**
+         * @param stmt Подготовленный запрос.
+         * @param index Индекс первого параметра условия.
+         * @return Индекс следующего свободного параметра.
+         * @throws SQLException при ошибке привязки.
+         */
+        int bind(PreparedStatement stmt, int index) throws SQLException;
+    }
+
+    /**
+     * Выполняет запрос строк punishments (столбцы {@link PunishmentRowMapper#COLUMNS}) и передает их потребителю по одной.
+     * Драйвер читает строки порциями по database.stream_fetch_size (MySQL с useCursorFetch - серверным курсором),
+     * поэтому в памяти находится одна порция, а не весь результат.
+     * @param conn Соединение.
+     * @param sql Запрос.
+     * @param binder Параметры запроса.
+     * @param consumer Получатель записей; исключение из него прерывает чтение.
+     * @return Число переданных записей.
+     * @throws SQLException при ошибке запроса.
+     */
+    protected long readPunishments(Connection conn, String sql, StatementBinder binder, Consumer<BanRecord> consumer) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setFetchSize(streamFetchSize);
+            binder.bind(stmt, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(PunishmentRowMapper.read(rs));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Асинхронный вариант {@link #readPunishments} на отдельном соединении в указанной полосе.
+     * Потребитель вызывается в потоке полосы, пока соединение занято, поэтому долгая обработка записи задерживает освобождение соединения.
+     */
+    private CompletableFuture<Long> streamPunishments(String sql, StatementBinder binder, Consumer<BanRecord> consumer, DatabaseLane lane, String description) {
         if (plugin.getConfigManager().isDebugModeEnabled()) {
-            plugin.getLogger().info("DEBUG: Запрос истории наказаний для UUID: " + playerUuid);
+            plugin.getLogger().info("DEBUG: Потоковое чтение " + description + ": " + sql);
         }
         return CompletableFuture.supplyAsync(() -> {
-            List<BanRecord> history = new ArrayList<>();
-            String sql = "SELECT * FROM punishments WHERE punished_uuid = ? ORDER BY ban_time DESC";
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, playerUuid.toString());
-                if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для истории наказаний (UUID): " + stmt.toString().replaceFirst(".*: ", ""));
-                }
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        history.add(mapResultSetToBanRecord(rs));
-                    }
-                }
+            long rows;
+            try (Connection conn = getConnection()) {
+                rows = readPunishments(conn, sql, binder, consumer);
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при получении истории наказаний для UUID " + playerUuid + ": " + e.getMessage(), e);
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при чтении " + description + ": " + e.getMessage(), e);
                 throw new CompletionException(e);
             }
             if (plugin.getConfigManager().isDebugModeEnabled()) {
-                plugin.getLogger().info("DEBUG: Получено " + history.size() + " записей истории наказаний для UUID: " + playerUuid);
+                plugin.getLogger().info("DEBUG: Передано " + rows + " записей " + description);
             }
-            return history;
-        }, executor);
+            return rows;
+        }, lane(lane));
     }
 
     @Override
-    public CompletableFuture<List<BanRecord>> getPunishmentHistory(String ipAddress) {
+    public CompletableFuture<PunishmentPage> getPunishmentsPage(PunishmentCursor after, int skip, int limit) {
+        return queryPunishmentPage(null, (stmt, index) -> index, after, skip, limit, "всех наказаний");
+    }
+
+    @Override
+    public CompletableFuture<PunishmentPage> getPunishmentsPageByPlayerUuid(UUID uuid, PunishmentCursor after, int skip, int limit) {
+        return queryPunishmentPage("punished_uuid = ?", (stmt, index) -> {
+            setUuid(stmt, index, uuid);
+            return index + 1;
+        }, after, skip, limit, "наказаний UUID " + uuid);
+    }
+
+    @Override
+    public CompletableFuture<PunishmentPage> getPunishmentsPageByIp(String ipAddress, PunishmentCursor after, int skip, int limit) {
+        String normalizedIpAddress = IPUtils.normalizeIpAddress(ipAddress);
+        return queryPunishmentPage("punished_ip = ?", (stmt, index) -> {
+            setIpAddress(stmt, index, normalizedIpAddress);
+            return index + 1;
+        }, after, skip, limit, "наказаний IP " + normalizedIpAddress);
+    }
+
+    @Override
+    public CompletableFuture<PunishmentPage> getActivePunishmentsPage(List<PunishmentType> types, PunishmentCursor after, int skip, int limit) {
+        long now = System.currentTimeMillis();
+        return queryPunishmentPage("active = TRUE AND (expire_time = 0 OR expire_time > ?) AND type IN (" + PunishmentQueries.placeholders(types.size()) + ")", (stmt, index) -> {
+            stmt.setLong(index++, now);
+            for (PunishmentType type : types) {
+                stmt.setInt(index++, type.getCode());
+            }
+            return index;
+        }, after, skip, limit, "активных наказаний типов " + types);
+    }
+
+    /**
+     * Выполняет keyset-запрос страницы: ORDER BY ban_time DESC, id DESC с условием "после курсора".
+     * Запрашивается на одну запись больше размера страницы, чтобы узнать, есть ли следующая.
+     * Пропуск (OFFSET) выполняет БД: пропущенные записи не читаются в память, и запрос дальней страницы возвращает только ее.
+     */
+    private CompletableFuture<PunishmentPage> queryPunishmentPage(String condition, StatementBinder binder, PunishmentCursor after, int skip, int limit, String description) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT || skip < 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Некорректный запрос страницы: LIMIT " + limit + ", OFFSET " + skip));
+        }
         if (plugin.getConfigManager().isDebugModeEnabled()) {
-            plugin.getLogger().info("DEBUG: Запрос истории наказаний для IP: " + ipAddress);
+            plugin.getLogger().info("DEBUG: Запрос страницы " + description + " (LIMIT " + limit + ", OFFSET " + skip + ", курсор " + (after == null ? "начало" : after.getBanTime() + "/" + after.getId()) + ")");
         }
         return CompletableFuture.supplyAsync(() -> {
-            List<BanRecord> history = new ArrayList<>();
-            String sql = "SELECT * FROM punishments WHERE punished_ip = ? ORDER BY ban_time DESC";
+            StringBuilder sql = new StringBuilder("SELECT ").append(PunishmentRowMapper.COLUMNS).append(" FROM punishments");
+            if (condition != null || after != null) {
+                sql.append(" WHERE ");
+                if (condition != null) {
+                    sql.append(condition);
+                }
+                if (after != null) {
+                    sql.append(condition != null ? " AND " : "").append("(ban_time < ? OR (ban_time = ? AND id < ?))");
+                }
+            }
+            sql.append(" ORDER BY ban_time DESC, id DESC LIMIT ?");
+            if (skip > 0) {
+                sql.append(" OFFSET ?");
+            }
+
+            List<BanRecord> records = new ArrayList<>(limit + 1);
             try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, IPUtils.normalizeIpAddress(ipAddress));
-                if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для истории наказаний (IP): " + stmt.toString().replaceFirst(".*: ", ""));
+                 PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                int index = binder.bind(pstmt, 1);
+                if (after != null) {
+                    pstmt.setLong(index++, after.getBanTime());
+                    pstmt.setLong(index++, after.getBanTime());
+                    pstmt.setInt(index++, after.getId());
                 }
-                try (ResultSet rs = stmt.executeQuery()) {
+                pstmt.setInt(index++, limit + 1);
+                if (skip > 0) {
+                    pstmt.setInt(index, skip);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
                     while (rs.next()) {
-                        history.add(mapResultSetToBanRecord(rs));
+                        records.add(PunishmentRowMapper.read(rs));
                     }
                 }
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при получении истории наказаний для IP " + ipAddress + ": " + e.getMessage(), e);
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при получении страницы " + description + ": " + e.getMessage(), e);
                 throw new CompletionException(e);
             }
-            if (plugin.getConfigManager().isDebugModeEnabled()) {
-                plugin.getLogger().info("DEBUG: Получено " + history.size() + " записей истории наказаний для IP: " + ipAddress);
+
+            PunishmentCursor nextCursor = null;
+            if (records.size() > limit) {
+                records.remove(limit);
+                BanRecord last = records.get(limit - 1);
+                nextCursor = new PunishmentCursor(last.getBanTime(), last.getId());
+            }
+            return new PunishmentPage(records, nextCursor);
+        }, lane(DatabaseLane.MODERATION));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getPunishmentsCountByIp(String ipAddress) {
+        String normalizedIpAddress = IPUtils.normalizeIpAddress(ipAddress);
+        Integer cachedCount = punishmentCounters.getByIp(normalizedIpAddress);
+        if (cachedCount != null) {
+            return CompletableFuture.completedFuture(cachedCount);
+        }
+        long stamp = punishmentCounters.beginLoad();
+        return queryCount("SELECT COUNT(*) FROM punishments WHERE punished_ip = ?", (stmt, index) -> {
+            setIpAddress(stmt, index, normalizedIpAddress);
+            return index + 1;
+        }, "наказаний IP " + normalizedIpAddress).thenApply(count -> {
+            punishmentCounters.putByIp(normalizedIpAddress, count, stamp);
+            return count;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> getActivePunishmentsCount(List<PunishmentType> types) {
+        long now = System.currentTimeMillis();
+        return queryCount("SELECT COUNT(*) FROM punishments WHERE active = TRUE AND (expire_time = 0 OR expire_time > ?) AND type IN (" + PunishmentQueries.placeholders(types.size()) + ")", (stmt, index) -> {
+            stmt.setLong(index++, now);
+            for (PunishmentType type : types) {
+                stmt.setInt(index++, type.getCode());
+            }
+            return index;
+        }, "активных наказаний типов " + types);
+    }
+
+    private CompletableFuture<Integer> queryCount(String sql, StatementBinder binder, String description) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                binder.bind(pstmt, 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при подсчете " + description + ": " + e.getMessage(), e);
+                throw new CompletionException(e);
             }
-            return history;
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
@@ -519,17 +1451,17 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         }
         return CompletableFuture.supplyAsync(() -> {
             List<BanRecord> punishments = new ArrayList<>();
-            String sql = "SELECT * FROM punishments ORDER BY active DESC, ban_time DESC LIMIT ? OFFSET ?";
+            String sql = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments ORDER BY active DESC, ban_time DESC LIMIT ? OFFSET ?";
             try (Connection conn = getConnection();
                  PreparedStatement pstmt = conn.prepareStatement(sql)) {
                 pstmt.setInt(1, limit);
                 pstmt.setInt(2, offset);
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для всех наказаний: " + pstmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для всех наказаний: " + sql);
                 }
                 try (ResultSet rs = pstmt.executeQuery()) {
                     while (rs.next()) {
-                        punishments.add(mapResultSetToBanRecord(rs));
+                        punishments.add(PunishmentRowMapper.read(rs));
                     }
                 }
             } catch (SQLException e) {
@@ -540,7 +1472,7 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Получено " + punishments.size() + " всех наказаний.");
             }
             return punishments;
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
@@ -550,18 +1482,18 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         }
         return CompletableFuture.supplyAsync(() -> {
             List<BanRecord> punishments = new ArrayList<>();
-            String sql = "SELECT * FROM punishments WHERE punished_uuid = ? ORDER BY active DESC, ban_time DESC LIMIT ? OFFSET ?";
+            String sql = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE punished_uuid = ? ORDER BY active DESC, ban_time DESC LIMIT ? OFFSET ?";
             try (Connection conn = getConnection();
                  PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, uuid.toString());
+                setUuid(pstmt, 1, uuid);
                 pstmt.setInt(2, limit);
                 pstmt.setInt(3, offset);
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для наказаний по UUID: " + pstmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для наказаний по UUID: " + sql);
                 }
                 try (ResultSet rs = pstmt.executeQuery()) {
                     while (rs.next()) {
-                        punishments.add(mapResultSetToBanRecord(rs));
+                        punishments.add(PunishmentRowMapper.read(rs));
                     }
                 }
             } catch (SQLException e) {
@@ -572,7 +1504,7 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Получено " + punishments.size() + " наказаний для UUID " + uuid + ".");
             }
             return punishments;
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
@@ -580,13 +1512,19 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         if (plugin.getConfigManager().isDebugModeEnabled()) {
             plugin.getLogger().info("DEBUG: Запрос общего количества наказаний.");
         }
+        Integer cachedCount = punishmentCounters.getTotal();
+        if (cachedCount != null) {
+            return CompletableFuture.completedFuture(cachedCount); // Счетчик поддерживается addPunishment и сверяется с БД по таймеру
+        }
         return CompletableFuture.supplyAsync(() -> {
             String sql = "SELECT COUNT(*) FROM punishments";
+            long stamp = punishmentCounters.beginLoad();
             try (Connection conn = getConnection();
                  PreparedStatement pstmt = conn.prepareStatement(sql);
                  ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     int count = rs.getInt(1);
+                    punishmentCounters.setTotal(count, stamp);
                     if (plugin.getConfigManager().isDebugModeEnabled()) {
                         plugin.getLogger().info("DEBUG: Общее количество наказаний: " + count);
                     }
@@ -600,7 +1538,7 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Общее количество наказаний: 0 (ошибка или нет данных).");
             }
             return 0;
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
@@ -608,17 +1546,23 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         if (plugin.getConfigManager().isDebugModeEnabled()) {
             plugin.getLogger().info("DEBUG: Запрос количества наказаний для UUID: " + uuid);
         }
+        Integer cachedCount = punishmentCounters.getByUuid(uuid);
+        if (cachedCount != null) {
+            return CompletableFuture.completedFuture(cachedCount);
+        }
         return CompletableFuture.supplyAsync(() -> {
             String sql = "SELECT COUNT(*) FROM punishments WHERE punished_uuid = ?";
+            long stamp = punishmentCounters.beginLoad();
             try (Connection conn = getConnection();
                  PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, uuid.toString());
+                setUuid(pstmt, 1, uuid);
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для подсчета наказаний по UUID: " + pstmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для подсчета наказаний по UUID: " + sql);
                 }
                 try (ResultSet rs = pstmt.executeQuery()) {
                     if (rs.next()) {
                         int count = rs.getInt(1);
+                        punishmentCounters.putByUuid(uuid, count, stamp);
                         if (plugin.getConfigManager().isDebugModeEnabled()) {
                             plugin.getLogger().info("DEBUG: Количество наказаний для UUID " + uuid + ": " + count);
                         }
@@ -633,7 +1577,7 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Количество наказаний для UUID " + uuid + ": 0 (ошибка или нет данных).");
             }
             return 0;
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
@@ -641,9 +1585,64 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         if (plugin.getConfigManager().isDebugModeEnabled()) {
             plugin.getLogger().info("DEBUG: Попытка сохранения/обновления IP для UUID " + playerUuid + ", IP: " + ipAddress);
         }
-        return CompletableFuture.runAsync(() -> {
-            throw new UnsupportedOperationException("savePlayerIp должен быть реализован в подклассах (SQLiteManager/MySQLManager)");
-        }, executor);
+        // Запись откладывается в буфер и уходит в БД пакетом, вход игрока ее не ждет
+        String normalizedIp = IPUtils.normalizeIpAddress(ipAddress);
+        playerIpBuffer.offer(playerUuid, normalizedIp);
+        if (altGraph.isLoaded()) {
+            altGraph.addEdge(playerUuid, normalizedIp); // Связь видна /alts сразу, до записи в БД
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Пакетно записывает IP игроков в таблицы player_ips (последний IP) и player_ip_history (история) одной транзакцией.
+     * Вызывается из {@link PlayerIpWriteBuffer}.
+     * @param batch Записи для сохранения (не более одной на пару UUID - IP), упорядоченные по времени входа.
+     * @throws SQLException если запись не удалась.
+     */
+    protected void writePlayerIps(List<PlayerIpWriteBuffer.PendingIp> batch) throws SQLException {
+        String sql = getDialect() == SqlDialect.MYSQL
+                ? "INSERT INTO player_ips (player_uuid, ip_address, last_seen) VALUES (?, ?, ?) " +
+                  "ON DUPLICATE KEY UPDATE ip_address = VALUES(ip_address), last_seen = VALUES(last_seen)"
+                : "INSERT INTO player_ips (player_uuid, ip_address, last_seen) VALUES (?, ?, ?) " +
+                  "ON CONFLICT(player_uuid) DO UPDATE SET ip_address = excluded.ip_address, last_seen = excluded.last_seen";
+        String historySql = getDialect() == SqlDialect.MYSQL
+                ? "INSERT INTO player_ip_history (player_uuid, ip_address, first_seen, last_seen, login_count) VALUES (?, ?, ?, ?, ?) " +
+                  "ON DUPLICATE KEY UPDATE last_seen = GREATEST(last_seen, VALUES(last_seen)), login_count = login_count + VALUES(login_count)"
+                : "INSERT INTO player_ip_history (player_uuid, ip_address, first_seen, last_seen, login_count) VALUES (?, ?, ?, ?, ?) " +
+                  "ON CONFLICT(player_uuid, ip_address) DO UPDATE SET last_seen = MAX(last_seen, excluded.last_seen), login_count = login_count + excluded.login_count";
+        try (Connection conn = getWriteConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql);
+                 PreparedStatement historyStmt = conn.prepareStatement(historySql)) {
+                for (PlayerIpWriteBuffer.PendingIp entry : batch) {
+                    byte[] ipAddress = IPUtils.toStorageBytes(entry.getIpAddress());
+                    if (ipAddress == null) {
+                        continue; // ip_address NOT NULL: не-IP строка сорвала бы весь пакет
+                    }
+                    stmt.setString(1, entry.getPlayerUuid().toString());
+                    stmt.setBytes(2, ipAddress);
+                    stmt.setLong(3, entry.getLastSeen());
+                    stmt.addBatch();
+
+                    historyStmt.setString(1, entry.getPlayerUuid().toString());
+                    historyStmt.setBytes(2, ipAddress);
+                    historyStmt.setLong(3, entry.getFirstSeen());
+                    historyStmt.setLong(4, entry.getLastSeen());
+                    historyStmt.setInt(5, entry.getLoginCount());
+                    historyStmt.addBatch();
+                }
+                stmt.executeBatch();
+                historyStmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
     }
 
     @Override
@@ -651,17 +1650,21 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         if (plugin.getConfigManager().isDebugModeEnabled()) {
             plugin.getLogger().info("DEBUG: Запрос последнего известного IP для UUID: " + playerUuid);
         }
+        Optional<String> pendingIp = playerIpBuffer.getPendingIp(playerUuid);
+        if (pendingIp.isPresent()) {
+            return CompletableFuture.completedFuture(pendingIp); // Еще не записан в БД, но уже самый свежий
+        }
         return CompletableFuture.supplyAsync(() -> {
             String sql = "SELECT ip_address FROM player_ips WHERE player_uuid = ? ORDER BY last_seen DESC LIMIT 1";
             try (Connection conn = getConnection();
                  PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, playerUuid.toString());
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для последнего известного IP: " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для последнего известного IP: " + sql);
                 }
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        String ip = rs.getString("ip_address");
+                        String ip = getIpAddress(rs, "ip_address");
                         if (plugin.getConfigManager().isDebugModeEnabled()) {
                             plugin.getLogger().info("DEBUG: Найден последний известный IP для UUID " + playerUuid + ": " + ip);
                         }
@@ -676,7 +1679,7 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Последний известный IP для UUID " + playerUuid + " не найден.");
             }
             return Optional.empty();
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
@@ -684,13 +1687,17 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         if (plugin.getConfigManager().isDebugModeEnabled()) {
             plugin.getLogger().info("DEBUG: Запрос последнего известного UUID для IP: " + ipAddress);
         }
+        Optional<UUID> pendingUuid = playerIpBuffer.findPendingUuid(IPUtils.normalizeIpAddress(ipAddress));
+        if (pendingUuid.isPresent()) {
+            return CompletableFuture.completedFuture(pendingUuid);
+        }
         return CompletableFuture.supplyAsync(() -> {
             String sql = "SELECT player_uuid FROM player_ips WHERE ip_address = ? ORDER BY last_seen DESC LIMIT 1";
             try (Connection conn = getConnection();
                  PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, IPUtils.normalizeIpAddress(ipAddress));
+                setIpAddress(stmt, 1, ipAddress);
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для последнего известного UUID: " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для последнего известного UUID: " + sql);
                 }
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
@@ -712,7 +1719,7 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: Последний известный UUID для IP " + ipAddress + " не найден.");
             }
             return Optional.empty();
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
@@ -736,13 +1743,12 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                  PreparedStatement stmt = conn.prepareStatement(sqlPunishments)) {
                 stmt.setString(1, playerName);
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для UUID по имени в punishments: " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для UUID по имени в punishments: " + sqlPunishments);
                 }
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
-                        String uuidString = rs.getString("punished_uuid");
-                        if (uuidString != null) {
-                            UUID uuid = UUID.fromString(uuidString);
+                        UUID uuid = UUIDUtils.fromBytes(rs.getBytes(1));
+                        if (uuid != null) {
                             if (plugin.getConfigManager().isDebugModeEnabled()) {
                                 plugin.getLogger().info("DEBUG: Найден UUID для " + playerName + " из таблицы punishments: " + uuid);
                             }
@@ -757,35 +1763,390 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().info("DEBUG: UUID для " + playerName + " не найден ни через Bukkit API, ни в таблице punishments.");
             }
             return Optional.empty();
-        }, executor);
+        }, lane(DatabaseLane.MODERATION));
     }
 
     @Override
-    public CompletableFuture<List<BanRecord>> getAllActivePunishments() {
-        if (plugin.getConfigManager().isDebugModeEnabled()) {
-            plugin.getLogger().info("DEBUG: Запрос всех активных наказаний.");
+    public CompletableFuture<List<Integer>> deactivateExpiredPunishments(long now) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Integer> deactivatedIds = new ArrayList<>();
+            // Границу пакета выбираем по expire_time, чтобы UPDATE шел по диапазону индекса (active, expire_time).
+            // Все строки с граничным expire_time попадают в один пакет, поэтому пакет может быть чуть больше EXPIRY_SWEEP_CHUNK_SIZE.
+            String boundarySql = "SELECT expire_time FROM punishments WHERE active = TRUE AND expire_time BETWEEN ? AND ? ORDER BY expire_time LIMIT 1 OFFSET ?";
+            String idsSql = "SELECT id FROM punishments WHERE active = TRUE AND expire_time BETWEEN ? AND ?";
+            String updateSql = "UPDATE punishments SET active = FALSE WHERE active = TRUE AND expire_time BETWEEN ? AND ?";
+            try (Connection conn = getWriteConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement boundaryStmt = conn.prepareStatement(boundarySql);
+                     PreparedStatement idsStmt = conn.prepareStatement(idsSql);
+                     PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+                    long lower = 1; // expire_time = 0 означает перманентное наказание
+                    while (lower <= now) {
+                        long upper = now;
+                        boundaryStmt.setLong(1, lower);
+                        boundaryStmt.setLong(2, now);
+                        boundaryStmt.setInt(3, EXPIRY_SWEEP_CHUNK_SIZE - 1);
+                        try (ResultSet rs = boundaryStmt.executeQuery()) {
+                            if (rs.next()) {
+                                upper = rs.getLong(1);
+                            }
+                        }
+
+                        int chunkStart = deactivatedIds.size();
+                        idsStmt.setLong(1, lower);
+                        idsStmt.setLong(2, upper);
+                        try (ResultSet rs = idsStmt.executeQuery()) {
+                            while (rs.next()) {
+                                deactivatedIds.add(rs.getInt(1));
+                            }
+                        }
+                        if (deactivatedIds.size() > chunkStart) {
+                            updateStmt.setLong(1, lower);
+                            updateStmt.setLong(2, upper);
+                            updateStmt.executeUpdate();
+                        }
+                        conn.commit();
+                        lower = upper + 1;
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации истекших наказаний: " + e.getMessage(), e);
+                evictPunishments(deactivatedIds); // Уже закоммиченные пакеты все равно снимаем из кэшей
+                throw new CompletionException(e);
+            }
+            evictPunishments(deactivatedIds);
+            if (plugin.getConfigManager().isDebugModeEnabled()) {
+                plugin.getLogger().info("DEBUG: Деактивировано истекших наказаний: " + deactivatedIds.size());
+            }
+            return deactivatedIds;
+        }, lane(DatabaseLane.BACKGROUND));
+    }
+
+    /**
+     * Снимает деактивированные наказания из резидентных кэшей.
+     * @param punishmentIds ID деактивированных наказаний.
+     */
+    protected void evictPunishments(Collection<Integer> punishmentIds) {
+        if (punishmentIds.isEmpty()) {
+            return;
+        }
+        for (int punishmentId : punishmentIds) {
+            punishmentIndex.remove(punishmentId);
+            expiryScheduler.cancel(punishmentId);
+        }
+        reloadMutes(muteCache.removeAll(punishmentIds));
+    }
+
+    /**
+     * Перечитывает мут игроков, у которых в кэше был снятый мут: у них может оставаться другой активный мут.
+     * До завершения загрузки проверки их мута идут в БД; при ошибке игрок перестает отслеживаться кэшем.
+     * @param playerUuids UUID игроков из {@link MuteCache#remove(int)}/{@link MuteCache#removeAll(Collection)}.
+     */
+    private void reloadMutes(Set<UUID> playerUuids) {
+        for (UUID playerUuid : playerUuids) {
+            getActivePunishment(playerUuid, PunishmentType.MUTE)
+                    .thenAccept(mute -> muteCache.load(playerUuid, mute))
+                    .exceptionally(ex -> {
+                        muteCache.evict(playerUuid);
+                        plugin.getLogger().log(Level.WARNING, "Не удалось перечитать мут игрока " + playerUuid + " в кэш: " + ex.getMessage(), ex);
+                        return null;
+                    });
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getKnownIps(UUID playerUuid) {
+        if (altGraph.isLoaded()) {
+            return CompletableFuture.completedFuture(altGraph.getIps(playerUuid));
         }
         return CompletableFuture.supplyAsync(() -> {
-            List<BanRecord> activePunishments = new ArrayList<>();
-            String sql = "SELECT * FROM punishments WHERE active = TRUE AND (type IN ('BAN', 'TEMPBAN', 'MUTE', 'TEMPMUTE', 'IP_BAN'))";
             try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql);
-                 ResultSet rs = stmt.executeQuery()) {
-                if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL SELECT для всех активных наказаний: " + stmt.toString().replaceFirst(".*: ", ""));
+                 PreparedStatement stmt = conn.prepareStatement("SELECT ip_address FROM player_ip_history WHERE player_uuid = ? ORDER BY first_seen")) {
+                return queryIps(stmt, playerUuid);
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при получении истории IP для " + playerUuid + ": " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+        }, lane(DatabaseLane.MODERATION));
+    }
+
+    @Override
+    public CompletableFuture<List<AltAccount>> getAltAccounts(UUID playerUuid, int maxDepth, int limit) {
+        if (plugin.getConfigManager().isDebugModeEnabled()) {
+            plugin.getLogger().info("DEBUG: Поиск мультиаккаунтов для UUID " + playerUuid + " (глубина " + maxDepth + ", граф в памяти: " + altGraph.isLoaded() + ")");
+        }
+        if (altGraph.isLoaded()) {
+            return CompletableFuture.completedFuture(altGraph.findAlts(playerUuid, maxDepth, limit));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = getConnection()) {
+                return walkAltsInDatabase(conn, playerUuid, null, maxDepth, limit);
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при поиске мультиаккаунтов для " + playerUuid + ": " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+        }, lane(DatabaseLane.MODERATION));
+    }
+
+    @Override
+    public CompletableFuture<List<AltAccount>> getAccountsByIp(String ipAddress, int maxDepth, int limit) {
+        String normalizedIp = IPUtils.normalizeIpAddress(ipAddress);
+        if (plugin.getConfigManager().isDebugModeEnabled()) {
+            plugin.getLogger().info("DEBUG: Поиск аккаунтов для IP " + normalizedIp + " (глубина " + maxDepth + ", граф в памяти: " + altGraph.isLoaded() + ")");
+        }
+        if (altGraph.isLoaded()) {
+            return CompletableFuture.completedFuture(altGraph.findAccounts(normalizedIp, maxDepth, limit));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = getConnection()) {
+                return walkAltsInDatabase(conn, null, normalizedIp, maxDepth, limit);
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при поиске аккаунтов для IP " + normalizedIp + ": " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+        }, lane(DatabaseLane.MODERATION));
+    }
+
+    /**
+     * Обход графа аккаунт - IP запросами к player_ip_history; используется, если граф в памяти не загружен.
+     * Порядок и уровни результата совпадают с {@link AltAccountGraph}.
+     */
+    private List<AltAccount> walkAltsInDatabase(Connection conn, UUID startPlayer, String startIp, int maxDepth, int limit) throws SQLException {
+        Set<UUID> visitedPlayers = new HashSet<>();
+        Set<String> visitedIps = new HashSet<>();
+        List<AltAccount> result = new ArrayList<>();
+        List<UUID> frontier = new ArrayList<>();
+        try (PreparedStatement ipsStmt = conn.prepareStatement("SELECT ip_address FROM player_ip_history WHERE player_uuid = ?");
+             PreparedStatement playersStmt = conn.prepareStatement("SELECT player_uuid FROM player_ip_history WHERE ip_address = ?")) {
+            int depth = 1;
+            if (startPlayer != null) {
+                visitedPlayers.add(startPlayer);
+                frontier.add(startPlayer);
+            } else if (maxDepth >= 1) {
+                visitedIps.add(startIp);
+                for (UUID player : queryPlayers(playersStmt, startIp)) {
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                    visitedPlayers.add(player);
+                    frontier.add(player);
+                    result.add(new AltAccount(player, 1, startIp));
                 }
-                while (rs.next()) {
-                    activePunishments.add(mapResultSetToBanRecord(rs));
+                depth = 2;
+            }
+            for (; depth <= maxDepth && !frontier.isEmpty(); depth++) {
+                List<UUID> next = new ArrayList<>();
+                for (UUID player : frontier) {
+                    for (String ip : queryIps(ipsStmt, player)) {
+                        if (!visitedIps.add(ip)) {
+                            continue;
+                        }
+                        for (UUID alt : queryPlayers(playersStmt, ip)) {
+                            if (!visitedPlayers.add(alt)) {
+                                continue;
+                            }
+                            if (result.size() >= limit) {
+                                return result;
+                            }
+                            result.add(new AltAccount(alt, depth, ip));
+                            next.add(alt);
+                        }
+                    }
                 }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при получении всех активных наказаний: " + e.getMessage(), e);
+                frontier = next;
+            }
+        }
+        return result;
+    }
+
+    private static List<String> queryIps(PreparedStatement stmt, UUID playerUuid) throws SQLException {
+        stmt.setString(1, playerUuid.toString());
+        List<String> ips = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ips.add(getIpAddress(rs, "ip_address"));
+            }
+        }
+        return ips;
+    }
+
+    private static List<UUID> queryPlayers(PreparedStatement stmt, String normalizedIp) throws SQLException {
+        setIpAddress(stmt, 1, normalizedIp);
+        List<UUID> players = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                players.add(UUID.fromString(rs.getString("player_uuid")));
+            }
+        }
+        return players;
+    }
+
+    @Override
+    public CompletableFuture<List<BanRecord>> getAllActivePunishments() {
+        List<BanRecord> activePunishments = new ArrayList<>();
+        return streamPunishments(ALL_ACTIVE_SQL, (stmt, index) -> index, activePunishments::add, DatabaseLane.MODERATION, "всех активных наказаний")
+                .thenApply(rows -> activePunishments);
+    }
+
+    @Override
+    public CompletableFuture<DataTransferResult> exportData(Path file, DataTransferResult.Progress progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp"); // Прежний файл заменяется только готовой выгрузкой
+            try (Connection conn = getConnection()) {
+                long punishments;
+                long playerIps = 0;
+                // Одна транзакция чтения: заголовок и строки берутся из одного снимка, даже если наказания выдаются во время выгрузки
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PunishmentArchive.Writer writer = PunishmentArchive.Writer.open(tempFile)) {
+                    long punishmentCount = countRows(conn, "SELECT COUNT(*) FROM punishments");
+                    long playerIpCount = countRows(conn, "SELECT COUNT(*) FROM player_ips");
+                    long totalRows = punishmentCount + playerIpCount;
+                    writer.writeHeader(new PunishmentArchive.Header(System.currentTimeMillis(), punishmentCount, playerIpCount));
+                    try {
+                        punishments = readPunishments(conn, "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments ORDER BY id", (stmt, index) -> index,
+                                new Consumer<>() {
+                                    private long written;
+
+                                    @Override
+                                    public void accept(BanRecord record) {
+                                        try {
+                                            writer.writePunishment(record);
+                                        } catch (IOException e) {
+                                            throw new UncheckedIOException(e);
+                                        }
+                                        if (++written % transferChunkRows == 0) {
+                                            progress.onProgress(written, totalRows);
+                                        }
+                                    }
+                                });
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    try (PreparedStatement stmt = conn.prepareStatement("SELECT player_uuid, ip_address, last_seen FROM player_ips")) {
+                        stmt.setFetchSize(streamFetchSize);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                writer.writePlayerIp(new PunishmentArchive.PlayerIp(UUID.fromString(rs.getString(1)),
+                                        IPUtils.fromStorageBytes(rs.getBytes(2)), rs.getLong(3)));
+                                if ((punishments + ++playerIps) % transferChunkRows == 0) {
+                                    progress.onProgress(punishments + playerIps, totalRows);
+                                }
+                            }
+                        }
+                    }
+                    writer.finish();
+                } finally {
+                    conn.rollback();
+                    conn.setAutoCommit(autoCommit);
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                DataTransferResult result = new DataTransferResult(punishments, playerIps,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), Files.size(file));
+                plugin.getLogger().info("Выгрузка данных в " + file + " завершена: " + punishments + " наказаний, " + playerIps + " IP игроков за "
+                        + result.getElapsedMillis() + " мс.");
+                return result;
+            } catch (SQLException | IOException | IllegalArgumentException e) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException deleteError) {
+                    e.addSuppressed(deleteError);
+                }
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при выгрузке данных в " + file + ": " + e.getMessage(), e);
                 throw new CompletionException(e);
             }
-            if (plugin.getConfigManager().isDebugModeEnabled()) {
-                plugin.getLogger().info("DEBUG: Получено " + activePunishments.size() + " всех активных наказаний.");
+        }, lane(DatabaseLane.BACKGROUND));
+    }
+
+    private static long countRows(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public CompletableFuture<DataTransferResult> importData(Path file, DataTransferResult.Progress progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            long punishments = 0;
+            long playerIps = 0;
+            try (PunishmentArchive.Reader reader = PunishmentArchive.Reader.open(file)) {
+                PunishmentArchive.Header header = reader.getHeader();
+                long totalRows = header.getPunishmentCount() + header.getPlayerIpCount();
+                List<BanRecord> punishmentChunk = new ArrayList<>();
+                List<PlayerIpWriteBuffer.PendingIp> playerIpChunk = new ArrayList<>();
+                for (int tag = reader.next(); tag != PunishmentArchive.END; tag = reader.next()) {
+                    if (tag == PunishmentArchive.PUNISHMENT) {
+                        punishmentChunk.add(reader.readPunishment());
+                        if (punishmentChunk.size() == transferChunkRows) {
+                            punishments += importPunishmentChunk(punishmentChunk);
+                            progress.onProgress(punishments + playerIps, totalRows);
+                        }
+                    } else {
+                        PunishmentArchive.PlayerIp playerIp = reader.readPlayerIp();
+                        playerIpChunk.add(new PlayerIpWriteBuffer.PendingIp(playerIp.getPlayerUuid(), playerIp.getIpAddress(),
+                                playerIp.getLastSeen(), playerIp.getLastSeen(), 1));
+                        if (playerIpChunk.size() == transferChunkRows) {
+                            playerIps += importPlayerIpChunk(playerIpChunk);
+                            progress.onProgress(punishments + playerIps, totalRows);
+                        }
+                    }
+                }
+                if (!punishmentChunk.isEmpty()) {
+                    punishments += importPunishmentChunk(punishmentChunk);
+                }
+                if (!playerIpChunk.isEmpty()) {
+                    playerIps += importPlayerIpChunk(playerIpChunk);
+                }
+                DataTransferResult result = new DataTransferResult(punishments, playerIps,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), Files.size(file));
+                plugin.getLogger().info("Загрузка данных из " + file + " завершена: " + punishments + " наказаний, " + playerIps + " IP игроков за "
+                        + result.getElapsedMillis() + " мс.");
+                return result;
+            } catch (SQLException | IOException e) {
+                // Порции, записанные до ошибки, остаются в БД
+                plugin.getLogger().log(Level.SEVERE, "Ошибка при загрузке данных из " + file + " (уже записано " + punishments + " наказаний, "
+                        + playerIps + " IP игроков): " + e.getMessage(), e);
+                throw new CompletionException(e);
+            }
+        }, lane(DatabaseLane.BACKGROUND));
+    }
+
+    /**
+     * Записывает порцию загружаемых наказаний одной транзакцией ({@link #writePunishments}). Порция очищается.
+     * @return Число записанных наказаний.
+     */
+    private int importPunishmentChunk(List<BanRecord> chunk) throws SQLException {
+        writePunishments(chunk);
+        int size = chunk.size();
+        chunk.clear();
+        return size;
+    }
+
+    /**
+     * Записывает порцию загружаемых IP игроков одной транзакцией и добавляет связи в граф мультиаккаунтов. Порция очищается.
+     * @return Число записанных IP.
+     */
+    private int importPlayerIpChunk(List<PlayerIpWriteBuffer.PendingIp> chunk) throws SQLException {
+        writePlayerIps(chunk);
+        if (altGraph.isLoaded()) {
+            for (PlayerIpWriteBuffer.PendingIp entry : chunk) {
+                if (entry.getIpAddress() != null) {
+                    altGraph.addEdge(entry.getPlayerUuid(), entry.getIpAddress());
+                }
             }
-            return activePunishments;
-        }, executor);
+        }
+        int size = chunk.size();
+        chunk.clear();
+        return size;
     }
 
     @Override
@@ -795,12 +2156,12 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
         }
         return CompletableFuture.runAsync(() -> {
             String sql = "UPDATE punishments SET punished_name = ? WHERE punished_uuid = ?";
-            try (Connection conn = getConnection();
+            try (Connection conn = getWriteConnection();
                  PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, newName);
-                stmt.setString(2, playerUuid.toString());
+                setUuid(stmt, 2, playerUuid);
                 if (plugin.getConfigManager().isDebugModeEnabled()) {
-                    plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для имени игрока: " + stmt.toString().replaceFirst(".*: ", ""));
+                    plugin.getLogger().info("DEBUG: Выполняем SQL UPDATE для имени игрока: " + sql);
                 }
                 int rowsAffected = stmt.executeUpdate();
 
@@ -815,93 +2176,49 @@ public abstract class AbstractDatabaseManager implements DatabaseManager {
                 plugin.getLogger().log(Level.SEVERE, "Ошибка при обновлении имени игрока " + playerUuid + ": " + e.getMessage(), e);
                 throw new CompletionException(e);
             }
-        }, executor);
+        }, lane(DatabaseLane.BACKGROUND));
     }
 
     /**
-     * Преобразует ResultSet в объект BanRecord.
-     * @param rs ResultSet с данными о наказании.
-     * @return BanRecord объект.
-     * @throws SQLException если произошла ошибка при чтении из ResultSet.
+     * Привязывает IP-адрес или CIDR-диапазон к параметру бинарного столбца (punished_ip, ip_address).
+     * Строка, не являющаяся IP, привязывается как NULL и поэтому ни с чем не совпадает.
+     * @param stmt Подготовленный запрос.
+     * @param index Индекс параметра.
+     * @param ipAddress IP-адрес, диапазон или null.
+     * @throws SQLException при ошибке привязки.
      */
-    protected BanRecord mapResultSetToBanRecord(ResultSet rs) throws SQLException {
-        UUID punishedUuid = null;
-        String punishedUuidString = rs.getString("punished_uuid");
-        if (punishedUuidString != null) {
-            try {
-                punishedUuid = UUID.fromString(punishedUuidString);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().log(Level.WARNING, "Некорректный UUID в punished_uuid: " + punishedUuidString + ". ID записи: " + rs.getInt("id"), e);
-            }
+    protected static void setIpAddress(PreparedStatement stmt, int index, String ipAddress) throws SQLException {
+        byte[] stored = IPUtils.toStorageBytes(ipAddress);
+        if (stored != null) {
+            stmt.setBytes(index, stored);
+        } else {
+            stmt.setNull(index, Types.VARBINARY);
         }
+    }
 
-        UUID moderatorUuid = null;
-        String moderatorUuidString = rs.getString("moderator_uuid");
-        if (moderatorUuidString != null) {
-            try {
-                moderatorUuid = UUID.fromString(moderatorUuidString);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().log(Level.WARNING, "Некорректный UUID в moderator_uuid: " + moderatorUuidString + ". ID записи: " + rs.getInt("id"), e);
-            }
-        }
-
-        return new BanRecord(
-                rs.getInt("id"),
-                punishedUuid,
-                rs.getString("punished_name"),
-                rs.getString("punished_ip"),
-                moderatorUuid,
-                rs.getString("moderator_name"),
-                PunishmentType.valueOf(rs.getString("type")),
-                rs.getString("reason"),
-                rs.getLong("ban_time"),
-                rs.getLong("expire_time"),
-                rs.getBoolean("active")
-        );
-    }
-
-    /**
-     * Вспомогательный метод для чтения данных из ResultSet и создания объекта BanRecord.
-     * Этот метод инкапсулирует логику преобразования строк из БД в объекты,
-     * а также обрабатывает потенциально некорректные UUID.
-     *
-     * @param rs ResultSet, содержащий строку с данными о наказании.
-     * @return Объект BanRecord, созданный из данных ResultSet.
-     * @throws SQLException Если происходит ошибка доступа к данным в ResultSet.
-     */
-    protected BanRecord readPunishmentRecord(ResultSet rs) throws SQLException {
-        UUID punishedUuid = null;
-        String punishedUuidString = rs.getString("punished_uuid");
-        if (punishedUuidString != null) {
-            try {
-                punishedUuid = UUID.fromString(punishedUuidString);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().log(Level.WARNING, "Некорректный UUID в punished_uuid: " + punishedUuidString + ". ID записи: " + rs.getInt("id"), e);
-            }
-        }
+    /**
+     * Читает IP-адрес или CIDR-диапазон из бинарного столбца в канонической текстовой записи.
+     * @param rs ResultSet, установленный на строку.
+     * @param column Имя столбца.
+     * @return Текстовая запись или null.
+     * @throws SQLException при ошибке чтения.
+     */
+    protected static String getIpAddress(ResultSet rs, String column) throws SQLException {
+        return IPUtils.fromStorageBytes(rs.getBytes(column));
+    }
 
-        UUID moderatorUuid = null;
-        String moderatorUuidString = rs.getString("moderator_uuid");
-        if (moderatorUuidString != null) {
-            try {
-                moderatorUuid = UUID.fromString(moderatorUuidString);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().log(Level.WARNING, "Некорректный UUID в moderator_uuid: " + moderatorUuidString + ". ID записи: " + rs.getInt("id"), e);
-            }
-        }
-
-        return new BanRecord(
-                rs.getInt("id"),
-                punishedUuid,
-                rs.getString("punished_name"),
-                rs.getString("punished_ip"),
-                moderatorUuid,
-                rs.getString("moderator_name"),
-                PunishmentType.valueOf(rs.getString("type")),
-                rs.getString("reason"),
-                rs.getLong("ban_time"),
-                rs.getLong("expire_time"),
-                rs.getBoolean("active")
-        );
-    }
-}
\ No newline at end of file
+    /**
+     * Записывает UUID в бинарный столбец (16 байт, см. {@link UUIDUtils}).
+     * @param stmt Подготовленный запрос.
+     * @param index Номер параметра.
+     * @param uuid UUID или null.
+     * @throws SQLException при ошибке установки параметра.
+     */
+    protected static void setUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        if (uuid != null) {
+            stmt.setBytes(index, UUIDUtils.toBytes(uuid));
+        } else {
+            stmt.setNull(index, Types.BINARY);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.teverus.adventoraBans.cache;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.IpRange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Резидентный индекс активных банов игроков (по UUID) и IP-банов (по нормализованному IP,
+ * диапазонные CIDR-баны - в префиксном дереве {@link IpRangeTrie}).
+ * Загружается из таблицы punishments при подключении к БД и обновляется менеджером БД
+ * при добавлении и деактивации наказаний, поэтому проверка входа сводится к поиску в карте.
+ * БД остается источником истины: индекс хранит только копию активных записей.
+ *
+ * Чтение не использует блокировок: списки записей по ключу неизменяемы и заменяются целиком.
+ */
+public class ActivePunishmentIndex {
+
+    private final ConcurrentHashMap<Integer, BanRecord> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, List<BanRecord>> byUuid = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<BanRecord>> byIp = new ConcurrentHashMap<>();
+    private final IpRangeTrie byRange = new IpRangeTrie();
+    private volatile boolean loaded = false;
+
+    /**
+     * Проверяет, хранит ли индекс наказания данного типа.
+     * @param type Тип наказания.
+     * @return true для BAN/TEMPBAN и IP_BAN/TEMP_IP_BAN.
+     */
+    public static boolean isIndexed(PunishmentType type) {
+        return isUuidBan(type) || isIpBan(type);
+    }
+
+    private static boolean isUuidBan(PunishmentType type) {
+        return type == PunishmentType.BAN || type == PunishmentType.TEMPBAN;
+    }
+
+    private static boolean isIpBan(PunishmentType type) {
+        return type == PunishmentType.IP_BAN || type == PunishmentType.TEMP_IP_BAN;
+    }
+
+    /**
+     * Полностью заменяет содержимое индекса записями, загруженными из БД.
+     * @param records Активные баны.
+     */
+    public void load(Collection<BanRecord> records) {
+        byId.clear();
+        byUuid.clear();
+        byIp.clear();
+        byRange.clear();
+        for (BanRecord record : records) {
+            add(record);
+        }
+        loaded = true;
+    }
+
+    /**
+     * @return true, если индекс был успешно загружен из БД и может заменять SQL-запросы.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Количество активных записей в индексе.
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Добавляет активную запись в индекс. Записи без ID, неактивные и неиндексируемых типов игнорируются.
+     * @param record Запись о наказании (с ID из БД).
+     */
+    public void add(BanRecord record) {
+        if (record == null || !record.isActive() || record.getId() <= 0 || !isIndexed(record.getPunishmentType())) {
+            return;
+        }
+        byId.put(record.getId(), record);
+        if (isUuidBan(record.getPunishmentType()) && record.getPunishedUuid() != null) {
+            byUuid.compute(record.getPunishedUuid(), (key, list) -> withRecord(list, record));
+        }
+        if (isIpBan(record.getPunishmentType()) && record.getPunishedIp() != null) {
+            IpRange range = IpRange.parse(record.getPunishedIp());
+            if (range != null) {
+                byRange.add(range, record);
+            } else {
+                byIp.compute(IPUtils.normalizeIpAddress(record.getPunishedIp()), (key, list) -> withRecord(list, record));
+            }
+        }
+    }
+
+    /**
+     * Удаляет запись из индекса по ее ID.
+     * @param punishmentId ID записи о наказании.
+     */
+    public void remove(int punishmentId) {
+        BanRecord removed = byId.remove(punishmentId);
+        if (removed != null) {
+            detach(removed);
+        }
+    }
+
+    /**
+     * Удаляет из индекса все записи, удовлетворяющие условию.
+     * Используется для массовых деактиваций, где ID записей заранее неизвестны.
+     * @param filter Условие удаления.
+     */
+    public void removeMatching(Predicate<BanRecord> filter) {
+        for (BanRecord record : byId.values()) {
+            if (filter.test(record)) {
+                remove(record.getId());
+            }
+        }
+    }
+
+    /**
+     * Ищет действующий бан игрока по UUID (BAN или TEMPBAN).
+     * @param playerUuid UUID игрока.
+     * @return Самый свежий неистекший бан, если есть.
+     */
+    public Optional<BanRecord> findBan(UUID playerUuid) {
+        return firstEffective(byUuid.get(playerUuid));
+    }
+
+    /**
+     * Ищет действующий IP-бан (IP_BAN или TEMP_IP_BAN) по IP-адресу.
+     * Сначала проверяется бан ровно этого адреса, затем самый узкий диапазонный бан, содержащий адрес.
+     * @param ipAddress IP-адрес (нормализуется перед поиском).
+     * @return Самый свежий неистекший IP-бан, если есть.
+     */
+    public Optional<BanRecord> findIpBan(String ipAddress) {
+        if (ipAddress == null) {
+            return Optional.empty();
+        }
+        String normalizedIp = IPUtils.normalizeIpAddress(ipAddress);
+        Optional<BanRecord> exact = firstEffective(byIp.get(normalizedIp));
+        if (exact.isPresent() || byRange.isEmpty()) {
+            return exact;
+        }
+        return byRange.find(IPUtils.toAddressBytes(normalizedIp));
+    }
+
+    private void detach(BanRecord record) {
+        if (record.getPunishedUuid() != null) {
+            byUuid.computeIfPresent(record.getPunishedUuid(), (key, list) -> withoutRecord(list, record.getId()));
+        }
+        if (record.getPunishedIp() != null) {
+            IpRange range = IpRange.parse(record.getPunishedIp());
+            if (range != null) {
+                byRange.remove(range, record.getId());
+                return;
+            }
+            byIp.computeIfPresent(IPUtils.normalizeIpAddress(record.getPunishedIp()), (key, list) -> withoutRecord(list, record.getId()));
+        }
+    }
+
+    // Списки отсортированы по ban_time DESC, как и ORDER BY в SQL-запросах менеджера БД.
+    private static Optional<BanRecord> firstEffective(List<BanRecord> records) {
+        if (records == null) {
+            return Optional.empty();
+        }
+        for (BanRecord record : records) {
+            if (!record.isExpired()) {
+                return Optional.of(record);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static List<BanRecord> withRecord(List<BanRecord> current, BanRecord record) {
+        List<BanRecord> updated = new ArrayList<>(current == null ? 1 : current.size() + 1);
+        if (current != null) {
+            for (BanRecord existing : current) {
+                if (existing.getId() != record.getId()) {
+                    updated.add(existing);
+                }
+            }
+        }
+        int position = 0;
+        while (position < updated.size() && updated.get(position).getBanTime() >= record.getBanTime()) {
+            position++;
+        }
+        updated.add(position, record);
+        return List.copyOf(updated);
+    }
+
+    private static List<BanRecord> withoutRecord(List<BanRecord> current, int punishmentId) {
+        List<BanRecord> updated = new ArrayList<>(current.size());
+        for (BanRecord existing : current) {
+            if (existing.getId() != punishmentId) {
+                updated.add(existing);
+            }
+        }
+        return updated.isEmpty() ? null : List.copyOf(updated);
+    }
+}
@@ -11,7 +11,10 @@ import org.teverus.adventoraBans.database.SQLiteManager;
 import org.teverus.adventoraBans.listeners.PlayerListener;
 import org.teverus.adventoraBans.messages.MessageManager;
 import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.tasks.PunishedKeyFilterRebuildTask;
 import org.teverus.adventoraBans.tasks.PunishmentCleanupTask;
+import org.teverus.adventoraBans.tasks.PunishmentCounterReconcileTask;
+import org.teverus.adventoraBans.tasks.PunishmentSyncTask;
 import org.teverus.adventoraBans.util.PlayerUtil;
 import org.teverus.adventoraBans.util.TimeUtil; // Убедитесь, что TimeUtil импортирован
 import org.teverus.adventoraBans.util.IPUtils; // Убедитесь, что IPUtils импортирован
@@ -50,7 +53,7 @@ public final class AdventoraBans extends JavaPlugin {
 
 
         TimeUtil.loadTimeUnits(this); // Это остается, так как loadTimeUnits - статический метод и требует доступа к плагину
-        PlayerUtil.initializeCache(); // Инициализация кэша PlayerUtil
+        PlayerUtil.initializeCache("VIRTUAL".equalsIgnoreCase(configManager.getDatabaseExecutorMode())); // Инициализация кэша и пула поиска игроков PlayerUtil
 
         // 4. Настройка и подключение к базе данных
         setupDatabase();
@@ -61,7 +64,10 @@ public final class AdventoraBans extends JavaPlugin {
         }
 
         // 5. Регистрация команд
-        registerCommands();this.getCommand("banlist").setExecutor(new BanListCommand(this));
+        registerCommands();
+        BanListCommand banListCommand = new BanListCommand(this);
+        this.getCommand("banlist").setExecutor(banListCommand);
+        getServer().getPluginManager().registerEvents(banListCommand, this); // Удаление курсоров страниц при выходе игрока
 
         // 6. Регистрация слушателей событий
         getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
@@ -74,6 +80,25 @@ public final class AdventoraBans extends JavaPlugin {
             getLogger().info(messageManager.getFormattedMessage("prefix") + " Задача по очистке старых наказаний запущена с интервалом " + cleanupInterval + " минут.");
         }
 
+        // 8. Сверка счетчиков наказаний (для пагинации истории) с БД
+        int reconcileInterval = configManager.getCounterReconcileIntervalMinutes();
+        if (reconcileInterval > 0) {
+            new PunishmentCounterReconcileTask(this).runTaskTimerAsynchronously(this, 20L * 60L * reconcileInterval, 20L * 60L * reconcileInterval);
+        }
+
+        // 9. Перестроение фильтра наказанных UUID и IP (удаление снятых наказаний)
+        int filterRebuildInterval = configManager.getPunishedFilterRebuildIntervalMinutes();
+        if (configManager.isPunishedFilterEnabled() && filterRebuildInterval > 0) {
+            new PunishedKeyFilterRebuildTask(this).runTaskTimerAsynchronously(this, 20L * 60L * filterRebuildInterval, 20L * 60L * filterRebuildInterval);
+        }
+
+        // 10. Синхронизация наказаний с другими серверами, работающими с той же БД
+        if (configManager.isSyncEnabled()) {
+            long pollIntervalTicks = Math.max(1L, configManager.getSyncPollIntervalMillis() / 50L);
+            new PunishmentSyncTask(this).runTaskTimerAsynchronously(this, pollIntervalTicks, pollIntervalTicks);
+            getLogger().info(messageManager.getFormattedMessage("prefix") + " Синхронизация наказаний между серверами включена (опрос каждые " + configManager.getSyncPollIntervalMillis() + " мс).");
+        }
+
         getLogger().info(messageManager.getFormattedMessage("prefix") + " AdventoraBans успешно запущен!");
         getLogger().info(messageManager.getFormattedMessage("prefix") + " Спасибо, что используете наш плагин!");
     }
@@ -142,9 +167,13 @@ public final class AdventoraBans extends JavaPlugin {
         // ------------------------------------------
         registerCommand("ipunban", new IpUnbanCommand(this));
         registerCommand("ipinfo", new IpInfoCommand(this));
+        registerCommand("alts", new AltsCommand(this));
 
-        registerCommand("history", new PunishmentHistoryCommand(this));
-        registerCommand("check", new PunishmentHistoryCommand(this)); // Альтернативный алиас
+        // Один экземпляр на обе команды: кнопки страниц /check ведут на /history с теми же курсорами
+        PunishmentHistoryCommand historyCommand = new PunishmentHistoryCommand(this);
+        registerCommand("history", historyCommand);
+        registerCommand("check", historyCommand); // Альтернативный алиас
+        getServer().getPluginManager().registerEvents(historyCommand, this); // Удаление контекстов просмотра при выходе игрока
 
         // Замените ReloadCommand на ваш собственный AdventoraBansCommand
         // Вам нужно создать этот класс: AdventoraBansCommand
@@ -211,6 +240,10 @@ public final class AdventoraBans extends JavaPlugin {
      * @return true, если игрок замучен и мут активен, false в противном случае или при ошибке.
      */
     public boolean isPlayerMuted(UUID playerUuid) {
+        // Для игроков на сервере состояние мута уже в кэше - обходимся без запроса к БД
+        if (databaseManager != null && databaseManager.getMuteCache().isTracked(playerUuid)) {
+            return databaseManager.getMuteCache().getActiveMute(playerUuid).isPresent();
+        }
         if (databaseManager == null || !databaseManager.isConnected()) {
             // Если база данных недоступна, нельзя проверить мут.
             // Логируем предупреждение и считаем, что игрок не замучен, чтобы не блокировать чат совсем.
@@ -5,13 +5,19 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.teverus.adventoraBans.AdventoraBans;
 import org.teverus.adventoraBans.commands.BaseCommand;
+import org.teverus.adventoraBans.database.DataTransferResult;
+import org.teverus.adventoraBans.database.DatabaseLane;
+import org.teverus.adventoraBans.database.LaneExecutor;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Level;
 
@@ -33,6 +39,29 @@ public class AdventoraBansCommand extends BaseCommand {
             return;
         }
 
+        if (args[0].equalsIgnoreCase("queues")) {
+            // Метрики полос пула запросов к БД
+            sender.sendMessage(plugin.getMessageManager().getMessage("queues_header",
+                    Map.of("mode", plugin.getConfigManager().getDatabaseExecutorMode().toUpperCase(Locale.ROOT))));
+            for (DatabaseLane lane : DatabaseLane.values()) {
+                LaneExecutor laneExecutor = plugin.getDatabaseManager().getLaneExecutor(lane);
+                sender.sendMessage(plugin.getMessageManager().getMessage("queues_entry", Map.of(
+                        "lane", lane.getConfigKey(),
+                        "running", String.valueOf(laneExecutor.getRunningCount()),
+                        "limit", String.valueOf(laneExecutor.getMaxConcurrency()),
+                        "queued", String.valueOf(laneExecutor.getQueuedCount()),
+                        "completed", String.valueOf(laneExecutor.getCompletedCount()),
+                        "avg_wait", String.format(Locale.ROOT, "%.1f", laneExecutor.getAverageWaitMillis()),
+                        "max_wait", String.format(Locale.ROOT, "%.1f", laneExecutor.getMaxWaitMillis()))));
+            }
+            return;
+        }
+
+        if (args[0].equalsIgnoreCase("export") || args[0].equalsIgnoreCase("import")) {
+            transferData(sender, args);
+            return;
+        }
+
         if (args[0].equalsIgnoreCase("plugin")) {
             // Перезагрузка всего плагина (ОПАСНО!)
             sender.sendMessage(plugin.getMessageManager().getMessage("reloading_plugin_warning"));
@@ -153,4 +182,44 @@ public class AdventoraBansCommand extends BaseCommand {
             sender.sendMessage(plugin.getMessageManager().getMessage("reload_usage"));
         }
     }
+
+    /**
+     * Выгрузка (export) или загрузка (import) наказаний и IP игроков. Файл берется из папки плагина,
+     * работа идет в полосе обслуживания БД, а ход и итог сообщаются отправителю.
+     */
+    private void transferData(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("transfer_usage"));
+            return;
+        }
+        boolean export = args[0].equalsIgnoreCase("export");
+        Path dataFolder = plugin.getDataFolder().toPath().toAbsolutePath().normalize();
+        Path file = dataFolder.resolve(args[1]).normalize();
+        if (!file.startsWith(dataFolder) || file.equals(dataFolder)) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("transfer_invalid_file", Map.of("file", args[1])));
+            return;
+        }
+        if (!export && !Files.isRegularFile(file)) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("import_file_not_found", Map.of("file", args[1])));
+            return;
+        }
+        String fileName = dataFolder.relativize(file).toString();
+        sender.sendMessage(plugin.getMessageManager().getMessage(export ? "export_started" : "import_started", Map.of("file", fileName)));
+        DataTransferResult.Progress progress = (rows, totalRows) -> sender.sendMessage(plugin.getMessageManager().getMessage("transfer_progress",
+                Map.of("rows", String.valueOf(rows), "total", String.valueOf(totalRows))));
+        (export ? plugin.getDatabaseManager().exportData(file, progress) : plugin.getDatabaseManager().importData(file, progress))
+                .thenAccept(result -> sender.sendMessage(plugin.getMessageManager().getMessage(export ? "export_done" : "import_done", Map.of(
+                        "file", fileName,
+                        "punishments", String.valueOf(result.getPunishments()),
+                        "player_ips", String.valueOf(result.getPlayerIps()),
+                        "size", String.valueOf(result.getFileBytes() / 1024),
+                        "seconds", String.format(Locale.ROOT, "%.1f", result.getElapsedMillis() / 1000.0),
+                        "rate", String.format(Locale.ROOT, "%.0f", result.getRowsPerSecond())))))
+                .exceptionally(ex -> {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    sender.sendMessage(plugin.getMessageManager().getMessage(export ? "export_failed" : "import_failed",
+                            Map.of("file", fileName, "error", String.valueOf(cause.getMessage()))));
+                    return null;
+                });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package org.teverus.adventoraBans.cache;
+
+import java.util.UUID;
+
+/**
+ * Аккаунт, найденный при обходе графа "аккаунт - IP" (см. {@link AltAccountGraph}).
+ */
+public final class AltAccount {
+
+    private final UUID playerUuid;
+    private final int depth;
+    private final String sharedIp;
+
+    public AltAccount(UUID playerUuid, int depth, String sharedIp) {
+        this.playerUuid = playerUuid;
+        this.depth = depth;
+        this.sharedIp = sharedIp;
+    }
+
+    public UUID getPlayerUuid() {
+        return playerUuid;
+    }
+
+    /**
+     * @return Уровень связи: 1 - общий IP с исходным аккаунтом (или вход с исходного IP), 2 - общий IP с аккаунтом уровня 1 и т.д.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return IP, через который аккаунт был найден.
+     */
+    public String getSharedIp() {
+        return sharedIp;
+    }
+}
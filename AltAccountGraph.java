@@ -0,0 +1,293 @@
+package org.teverus.adventoraBans.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Резидентный двудольный граф "аккаунт - IP" по истории входов (таблица player_ip_history) для поиска мультиаккаунтов.
+ * UUID и IP заменяются плотными номерами, списки смежности хранятся в массивах int в обе стороны,
+ * поэтому обход на несколько уровней идет без обращений к БД и без лишних объектов на каждое ребро.
+ * Загружается менеджером БД при подключении и дополняется при каждом входе игрока.
+ *
+ * Поиск выполняется под блокировкой чтения, добавление ребер - под блокировкой записи.
+ */
+public class AltAccountGraph {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> playerIds = new HashMap<>();
+    private final Map<String, Integer> ipIds = new HashMap<>();
+    private UUID[] players = new UUID[INITIAL_CAPACITY];
+    private String[] ips = new String[INITIAL_CAPACITY];
+    private int[][] playerEdges = new int[INITIAL_CAPACITY][]; // Номера IP аккаунта
+    private int[] playerDegree = new int[INITIAL_CAPACITY];
+    private int[][] ipEdges = new int[INITIAL_CAPACITY][]; // Номера аккаунтов IP
+    private int[] ipDegree = new int[INITIAL_CAPACITY];
+    private int playerCount;
+    private int ipCount;
+    private int edgeCount;
+    private volatile boolean loaded = false;
+
+    /**
+     * Удаляет все ребра. Граф считается незагруженным до вызова {@link #markLoaded()}.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            playerIds.clear();
+            ipIds.clear();
+            players = new UUID[INITIAL_CAPACITY];
+            ips = new String[INITIAL_CAPACITY];
+            playerEdges = new int[INITIAL_CAPACITY][];
+            playerDegree = new int[INITIAL_CAPACITY];
+            ipEdges = new int[INITIAL_CAPACITY][];
+            ipDegree = new int[INITIAL_CAPACITY];
+            playerCount = 0;
+            ipCount = 0;
+            edgeCount = 0;
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Отмечает граф загруженным из БД: с этого момента он может заменять SQL-запросы.
+     */
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * @return true, если граф был загружен из БД.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Количество пар "аккаунт - IP" в графе.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет пару "аккаунт - IP". Повторное добавление существующей пары ничего не меняет.
+     * @param playerUuid UUID игрока.
+     * @param normalizedIp Нормализованный IP-адрес.
+     */
+    public void addEdge(UUID playerUuid, String normalizedIp) {
+        if (playerUuid == null || normalizedIp == null) {
+            return;
+        }
+        // Чаще всего игрок заходит с уже известного IP: проверяем без блокировки записи
+        lock.readLock().lock();
+        try {
+            if (hasEdge(playerUuid, normalizedIp)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (hasEdge(playerUuid, normalizedIp)) {
+                return;
+            }
+            int player = playerId(playerUuid);
+            int ip = ipId(normalizedIp);
+            playerEdges[player] = append(playerEdges[player], playerDegree[player]++, ip);
+            ipEdges[ip] = append(ipEdges[ip], ipDegree[ip]++, player);
+            edgeCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param playerUuid UUID игрока.
+     * @return Все IP, с которых заходил игрок.
+     */
+    public List<String> getIps(UUID playerUuid) {
+        lock.readLock().lock();
+        try {
+            Integer player = playerIds.get(playerUuid);
+            if (player == null) {
+                return List.of();
+            }
+            List<String> result = new ArrayList<>(playerDegree[player]);
+            for (int i = 0; i < playerDegree[player]; i++) {
+                result.add(ips[playerEdges[player][i]]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет аккаунты, связанные с игроком общими IP.
+     * Уровень 1 - аккаунты, заходившие с тех же IP, что и игрок; каждый следующий уровень -
+     * аккаунты, делящие IP с найденными на предыдущем.
+     * @param playerUuid UUID игрока.
+     * @param maxDepth Максимальный уровень связи.
+     * @param limit Максимальное количество найденных аккаунтов.
+     * @return Найденные аккаунты в порядке обхода (сначала ближайшие), без самого игрока.
+     */
+    public List<AltAccount> findAlts(UUID playerUuid, int maxDepth, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer player = playerIds.get(playerUuid);
+            if (player == null) {
+                return List.of();
+            }
+            BitSet visitedPlayers = new BitSet(playerCount);
+            visitedPlayers.set(player);
+            return walk(new int[]{player}, 1, maxDepth, limit, visitedPlayers, new BitSet(ipCount), new ArrayList<>());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет аккаунты, заходившие с IP (уровень 1), и связанные с ними общими IP (следующие уровни).
+     * @param normalizedIp Нормализованный IP-адрес.
+     * @param maxDepth Максимальный уровень связи.
+     * @param limit Максимальное количество найденных аккаунтов.
+     * @return Найденные аккаунты в порядке обхода (сначала ближайшие).
+     */
+    public List<AltAccount> findAccounts(String normalizedIp, int maxDepth, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer ip = ipIds.get(normalizedIp);
+            if (ip == null || maxDepth < 1 || limit < 1) {
+                return List.of();
+            }
+            BitSet visitedPlayers = new BitSet(playerCount);
+            BitSet visitedIps = new BitSet(ipCount);
+            visitedIps.set(ip);
+            List<AltAccount> result = new ArrayList<>();
+            int[] frontier = new int[ipDegree[ip]];
+            for (int i = 0; i < ipDegree[ip]; i++) {
+                int player = ipEdges[ip][i];
+                visitedPlayers.set(player);
+                frontier[i] = player;
+                result.add(new AltAccount(players[player], 1, normalizedIp));
+                if (result.size() >= limit) {
+                    return result;
+                }
+            }
+            return walk(frontier, 2, maxDepth, limit, visitedPlayers, visitedIps, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Обход в ширину от аккаунтов frontier; вызывается под блокировкой чтения
+    private List<AltAccount> walk(int[] frontier, int depth, int maxDepth, int limit,
+                                  BitSet visitedPlayers, BitSet visitedIps, List<AltAccount> result) {
+        int frontierSize = frontier.length;
+        while (depth <= maxDepth && frontierSize > 0 && result.size() < limit) {
+            int[] next = new int[INITIAL_CAPACITY];
+            int nextSize = 0;
+            for (int f = 0; f < frontierSize; f++) {
+                int player = frontier[f];
+                for (int e = 0; e < playerDegree[player]; e++) {
+                    int ip = playerEdges[player][e];
+                    if (visitedIps.get(ip)) {
+                        continue;
+                    }
+                    visitedIps.set(ip);
+                    for (int a = 0; a < ipDegree[ip]; a++) {
+                        int alt = ipEdges[ip][a];
+                        if (visitedPlayers.get(alt)) {
+                            continue;
+                        }
+                        visitedPlayers.set(alt);
+                        result.add(new AltAccount(players[alt], depth, ips[ip]));
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                        next = append(next, nextSize++, alt);
+                    }
+                }
+            }
+            frontier = next;
+            frontierSize = nextSize;
+            depth++;
+        }
+        return result;
+    }
+
+    private boolean hasEdge(UUID playerUuid, String normalizedIp) {
+        Integer player = playerIds.get(playerUuid);
+        Integer ip = ipIds.get(normalizedIp);
+        if (player == null || ip == null) {
+            return false;
+        }
+        // Список аккаунта обычно короче списка IP (за общим NAT могут быть тысячи аккаунтов)
+        int[] edges = playerEdges[player];
+        for (int i = 0; i < playerDegree[player]; i++) {
+            if (edges[i] == ip) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int playerId(UUID playerUuid) {
+        Integer existing = playerIds.get(playerUuid);
+        if (existing != null) {
+            return existing;
+        }
+        if (playerCount == players.length) {
+            int capacity = players.length * 2;
+            players = Arrays.copyOf(players, capacity);
+            playerEdges = Arrays.copyOf(playerEdges, capacity);
+            playerDegree = Arrays.copyOf(playerDegree, capacity);
+        }
+        players[playerCount] = playerUuid;
+        playerIds.put(playerUuid, playerCount);
+        return playerCount++;
+    }
+
+    private int ipId(String normalizedIp) {
+        Integer existing = ipIds.get(normalizedIp);
+        if (existing != null) {
+            return existing;
+        }
+        if (ipCount == ips.length) {
+            int capacity = ips.length * 2;
+            ips = Arrays.copyOf(ips, capacity);
+            ipEdges = Arrays.copyOf(ipEdges, capacity);
+            ipDegree = Arrays.copyOf(ipDegree, capacity);
+        }
+        ips[ipCount] = normalizedIp;
+        ipIds.put(normalizedIp, ipCount);
+        return ipCount++;
+    }
+
+    private static int[] append(int[] array, int size, int value) {
+        if (array == null) {
+            array = new int[2];
+        } else if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+}
@@ -0,0 +1,119 @@
+package org.teverus.adventoraBans.commands;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.cache.ActivePunishmentIndex;
+import org.teverus.adventoraBans.cache.AltAccount;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.PlayerUtil;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * /alts <игрок|IP> [глубина] - аккаунты, связанные с игроком или IP общими IP-адресами из истории входов.
+ */
+public class AltsCommand extends BaseCommand {
+
+    public AltsCommand(AdventoraBans plugin) {
+        super(plugin, "adventorabans.command.alts", false);
+    }
+
+    @Override
+    protected void execute(CommandSender sender, String[] args) {
+        if (args.length < 1) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("alts_usage"));
+            return;
+        }
+
+        final String identifier = args[0];
+        final int maxAllowedDepth = plugin.getConfigManager().getAltsMaxDepth();
+        int requestedDepth = plugin.getConfigManager().getAltsDefaultDepth();
+        if (args.length >= 2) {
+            try {
+                requestedDepth = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                requestedDepth = -1;
+            }
+            if (requestedDepth < 1 || requestedDepth > maxAllowedDepth) {
+                sender.sendMessage(plugin.getMessageManager().getMessage("alts_invalid_depth", Map.of("max_depth", String.valueOf(maxAllowedDepth))));
+                return;
+            }
+        }
+        final int depth = Math.min(requestedDepth, maxAllowedDepth);
+        final int limit = plugin.getConfigManager().getAltsMaxResults();
+
+        if (IPUtils.isValidIpAddress(identifier)) {
+            final String normalizedIp = IPUtils.normalizeIpAddress(identifier);
+            plugin.getDatabaseManager().getAccountsByIp(normalizedIp, depth, limit)
+                    .thenCompose(accounts -> resolveAndSendAccounts(sender, normalizedIp, accounts, limit))
+                    .exceptionally(ex -> {
+                        sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
+                        plugin.getLogger().log(Level.SEVERE, "Ошибка при поиске аккаунтов для IP " + normalizedIp + ": " + ex.getMessage(), ex);
+                        return null;
+                    });
+            return;
+        }
+
+        PlayerUtil.getOfflinePlayerAsync(identifier)
+                .thenCompose(playerOptional -> {
+                    if (playerOptional.isEmpty()) {
+                        sender.sendMessage(plugin.getMessageManager().getMessage("player_not_found", Map.of("player", identifier)));
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    final OfflinePlayer player = playerOptional.get();
+                    final String playerName = (player.getName() != null && !player.getName().isEmpty()) ? player.getName() : identifier;
+                    return plugin.getDatabaseManager().getAltAccounts(player.getUniqueId(), depth, limit)
+                            .thenCompose(accounts -> resolveAndSendAccounts(sender, playerName, accounts, limit));
+                })
+                .exceptionally(ex -> {
+                    sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
+                    plugin.getLogger().log(Level.SEVERE, "Ошибка при поиске мультиаккаунтов для " + identifier + ": " + ex.getMessage(), ex);
+                    return null;
+                });
+    }
+
+    /**
+     * Получает имена аккаунтов в пуле поиска игроков и отправляет список.
+     * Граф аккаунтов в памяти отвечает сразу, в потоке команды, поэтому имена нельзя искать здесь синхронно:
+     * поиск неизвестного игрока блокирует поток (usercache.json, Mojang API).
+     */
+    private CompletableFuture<Void> resolveAndSendAccounts(CommandSender sender, String targetIdentifier, List<AltAccount> accounts, int limit) {
+        List<UUID> uuids = accounts.stream().map(AltAccount::getPlayerUuid).toList();
+        return PlayerUtil.getPlayerNamesAsync(uuids)
+                .thenAccept(names -> sendAccounts(sender, targetIdentifier, accounts, names, limit));
+    }
+
+    private void sendAccounts(CommandSender sender, String targetIdentifier, List<AltAccount> accounts, Map<UUID, String> names, int limit) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("target_identifier", targetIdentifier);
+        placeholders.put("count", String.valueOf(accounts.size()));
+
+        if (accounts.isEmpty()) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("alts_none", placeholders));
+            return;
+        }
+
+        sender.sendMessage(plugin.getMessageManager().getMessage("alts_header", placeholders));
+        ActivePunishmentIndex banIndex = plugin.getDatabaseManager().getActivePunishmentIndex();
+        for (AltAccount account : accounts) {
+            String name = names.get(account.getPlayerUuid());
+            boolean banned = banIndex.isLoaded() && banIndex.findBan(account.getPlayerUuid()).isPresent();
+
+            Map<String, String> entryPlaceholders = new HashMap<>();
+            entryPlaceholders.put("player_name", name != null ? name : account.getPlayerUuid().toString());
+            entryPlaceholders.put("depth", String.valueOf(account.getDepth()));
+            entryPlaceholders.put("ip", account.getSharedIp());
+            entryPlaceholders.put("status", banned ? plugin.getMessageManager().getMessage("alts_status_banned") : "");
+            sender.sendMessage(plugin.getMessageManager().getMessage("alts_entry", entryPlaceholders));
+        }
+        if (accounts.size() >= limit) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("alts_limit_reached", Map.of("limit", String.valueOf(limit))));
+        }
+    }
+}
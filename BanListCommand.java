@@ -3,21 +3,32 @@ package org.teverus.adventoraBans.commands;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.teverus.adventoraBans.AdventoraBans;
 import org.teverus.adventoraBans.punishments.BanRecord;
 import org.teverus.adventoraBans.punishments.PunishmentType;
 import org.teverus.adventoraBans.util.TimeUtil;
 
 import java.util.Arrays; // Добавлен импорт
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 
-public class BanListCommand implements CommandExecutor {
+public class BanListCommand implements CommandExecutor, Listener {
 
     private final AdventoraBans plugin;
     private final int RECORDS_PER_PAGE = 10; // Количество записей на одной странице
+    // Курсоры страниц для каждого отправителя (null - консоль), чтобы не перечитывать весь список банов.
+    // Только в основном потоке; курсоры игрока удаляются при выходе, первая страница начинает список заново
+    private final Map<UUID, PageCursorCache> senderCursors = new HashMap<>();
 
     public BanListCommand(AdventoraBans plugin) {
         this.plugin = plugin;
@@ -51,26 +62,36 @@ public class BanListCommand implements CommandExecutor {
                 PunishmentType.BAN,
                 PunishmentType.TEMPBAN,
                 PunishmentType.IP_BAN,
-                PunishmentType.IPTEMPBAN
+                PunishmentType.TEMP_IP_BAN // Этот тип записывают /ipban и /iptempban
         );
 
-        // Асинхронный запрос к базе данных
-        CompletableFuture<List<BanRecord>> futureBans = plugin.getDatabaseManager().getActivePunishments(banTypes);
+        UUID senderUuid = (sender instanceof Player) ? ((Player) sender).getUniqueId() : null;
+        PageCursorCache pageCursors;
+        if (currentPage == 0) {
+            // Список банов меняется, а курсоры запоминают границы страниц на момент просмотра
+            pageCursors = new PageCursorCache();
+            senderCursors.put(senderUuid, pageCursors);
+        } else {
+            pageCursors = senderCursors.computeIfAbsent(senderUuid, k -> new PageCursorCache());
+        }
+        pageCursors.useList("banlist");
+
+        // Асинхронный запрос к базе данных: сначала количество, затем только нужная страница по курсору
+        CompletableFuture<Integer> futureCount = plugin.getDatabaseManager().getActivePunishmentsCount(banTypes);
 
-        futureBans.whenComplete((activeBans, throwable) -> {
+        futureCount.whenComplete((totalRecords, throwable) -> {
             if (throwable != null) {
                 plugin.getLogger().log(Level.SEVERE, "Ошибка при получении активных банов для /banlist: ", throwable);
                 sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
                 return;
             }
 
-            if (activeBans == null || activeBans.isEmpty()) {
+            if (totalRecords == 0) {
                 sender.sendMessage(plugin.getMessageManager().getMessage("banlist_no_active_bans"));
                 return;
             }
 
             // Вычисляем общее количество страниц
-            int totalRecords = activeBans.size();
             int totalPages = (int) Math.ceil((double) totalRecords / RECORDS_PER_PAGE);
 
             if (currentPage >= totalPages) {
@@ -79,40 +100,52 @@ public class BanListCommand implements CommandExecutor {
                 return;
             }
 
-            sender.sendMessage(plugin.getMessageManager().getMessage("banlist_header")
-                    .replace("%page%", String.valueOf(currentPage + 1))
-                    .replace("%total_pages%", String.valueOf(totalPages)));
-
-            // Пагинация: получаем подсписок для текущей страницы
-            int startIndex = currentPage * RECORDS_PER_PAGE;
-            int endIndex = Math.min(startIndex + RECORDS_PER_PAGE, totalRecords);
-
-            List<BanRecord> bansForPage = activeBans.subList(startIndex, endIndex);
-
-            for (BanRecord ban : bansForPage) {
-                String remainingTime = TimeUtil.getRemainingDuration(ban.getExpireTime());
-                String banTime = TimeUtil.formatTime(ban.getBanTime());
+            pageCursors.fetchPage(currentPage + 1, RECORDS_PER_PAGE,
+                            (after, skip, limit) -> plugin.getDatabaseManager().getActivePunishmentsPage(banTypes, after, skip, limit))
+                    .whenComplete((bansForPage, pageThrowable) -> {
+                        if (pageThrowable != null) {
+                            plugin.getLogger().log(Level.SEVERE, "Ошибка при получении активных банов для /banlist: ", pageThrowable);
+                            sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
+                            return;
+                        }
+                        sendPage(sender, bansForPage.getRecords(), currentPage, totalPages);
+                    });
+        });
 
-                String targetIdentifier;
-                // Определяем, что выводить: никнейм или IP-адрес
-                if (ban.getPunishmentType() == PunishmentType.IP_BAN || ban.getPunishmentType() == PunishmentType.IPTEMPBAN) {
-                    targetIdentifier = ban.getPunishedIp();
-                } else {
-                    targetIdentifier = ban.getPunishedName();
-                }
+        return true;
+    }
 
-                String entryMessage = plugin.getMessageManager().getMessage("banlist_entry")
-                        .replace("%target_identifier%", targetIdentifier) // Использовать новый плейсхолдер
-                        .replace("%type%", ban.getPunishmentType().name()) // Добавить тип наказания
-                        .replace("%moderator_name%", ban.getModeratorName())
-                        .replace("%reason%", ban.getReason())
-                        .replace("%ban_time%", banTime)
-                        .replace("%duration%", remainingTime); // Здесь %duration% - это оставшееся время
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        senderCursors.remove(event.getPlayer().getUniqueId());
+    }
 
-                sender.sendMessage(entryMessage);
+    private void sendPage(CommandSender sender, List<BanRecord> bansForPage, int currentPage, int totalPages) {
+        sender.sendMessage(plugin.getMessageManager().getMessage("banlist_header")
+                .replace("%page%", String.valueOf(currentPage + 1))
+                .replace("%total_pages%", String.valueOf(totalPages)));
+
+        for (BanRecord ban : bansForPage) {
+            String remainingTime = TimeUtil.getRemainingDuration(ban.getExpireTime());
+            String banTime = TimeUtil.formatTime(ban.getBanTime());
+
+            String targetIdentifier;
+            // Определяем, что выводить: никнейм или IP-адрес
+            if (ban.getPunishmentType().isSameCategory(PunishmentType.IP_BAN)) {
+                targetIdentifier = ban.getPunishedIp();
+            } else {
+                targetIdentifier = ban.getPunishedName();
             }
-        });
 
-        return true;
+            String entryMessage = plugin.getMessageManager().getMessage("banlist_entry")
+                    .replace("%target_identifier%", targetIdentifier) // Использовать новый плейсхолдер
+                    .replace("%type%", ban.getPunishmentType().name()) // Добавить тип наказания
+                    .replace("%moderator_name%", ban.getModeratorName())
+                    .replace("%reason%", ban.getReason())
+                    .replace("%ban_time%", banTime)
+                    .replace("%duration%", remainingTime); // Здесь %duration% - это оставшееся время
+
+            sender.sendMessage(entryMessage);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package org.teverus.adventoraBans.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Исполнитель, запускающий каждую задачу в отдельном виртуальном потоке (Java 21),
+ * но выполняющий одновременно не больше заданного числа задач.
+ * Остальные задачи ждут разрешения в виртуальных потоках, которые ничего не стоят в ожидании,
+ * в порядке поступления (справедливый семафор), - так блокирующие JDBC-вызовы не выстраиваются
+ * в очередь за фиксированным числом потоков и не создают сотни потоков платформы.
+ */
+public class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    /**
+     * @param threadNamePrefix Префикс имен потоков (к нему добавляется номер).
+     * @param maxConcurrency Максимальное число одновременно выполняемых задач.
+     */
+    public BoundedVirtualThreadExecutor(String threadNamePrefix, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency должно быть положительным: " + maxConcurrency);
+        }
+        this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return Максимальное число одновременно выполняемых задач.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return Количество задач, ожидающих разрешения на выполнение (оценка).
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                // shutdownNow: задача, не успевшая начаться, отбрасывается, как из очереди обычного пула
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
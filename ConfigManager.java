@@ -70,6 +70,14 @@ public class ConfigManager {
         return config.getBoolean("database.mysql.use_ssl", false);
     }
 
+    public boolean isMySQLServerPreparedStatements() {
+        return config.getBoolean("database.mysql.server_prepared_statements", true);
+    }
+
+    public boolean isMySQLCursorFetch() {
+        return config.getBoolean("database.mysql.cursor_fetch", true);
+    }
+
     // HikariCP Settings
     public int getMySQLPoolMaximumSize() {
         return config.getInt("database.mysql.pool.maximum_pool_size", 10);
@@ -91,6 +99,72 @@ public class ConfigManager {
         return config.getLong("database.mysql.pool.max_lifetime", 1800000);
     }
 
+    // SQLite Settings
+    public int getSQLiteReadPoolSize() {
+        return config.getInt("database.sqlite.read_pool_size", 4);
+    }
+
+    public String getSQLiteJournalMode() {
+        return config.getString("database.sqlite.journal_mode", "WAL");
+    }
+
+    public String getSQLiteSynchronous() {
+        return config.getString("database.sqlite.synchronous", "NORMAL");
+    }
+
+    public int getSQLiteCacheSize() {
+        return config.getInt("database.sqlite.cache_size", -16000);
+    }
+
+    public long getSQLiteMmapSize() {
+        return config.getLong("database.sqlite.mmap_size", 134217728);
+    }
+
+    public int getSQLiteBusyTimeout() {
+        return config.getInt("database.sqlite.busy_timeout", 5000);
+    }
+
+    // Database executor
+    public String getDatabaseExecutorMode() {
+        return config.getString("database.executor.mode", "FIXED");
+    }
+
+    public int getDatabaseLaneConcurrency(String lane) {
+        return config.getInt("database.executor.lanes." + lane, 0);
+    }
+
+    // Streamed reads
+    public int getDatabaseStreamFetchSize() {
+        return config.getInt("database.stream_fetch_size", 500);
+    }
+
+    // Export/import
+    public int getTransferChunkRows() {
+        return config.getInt("database.transfer.chunk_rows", 20000);
+    }
+
+    // Batched writes; database.transfer.batch_size is the former name of the same setting (imports only)
+    public int getDatabaseBatchSize() {
+        return config.getInt("database.batch_size", config.getInt("database.transfer.batch_size", 1000));
+    }
+
+    public long getGroupCommitWindowMillis() {
+        return config.getLong("database.group_commit.window_ms", 5);
+    }
+
+    public int getGroupCommitMaxBatchSize() {
+        return config.getInt("database.group_commit.max_batch_size", 100);
+    }
+
+    // Player IP write buffer
+    public long getPlayerIpFlushIntervalMillis() {
+        return config.getLong("database.player_ip_buffer.flush_interval_ms", 2000);
+    }
+
+    public int getPlayerIpFlushBatchSize() {
+        return config.getInt("database.player_ip_buffer.batch_size", 200);
+    }
+
     // General Settings
     public boolean shouldBroadcastPunishments() {
         return config.getBoolean("settings.broadcast_punishments", true);
@@ -104,6 +178,62 @@ public class ConfigManager {
         return config.getInt("settings.cleanup_interval_minutes", 60);
     }
 
+    public int getCounterReconcileIntervalMinutes() {
+        return config.getInt("settings.counter_reconcile_interval_minutes", 10);
+    }
+
+    // Alt accounts
+    public boolean isAltGraphCacheEnabled() {
+        return config.getBoolean("alts.cache_enabled", true);
+    }
+
+    public int getAltsDefaultDepth() {
+        return config.getInt("alts.default_depth", 1);
+    }
+
+    public int getAltsMaxDepth() {
+        return config.getInt("alts.max_depth", 3);
+    }
+
+    public int getAltsMaxResults() {
+        return config.getInt("alts.max_results", 50);
+    }
+
+    // Punished UUID/IP filter
+    public boolean isPunishedFilterEnabled() {
+        return config.getBoolean("punished_filter.enabled", true);
+    }
+
+    public double getPunishedFilterFalsePositiveRate() {
+        double rate = config.getDouble("punished_filter.false_positive_rate", 0.01);
+        return rate > 0 && rate < 1 ? rate : 0.01;
+    }
+
+    public int getPunishedFilterRebuildIntervalMinutes() {
+        return config.getInt("punished_filter.rebuild_interval_minutes", 30);
+    }
+
+    // Multi-server sync
+    public boolean isSyncEnabled() {
+        return config.getBoolean("sync.enabled", false);
+    }
+
+    public String getSyncServerId() {
+        return config.getString("sync.server_id", "");
+    }
+
+    public long getSyncPollIntervalMillis() {
+        return config.getLong("sync.poll_interval_ms", 1000);
+    }
+
+    public int getSyncBatchSize() {
+        return config.getInt("sync.batch_size", 500);
+    }
+
+    public int getSyncEventRetentionHours() {
+        return config.getInt("sync.event_retention_hours", 24);
+    }
+
     public FileConfiguration getMessagesConfig() {
         if (messagesConfig == null) {
             messagesFile = new File(plugin.getDataFolder(), "messages.yml");
@@ -0,0 +1,58 @@
+package org.teverus.adventoraBans.database;
+
+/**
+ * Итог выгрузки или загрузки данных ({@link DatabaseManager#exportData}, {@link DatabaseManager#importData}).
+ */
+public class DataTransferResult {
+
+    /**
+     * Получатель хода выгрузки или загрузки. Вызывается в потоке БД после каждой порции записей.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * @param rows Обработано записей.
+         * @param totalRows Всего записей (по заголовку файла или подсчету перед выгрузкой).
+         */
+        void onProgress(long rows, long totalRows);
+    }
+
+    private final long punishments;
+    private final long playerIps;
+    private final long elapsedMillis;
+    private final long fileBytes;
+
+    public DataTransferResult(long punishments, long playerIps, long elapsedMillis, long fileBytes) {
+        this.punishments = punishments;
+        this.playerIps = playerIps;
+        this.elapsedMillis = elapsedMillis;
+        this.fileBytes = fileBytes;
+    }
+
+    public long getPunishments() {
+        return punishments;
+    }
+
+    public long getPlayerIps() {
+        return playerIps;
+    }
+
+    public long getRows() {
+        return punishments + playerIps;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * @return Записей в секунду.
+     */
+    public double getRowsPerSecond() {
+        return getRows() * 1000.0 / Math.max(1, elapsedMillis);
+    }
+}
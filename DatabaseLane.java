@@ -0,0 +1,33 @@
+package org.teverus.adventoraBans.database;
+
+/**
+ * Очередь (полоса) пула запросов к БД. У каждой полосы свой предел одновременных запросов,
+ * поэтому тяжелые запросы модераторов и обслуживание не занимают соединения, нужные для входа игроков.
+ */
+public enum DatabaseLane {
+    /**
+     * Проверки при входе и в чате: ограничены таймаутом входа, выполняются первыми.
+     */
+    LOGIN("login"),
+    /**
+     * Команды модераторов: выдача и снятие наказаний, история, поиск мультиаккаунтов.
+     */
+    MODERATION("moderation"),
+    /**
+     * Фоновое обслуживание: очистка истекших наказаний, сверка счетчиков, запись имен игроков.
+     */
+    BACKGROUND("background");
+
+    private final String configKey;
+
+    DatabaseLane(String configKey) {
+        this.configKey = configKey;
+    }
+
+    /**
+     * @return Имя полосы в config.yml (database.executor.lanes.&lt;имя&gt;).
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+}
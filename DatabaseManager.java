@@ -1,13 +1,20 @@
 package org.teverus.adventoraBans.database;
 
+import org.teverus.adventoraBans.cache.ActivePunishmentIndex;
+import org.teverus.adventoraBans.cache.AltAccount;
+import org.teverus.adventoraBans.cache.MuteCache;
+import org.teverus.adventoraBans.cache.PunishedKeyFilter;
 import org.teverus.adventoraBans.punishments.BanRecord;
 import org.teverus.adventoraBans.punishments.PunishmentType;
 
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture; // Для асинхронности
+import java.util.function.Consumer;
 
 /**
  * Интерфейс для взаимодействия с базой данных для управления наказаниями.
@@ -31,13 +38,57 @@ public interface DatabaseManager {
      */
     boolean isConnected();
 
+    /**
+     * Возвращает исполнитель полосы пула запросов к БД (для метрик очереди).
+     * @param lane Полоса.
+     * @return Исполнитель полосы.
+     */
+    LaneExecutor getLaneExecutor(DatabaseLane lane);
+
+    /**
+     * Возвращает резидентный индекс активных банов (по UUID и IP).
+     * Индекс загружается при подключении и обновляется при добавлении/деактивации наказаний.
+     * @return Индекс активных банов.
+     */
+    ActivePunishmentIndex getActivePunishmentIndex();
+
+    /**
+     * Возвращает кэш мутов игроков, находящихся на сервере.
+     * Кэш обновляется при добавлении/деактивации мутов через этот менеджер.
+     * @return Кэш мутов.
+     */
+    MuteCache getMuteCache();
+
+    /**
+     * Возвращает фильтр Блума по UUID и IP с активными наказаниями: отвечает "точно не наказан" без обращения к БД.
+     * @return Фильтр наказанных UUID и IP.
+     */
+    PunishedKeyFilter getPunishedKeyFilter();
+
+    /**
+     * Отражают ли индекс банов, кэш мутов и фильтр наказанных изменения, сделанные другими серверами.
+     * Так бывает, если БД использует только этот сервер (SQLite) или включена синхронизация (sync.enabled).
+     * Иначе проверки входа и мутов должны идти в БД: бан, выданный на другом сервере, в памяти не появится.
+     * @return true, если решения о входе и муте можно принимать по данным в памяти.
+     */
+    boolean isLocalStateAuthoritative();
+
     /**
      * Асинхронно добавляет новую запись о наказании в базу данных.
-     * @param record Запись о наказании.
+     * Вызовы, пришедшие почти одновременно (database.group_commit), записываются одной транзакцией.
+     * @param record Запись о наказании; после завершения содержит ID из БД.
      * @return CompletableFuture, который завершается, когда запись добавлена, или с ошибкой.
      */
     CompletableFuture<Void> addPunishment(BanRecord record);
 
+    /**
+     * Асинхронно добавляет несколько наказаний одной транзакцией пакетными INSERT (массовые баны, IP-баны по списку).
+     * При ошибке не добавляется ни одно наказание.
+     * @param records Записи о наказаниях; после завершения содержат ID из БД.
+     * @return CompletableFuture со списком ID в порядке записей.
+     */
+    CompletableFuture<List<Integer>> addPunishments(Collection<BanRecord> records);
+
     /**
      * Асинхронно деактивирует наказание по его ID.
      * Используется для снятия банов/мутов или деактивации истекших.
@@ -46,6 +97,13 @@ public interface DatabaseManager {
      */
     CompletableFuture<Void> deactivatePunishment(int punishmentId);
 
+    /**
+     * Асинхронно деактивирует несколько наказаний по ID одной транзакцией пакетными UPDATE.
+     * @param punishmentIds ID записей о наказаниях.
+     * @return CompletableFuture с количеством деактивированных наказаний (уже неактивные не учитываются).
+     */
+    CompletableFuture<Integer> deactivatePunishments(Collection<Integer> punishmentIds);
+
     /**
      * Асинхронно деактивирует все активные наказания определенного типа для игрока по UUID.
      * @param playerUuid UUID игрока.
@@ -77,6 +135,21 @@ public interface DatabaseManager {
      */
     CompletableFuture<Optional<BanRecord>> getActivePunishment(String ipAddress, PunishmentType type);
 
+    /**
+     * Проверяет при входе все баны игрока одним запросом к БД: бан по UUID, IP-бан адреса и диапазонный IP-бан.
+     * @param playerUuid UUID игрока.
+     * @param ipAddress IP-адрес игрока.
+     * @return CompletableFuture с банами в порядке приоритета: по UUID, затем по точному IP, затем по самому узкому диапазону.
+     */
+    CompletableFuture<Optional<BanRecord>> checkLoginBan(UUID playerUuid, String ipAddress);
+
+    /**
+     * Получает действующий диапазонный (CIDR) IP-бан, в который входит адрес.
+     * @param ipAddress IP-адрес игрока.
+     * @return CompletableFuture, содержащий Optional<BanRecord> с баном самого узкого подходящего диапазона, если найден.
+     */
+    CompletableFuture<Optional<BanRecord>> getActiveIpRangeBan(String ipAddress);
+
     /**
      * Асинхронно получает всю историю наказаний для игрока по UUID.
      * @param playerUuid UUID игрока.
@@ -91,6 +164,23 @@ public interface DatabaseManager {
      */
     CompletableFuture<List<BanRecord>> getPunishmentHistory(String ipAddress);
 
+    /**
+     * Потоковый вариант {@link #getPunishmentHistory(UUID)}: записи передаются потребителю по мере чтения, без списка в памяти.
+     * Потребитель вызывается в потоке БД, пока занято соединение, и не должен блокироваться.
+     * @param playerUuid UUID игрока.
+     * @param consumer Получатель записей (новые первыми).
+     * @return CompletableFuture с числом переданных записей.
+     */
+    CompletableFuture<Long> streamPunishmentHistory(UUID playerUuid, Consumer<BanRecord> consumer);
+
+    /**
+     * Потоковый вариант {@link #getPunishmentHistory(String)}.
+     * @param ipAddress IP-адрес.
+     * @param consumer Получатель записей (новые первыми).
+     * @return CompletableFuture с числом переданных записей.
+     */
+    CompletableFuture<Long> streamPunishmentHistory(String ipAddress, Consumer<BanRecord> consumer);
+
     /**
      * Асинхронно сохраняет/обновляет последний известный IP-адрес игрока.
      * @param playerUuid UUID игрока.
@@ -113,12 +203,45 @@ public interface DatabaseManager {
      */
     CompletableFuture<Optional<UUID>> getLastKnownUuid(String ipAddress);
 
+    /**
+     * Асинхронно получает все IP-адреса, с которых заходил игрок (таблица player_ip_history).
+     * @param playerUuid UUID игрока.
+     * @return CompletableFuture со списком нормализованных IP-адресов.
+     */
+    CompletableFuture<List<String>> getKnownIps(UUID playerUuid);
+
+    /**
+     * Асинхронно ищет аккаунты, связанные с игроком общими IP-адресами (мультиаккаунты).
+     * @param playerUuid UUID игрока.
+     * @param maxDepth Максимальный уровень связи (1 - общий IP с игроком, 2 - общий IP с найденными на уровне 1 и т.д.).
+     * @param limit Максимальное количество аккаунтов в результате.
+     * @return CompletableFuture со списком найденных аккаунтов (сначала ближайшие).
+     */
+    CompletableFuture<List<AltAccount>> getAltAccounts(UUID playerUuid, int maxDepth, int limit);
+
+    /**
+     * Асинхронно ищет аккаунты, заходившие с IP-адреса (уровень 1), и связанные с ними общими IP.
+     * @param ipAddress IP-адрес.
+     * @param maxDepth Максимальный уровень связи.
+     * @param limit Максимальное количество аккаунтов в результате.
+     * @return CompletableFuture со списком найденных аккаунтов (сначала ближайшие).
+     */
+    CompletableFuture<List<AltAccount>> getAccountsByIp(String ipAddress, int maxDepth, int limit);
+
     /**
      * Асинхронно получает все активные наказания (для очистки по таймеру).
      * @return CompletableFuture, содержащий список всех активных наказаний.
      */
     CompletableFuture<List<BanRecord>> getAllActivePunishments();
 
+    /**
+     * Асинхронно деактивирует все истекшие временные наказания на стороне БД
+     * (пакетами UPDATE по диапазону expire_time) и снимает их из кэшей менеджера.
+     * @param now Текущее время (мс); истекшими считаются наказания с 0 < expire_time <= now.
+     * @return CompletableFuture со списком ID деактивированных наказаний.
+     */
+    CompletableFuture<List<Integer>> deactivateExpiredPunishments(long now);
+
     /**
      * Асинхронно обновляет имя игрока, связанное с UUID, в базе данных.
      * Используется для обеспечения актуальности ников в записях.
@@ -157,6 +280,7 @@ public interface DatabaseManager {
 
     /**
      * Асинхронно получает общее количество наказаний в базе данных.
+     * Значение берется из счетчика в памяти, если он загружен.
      * @return CompletableFuture, содержащий общее количество наказаний.
      */
     CompletableFuture<Integer> getTotalPunishmentsCount();
@@ -175,4 +299,111 @@ public interface DatabaseManager {
      * @return CompletableFuture, содержащий список активных BanRecord.
      */
     CompletableFuture<List<BanRecord>> getActivePunishments(List<PunishmentType> types);
+
+    /**
+     * Потоковый вариант {@link #getActivePunishments(List)}.
+     * @param types Список типов наказаний.
+     * @param consumer Получатель записей (новые первыми).
+     * @return CompletableFuture с числом переданных записей.
+     */
+    CompletableFuture<Long> streamActivePunishments(List<PunishmentType> types, Consumer<BanRecord> consumer);
+
+    /**
+     * Асинхронно получает страницу всех наказаний (новые вверху) по курсору.
+     * @param after Курсор конца предыдущей страницы или null для первой страницы.
+     * @param skip Сколько записей после курсора пропустить (переход на дальнюю страницу), обычно 0.
+     * @param limit Размер страницы.
+     * @return CompletableFuture со страницей наказаний.
+     */
+    CompletableFuture<PunishmentPage> getPunishmentsPage(PunishmentCursor after, int skip, int limit);
+
+    /**
+     * Асинхронно получает страницу наказаний игрока (новые вверху) по курсору.
+     * @param uuid UUID игрока.
+     * @param after Курсор конца предыдущей страницы или null для первой страницы.
+     * @param skip Сколько записей после курсора пропустить (переход на дальнюю страницу), обычно 0.
+     * @param limit Размер страницы.
+     * @return CompletableFuture со страницей наказаний.
+     */
+    CompletableFuture<PunishmentPage> getPunishmentsPageByPlayerUuid(UUID uuid, PunishmentCursor after, int skip, int limit);
+
+    /**
+     * Асинхронно получает страницу наказаний по IP-адресу (новые вверху) по курсору.
+     * @param ipAddress IP-адрес.
+     * @param after Курсор конца предыдущей страницы или null для первой страницы.
+     * @param skip Сколько записей после курсора пропустить (переход на дальнюю страницу), обычно 0.
+     * @param limit Размер страницы.
+     * @return CompletableFuture со страницей наказаний.
+     */
+    CompletableFuture<PunishmentPage> getPunishmentsPageByIp(String ipAddress, PunishmentCursor after, int skip, int limit);
+
+    /**
+     * Асинхронно получает страницу активных наказаний указанных типов (новые вверху) по курсору.
+     * @param types Типы наказаний.
+     * @param after Курсор конца предыдущей страницы или null для первой страницы.
+     * @param skip Сколько записей после курсора пропустить (переход на дальнюю страницу), обычно 0.
+     * @param limit Размер страницы.
+     * @return CompletableFuture со страницей наказаний.
+     */
+    CompletableFuture<PunishmentPage> getActivePunishmentsPage(List<PunishmentType> types, PunishmentCursor after, int skip, int limit);
+
+    /**
+     * Асинхронно получает количество наказаний по IP-адресу.
+     * @param ipAddress IP-адрес.
+     * @return CompletableFuture, содержащий количество наказаний.
+     */
+    CompletableFuture<Integer> getPunishmentsCountByIp(String ipAddress);
+
+    /**
+     * Асинхронно получает количество активных наказаний указанных типов.
+     * @param types Типы наказаний.
+     * @return CompletableFuture, содержащий количество наказаний.
+     */
+    CompletableFuture<Integer> getActivePunishmentsCount(List<PunishmentType> types);
+
+    /**
+     * Асинхронно сверяет кэшированные счетчики наказаний (общий, по UUID и IP) с БД.
+     * Общий счетчик пересчитывается, счетчики по UUID/IP сбрасываются и пересчитываются при следующем запросе.
+     * @return CompletableFuture, который завершается после сверки.
+     */
+    CompletableFuture<Void> reconcileCounters();
+
+    /**
+     * Перестраивает фильтр наказанных UUID и IP из БД, убирая из него снятые и истекшие наказания.
+     * @return CompletableFuture, завершающийся после замены фильтра.
+     */
+    CompletableFuture<Void> rebuildPunishedKeyFilter();
+
+    /**
+     * Асинхронно читает новые события журнала изменений наказаний (punishment_events), записанные другими серверами,
+     * и применяет их к резидентным кэшам. Ничего не делает, если синхронизация выключена или предыдущий опрос еще не завершен.
+     * @return CompletableFuture со списком наказаний, выданных на других серверах и действующих сейчас (для кика онлайн-игроков).
+     */
+    CompletableFuture<List<BanRecord>> pollPunishmentEvents();
+
+    /**
+     * Асинхронно удаляет из журнала изменений наказаний события старше указанного времени.
+     * @param olderThan Время в миллисекундах.
+     * @return CompletableFuture с количеством удаленных событий.
+     */
+    CompletableFuture<Integer> prunePunishmentEvents(long olderThan);
+
+    /**
+     * Асинхронно выгружает таблицы punishments и player_ips в файл ({@link PunishmentArchive}) из одного снимка БД.
+     * Записи читаются потоково и пишутся в файл по одной; файл заменяется только после успешной выгрузки.
+     * @param file Файл выгрузки.
+     * @param progress Получатель хода выгрузки.
+     * @return CompletableFuture с итогом выгрузки.
+     */
+    CompletableFuture<DataTransferResult> exportData(Path file, DataTransferResult.Progress progress);
+
+    /**
+     * Асинхронно загружает в БД наказания и IP игроков из файла выгрузки.
+     * Наказания добавляются к существующим с новыми ID, IP игроков перезаписывают последний IP тех же игроков.
+     * Запись идет порциями (database.transfer.chunk_rows) в отдельных транзакциях пакетными INSERT, как в {@link #addPunishments}.
+     * @param file Файл выгрузки.
+     * @param progress Получатель хода загрузки.
+     * @return CompletableFuture с итогом загрузки.
+     */
+    CompletableFuture<DataTransferResult> importData(Path file, DataTransferResult.Progress progress);
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.AdventoraBans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+import java.util.logging.Level;
+
+/**
+ * Планировщик снятия временных наказаний точно в момент expire_time.
+ * Хранит все активные временные наказания в очереди с задержкой; выделенный поток забирает
+ * наступившие сроки небольшими пакетами и запускает очистку истекших наказаний до срока последнего из них.
+ *
+ * Отмена (ручное снятие наказания) ленивая: запись удаляется из карты запланированных,
+ * а оставшийся в очереди элемент отбрасывается при извлечении. Когда таких элементов становится больше,
+ * чем запланированных, очередь очищается от них за один проход, так что она не растет от снятых вручную наказаний.
+ */
+public class ExpiryScheduler {
+
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final long RETRY_DELAY_MILLIS = 5000;
+    private static final int MIN_PURGE_THRESHOLD = 1024; // Отмененных элементов в очереди, при которых очистка еще не нужна
+
+    private final AdventoraBans plugin;
+    private final LongFunction<CompletableFuture<List<Integer>>> sweeper;
+    private final DelayQueue<Expiry> queue = new DelayQueue<>();
+    private final ConcurrentHashMap<Integer, Expiry> scheduled = new ConcurrentHashMap<>();
+    private final AtomicInteger staleEntries = new AtomicInteger(); // Элементы очереди, замененные или отмененные с последней очистки
+    private volatile Thread worker;
+
+    /**
+     * @param plugin Экземпляр плагина.
+     * @param sweeper Деактивация всех наказаний с expire_time не позже переданного времени; возвращает ID деактивированных.
+     */
+    public ExpiryScheduler(AdventoraBans plugin, LongFunction<CompletableFuture<List<Integer>>> sweeper) {
+        this.plugin = plugin;
+        this.sweeper = sweeper;
+    }
+
+    /**
+     * Запускает поток планировщика. Повторный вызов ничего не делает.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(this::runLoop, "AdventoraBans-Expiry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Останавливает поток планировщика. Незавершенные сроки остаются в БД и будут загружены при следующем подключении.
+     */
+    public synchronized void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        queue.clear();
+        scheduled.clear();
+        staleEntries.set(0);
+    }
+
+    /**
+     * Планирует снятие наказания. Перманентные наказания (expire_time = 0) игнорируются.
+     * @param punishmentId ID наказания.
+     * @param expireTime Время истечения (мс).
+     */
+    public void schedule(int punishmentId, long expireTime) {
+        if (expireTime <= 0 || punishmentId <= 0) {
+            return;
+        }
+        Expiry expiry = new Expiry(punishmentId, expireTime);
+        Expiry previous = scheduled.put(punishmentId, expiry);
+        queue.put(expiry);
+        if (previous != null) {
+            onStaleEntry();
+        }
+    }
+
+    /**
+     * Отменяет запланированное снятие (наказание снято вручную или уже деактивировано).
+     * @param punishmentId ID наказания.
+     */
+    public void cancel(int punishmentId) {
+        if (scheduled.remove(punishmentId) != null) {
+            onStaleEntry();
+        }
+    }
+
+    /**
+     * Учитывает элемент очереди, больше не совпадающий с картой запланированных, и очищает очередь,
+     * когда таких элементов больше, чем запланированных (но не меньше {@link #MIN_PURGE_THRESHOLD}).
+     * Очистка проходит очередь целиком, поэтому ее стоимость распределяется на накопившиеся отмены.
+     */
+    private void onStaleEntry() {
+        if (staleEntries.incrementAndGet() <= Math.max(MIN_PURGE_THRESHOLD, scheduled.size())) {
+            return;
+        }
+        staleEntries.set(0);
+        queue.removeIf(expiry -> scheduled.get(expiry.punishmentId) != expiry);
+    }
+
+    /**
+     * @return Количество запланированных наказаний.
+     */
+    public int size() {
+        return scheduled.size();
+    }
+
+    private void runLoop() {
+        List<Expiry> due = new ArrayList<>();
+        while (worker == Thread.currentThread()) {
+            try {
+                due.add(queue.take());
+                queue.drainTo(due, MAX_BATCH_SIZE - 1);
+
+                long sweepUpTo = 0;
+                for (Expiry expiry : due) {
+                    if (scheduled.get(expiry.punishmentId) == expiry) {
+                        sweepUpTo = Math.max(sweepUpTo, expiry.expireTime);
+                    }
+                }
+                if (sweepUpTo > 0) {
+                    sweep(due, sweepUpTo);
+                }
+                due.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void sweep(List<Expiry> due, long sweepUpTo) throws InterruptedException {
+        try {
+            List<Integer> deactivated = sweeper.apply(sweepUpTo).get();
+            // Сюда же попадают наказания, снятые другим путем (например, другим сервером): они просто забываются
+            for (Expiry expiry : due) {
+                scheduled.remove(expiry.punishmentId, expiry);
+            }
+            if (plugin.getConfigManager().isDebugModeEnabled()) {
+                plugin.getLogger().info("DEBUG: Планировщик истечения снял наказаний: " + deactivated.size());
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                throw (InterruptedException) e;
+            }
+            plugin.getLogger().log(Level.SEVERE, "Ошибка при снятии истекших наказаний, повтор через " + (RETRY_DELAY_MILLIS / 1000) + " с: " + e.getMessage(), e);
+            long retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+            for (Expiry expiry : due) {
+                if (scheduled.get(expiry.punishmentId) == expiry) {
+                    Expiry retry = new Expiry(expiry.punishmentId, expiry.expireTime, retryAt);
+                    if (scheduled.replace(expiry.punishmentId, expiry, retry)) {
+                        queue.put(retry);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Expiry implements Delayed {
+        private final int punishmentId;
+        private final long expireTime;
+        private final long fireAt;
+
+        private Expiry(int punishmentId, long expireTime) {
+            this(punishmentId, expireTime, expireTime);
+        }
+
+        private Expiry(int punishmentId, long expireTime, long fireAt) {
+            this.punishmentId = punishmentId;
+            this.expireTime = expireTime;
+            this.fireAt = fireAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(fireAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(fireAt, ((Expiry) other).fireAt);
+        }
+    }
+}
@@ -1,92 +1,348 @@
 package org.teverus.adventoraBans.util;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class IPUtils {
 
-    // Паттерн для извлечения только IP-адреса (без порта) из строк вида "192.168.1.1:12345"
-    // Поддерживает как IPv4, так и IPv6, которые могут содержать двоеточия, но порт всегда идет после последнего двоеточия
-    // для IPv4 и после квадратных скобок для IPv6 ([::1]:12345)
-    private static final Pattern IP_PORT_PATTERN = Pattern.compile(
-            "^(.*):(\\d+)$" // Захватывает все до последнего двоеточия как IP, и цифры после как порт
-    );
-
-    // Улучшенный паттерн для проверки IPv4 адреса
-    private static final Pattern IPV4_PATTERN = Pattern.compile(
-            "^(25[0-5]|2[0-4]\\d|[01]?\\d\\d?)\\." +
-                    "(25[0-5]|2[0-4]\\d|[01]?\\d\\d?)\\." +
-                    "(25[0-5]|2[0-4]\\d|[01]?\\d\\d?)\\." +
-                    "(25[0-5]|2[0-4]\\d|[01]?\\d\\d?)$");
-
-    // Более полный и надежный паттерн для проверки IPv6 адреса
-    private static final Pattern IPV6_PATTERN = Pattern.compile(
-            "^(" +
-                    "([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}|" + // 1:2:3:4:5:6:7:8
-                    "([0-9a-fA-F]{1,4}:){1,7}:|" +              // 1::            1:2:3::
-                    "([0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}|" + // 1::8           1:2:3::8
-                    "([0-9a-fA-F]{1,4}:){1,5}(:[0-9a-fA-F]{1,4}){1,2}|" + // 1::7:8         1:2:3::7:8
-                    "([0-9a-fA-F]{1,4}:){1,4}(:[0-9a-fA-F]{1,4}){1,3}|" + // 1::6:7:8       1:2:3::6:7:8
-                    "([0-9a-fA-F]{1,4}:){1,3}(:[0-9a-fA-F]{1,4}){1,4}|" + // 1::5:6:7:8     1:2:3::5:6:7:8
-                    "([0-9a-fA-F]{1,4}:){1,2}(:[0-9a-fA-F]{1,4}){1,5}|" + // 1::4:5:6:7:8   1:2:3::4:5:6:7:8
-                    "[0-9a-fA-F]{1,4}:((:[0-9a-fA-F]{1,4}){1,6})|" + // ::3:4:5:6:7:8
-                    ":((:[0-9a-fA-F]{1,4}){1,7}|:)|" +          // ::2:3:4:5:6:7:8 or ::
-                    "fe80:(:[0-9a-fA-F]{0,4}){0,4}%[0-9a-zA-Z]{1,}|" + // fe80::7:8%eth0
-                    "::(ffff(:0{1,4}){0,1}:){0,1}((25[0-5]|2[0-4]\\d|[01]?\\d\\d?)\\.){3,3}(25[0-5]|2[0-4]\\d|[01]?\\d\\d?)|" + // ::255.255.255.255 or ::ffff:255.255.255.255
-                    "([0-9a-fA-F]{1,4}:){1,4}:((25[0-5]|2[0-4]\\d|[01]?\\d\\d?)\\.){3,3}(25[0-5]|2[0-4]\\d|[01]?\\d\\d?)" + // 2001:DB8::255.255.255.255
-                    ")$");
-
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     /**
-     * Нормализует IP-адрес, удаляя информацию о порте, если она присутствует.
-     * Например, "192.168.1.1:25565" станет "192.168.1.1".
-     * "2001:0db8::1:8080" станет "2001:0db8::1".
-     * "[2001:0db8::1]:8080" станет "2001:0db8::1".
+     * Нормализует IP-адрес: удаляет порт и приводит адрес к канонической записи.
+     * Например, "192.168.1.1:25565" станет "192.168.1.1",
+     * "[2001:0db8::1]:8080" станет "2001:db8::1", "0:0:0:0:0:0:0:1" станет "::1",
+     * а "::ffff:10.0.0.1" станет "10.0.0.1".
+     * IPv6-адрес с портом должен быть заключен в квадратные скобки: без них "2001:db8::1:8080" - это адрес, а не порт.
      *
      * @param ipAddress Исходный IP-адрес, который может содержать порт.
-     * @return Нормализованный IP-адрес без порта.
+     * @return Каноническая запись адреса или исходная строка, если это не IP-адрес.
      */
     public static String normalizeIpAddress(String ipAddress) {
         if (ipAddress == null || ipAddress.isEmpty()) {
             return ipAddress;
         }
+        byte[] address = parseHostAndPort(ipAddress);
+        return address != null ? formatAddress(address) : ipAddress;
+    }
+
+    /**
+     * Проверяет, является ли строка корректным IP-адресом (IPv4 или IPv6, без порта).
+     * @param ip Строка для проверки.
+     * @return true, если строка является действительным IP-адресом, иначе false.
+     */
+    public static boolean isValidIpAddress(String ip) {
+        return toAddressBytes(ip) != null;
+    }
 
-        // Если это IPv6-адрес, заключенный в квадратные скобки (например, [::1]:25565)
-        // и содержит порт
-        if (ipAddress.startsWith("[") && ipAddress.contains("]:")) {
-            int closingBracket = ipAddress.indexOf("]");
-            if (closingBracket != -1) { // Убедимся, что скобка закрылась
-                return ipAddress.substring(1, closingBracket); // Удаляем скобки и все, что после них
+    /**
+     * Разбирает IP-адрес в байтовый вид без обращения к DNS и без регулярных выражений.
+     * IPv4-mapped IPv6 адреса ("::ffff:a.b.c.d") приводятся к IPv4, идентификатор зоны ("%eth0") отбрасывается.
+     * @param ip IP-адрес (без порта).
+     * @return 4 байта для IPv4, 16 для IPv6, или null, если строка не является IP-адресом.
+     */
+    public static byte[] toAddressBytes(String ip) {
+        if (ip == null) {
+            return null;
+        }
+        return parseAddress(ip, 0, ip.length());
+    }
+
+    /**
+     * Формирует каноническую запись адреса: IPv4 - в точечной нотации,
+     * IPv6 - по RFC 5952 (строчные буквы, без ведущих нулей, самая длинная серия нулевых групп сжата в "::").
+     * @param address Адрес в байтовом виде (4 или 16 байт).
+     * @return Текстовая запись адреса.
+     */
+    public static String formatAddress(byte[] address) {
+        if (address.length == 4) {
+            return (address[0] & 0xFF) + "." + (address[1] & 0xFF) + "." + (address[2] & 0xFF) + "." + (address[3] & 0xFF);
+        }
+        // Ищем самую длинную (первую среди равных) серию из двух и более нулевых групп
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int group = 0; group < 8; ) {
+            if (group(address, group) != 0) {
+                group++;
+                continue;
+            }
+            int start = group;
+            while (group < 8 && group(address, group) == 0) {
+                group++;
+            }
+            if (group - start > bestLength) {
+                bestStart = start;
+                bestLength = group - start;
+            }
+        }
+        StringBuilder text = new StringBuilder(39);
+        for (int group = 0; group < 8; group++) {
+            if (group == bestStart) {
+                text.append("::");
+                group += bestLength - 1;
+                continue;
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            int value = group(address, group);
+            boolean significant = false;
+            for (int shift = 12; shift >= 0; shift -= 4) {
+                int digit = (value >>> shift) & 0xF;
+                if (digit != 0 || significant || shift == 0) {
+                    text.append(HEX_DIGITS[digit]);
+                    significant = true;
+                }
             }
         }
+        return text.toString();
+    }
 
-        // Для IPv4 или IPv6 без скобок, где порт идет после последнего двоеточия
-        Matcher matcher = IP_PORT_PATTERN.matcher(ipAddress);
-        if (matcher.matches()) {
-            // Группа 1 содержит IP-адрес
-            return matcher.group(1);
+    /**
+     * Кодирует IP-адрес или CIDR-диапазон для бинарных столбцов БД (punished_ip, ip_address).
+     * Адрес занимает 4 или 16 байт, диапазон - адрес сети и еще один байт с длиной префикса (5 или 17 байт),
+     * поэтому бан отдельного адреса и бан диапазона с тем же адресом сети не совпадают.
+     * @param value IP-адрес (порт допускается) или CIDR-диапазон.
+     * @return Байтовое представление или null, если строка не является ни адресом, ни диапазоном.
+     */
+    public static byte[] toStorageBytes(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
         }
+        if (value.indexOf('/') >= 0) {
+            IpRange range = IpRange.parse(value);
+            if (range == null) {
+                return null;
+            }
+            byte[] network = range.getNetwork();
+            byte[] stored = Arrays.copyOf(network, network.length + 1);
+            stored[network.length] = (byte) range.getPrefixLength();
+            return stored;
+        }
+        return parseHostAndPort(value);
+    }
 
-        // Если порт не найден, возвращаем оригинальный IP-адрес
-        return ipAddress;
+    /**
+     * Декодирует значение бинарного столбца IP, записанное {@link #toStorageBytes(String)}.
+     * @param stored Байты из БД.
+     * @return Каноническая запись адреса или диапазона; для значений другой длины (текст из старой схемы) - исходный текст.
+     */
+    public static String fromStorageBytes(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (stored.length == 4 || stored.length == 16) {
+            return formatAddress(stored);
+        }
+        if (stored.length == 5 || stored.length == 17) {
+            IpRange range = IpRange.of(Arrays.copyOf(stored, stored.length - 1), stored[stored.length - 1] & 0xFF);
+            if (range != null) {
+                return range.toString();
+            }
+        }
+        return new String(stored, StandardCharsets.UTF_8);
     }
 
     /**
-     * Проверяет, является ли строка корректным IP-адресом (IPv4 или IPv6).
-     * @param ip Строка для проверки.
-     * @return true, если строка является действительным IP-адресом, иначе false.
+     * Кодирует адрес в 16-байтовый ключ (IPv4 - как IPv4-mapped "::ffff:a.b.c.d") шестнадцатеричной строкой фиксированной длины.
+     * Такие ключи упорядочены так же, как сами адреса, поэтому диапазоны можно искать в SQL через BETWEEN.
+     * @param address Адрес в байтовом виде (4 или 16 байт).
+     * @return 32 шестнадцатеричных символа в нижнем регистре.
      */
-    public static boolean isValidIpAddress(String ip) {
-        if (ip == null || ip.trim().isEmpty()) {
-            return false;
+    public static String toRangeKey(byte[] address) {
+        byte[] key = new byte[16];
+        if (address.length == 4) {
+            key[10] = (byte) 0xFF;
+            key[11] = (byte) 0xFF;
+            System.arraycopy(address, 0, key, 12, 4);
+        } else {
+            System.arraycopy(address, 0, key, 0, 16);
+        }
+        StringBuilder hex = new StringBuilder(32);
+        for (byte b : key) {
+            hex.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+        return hex.toString();
+    }
+
+    // Адрес с необязательным портом: "a.b.c.d", "a.b.c.d:порт", IPv6 без порта или "[IPv6]:порт"
+    private static byte[] parseHostAndPort(String value) {
+        int length = value.length();
+        if (value.charAt(0) == '[') {
+            int closingBracket = value.indexOf(']');
+            if (closingBracket < 0 || !isPortSuffix(value, closingBracket + 1)) {
+                return null;
+            }
+            return parseAddress(value, 1, closingBracket);
+        }
+        byte[] address = parseAddress(value, 0, length);
+        if (address != null) {
+            return address;
         }
-        // Проверяем на IPv4
-        Matcher ipv4Matcher = IPV4_PATTERN.matcher(ip);
-        if (ipv4Matcher.matches()) {
+        // Порт без скобок допустим только у IPv4: в адресе ровно одно двоеточие
+        int colon = value.indexOf(':');
+        if (colon > 0 && colon == value.lastIndexOf(':') && isPortSuffix(value, colon)) {
+            return parseIpv4(value, 0, colon);
+        }
+        return null;
+    }
+
+    // Пустой суффикс или ":цифры" до конца строки
+    private static boolean isPortSuffix(String value, int from) {
+        if (from == value.length()) {
             return true;
         }
-        // Проверяем на IPv6
-        Matcher ipv6Matcher = IPV6_PATTERN.matcher(ip);
-        return ipv6Matcher.matches();
+        if (value.charAt(from) != ':' || from + 1 == value.length()) {
+            return false;
+        }
+        for (int i = from + 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] parseAddress(String value, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        for (int i = from; i < to; i++) {
+            if (value.charAt(i) == ':') {
+                int zone = value.indexOf('%', from);
+                if (zone >= 0 && zone < to) {
+                    if (zone == to - 1) {
+                        return null;
+                    }
+                    to = zone;
+                }
+                byte[] address = parseIpv6(value, from, to);
+                return address != null && isIpv4Mapped(address) ? Arrays.copyOfRange(address, 12, 16) : address;
+            }
+        }
+        return parseIpv4(value, from, to);
+    }
+
+    private static byte[] parseIpv4(String value, int from, int to) {
+        byte[] address = new byte[4];
+        return parseIpv4(value, from, to, address, 0) ? address : null;
+    }
+
+    private static boolean parseIpv4(String value, int from, int to, byte[] target, int offset) {
+        int octet = 0;
+        int digits = 0;
+        int position = offset;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return false;
+                }
+            } else if (c == '.' && digits > 0 && position < offset + 3) {
+                target[position++] = (byte) octet;
+                octet = 0;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        if (digits == 0 || position != offset + 3) {
+            return false;
+        }
+        target[position] = (byte) octet;
+        return true;
+    }
+
+    private static byte[] parseIpv6(String value, int from, int to) {
+        byte[] address = new byte[16];
+        int groups = 0;
+        int gap = -1; // Номер группы, на месте которой стоит "::"
+        int i = from;
+        if (value.charAt(i) == ':') {
+            if (i + 1 >= to || value.charAt(i + 1) != ':') {
+                return null;
+            }
+            gap = 0;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            int group = 0;
+            int digits = 0;
+            int digit;
+            while (i < to && (digit = hexDigit(value.charAt(i))) >= 0) {
+                if (++digits > 4) {
+                    return null;
+                }
+                group = (group << 4) | digit;
+                i++;
+            }
+            if (i < to && value.charAt(i) == '.') {
+                // Встроенный IPv4 в последних двух группах ("::ffff:10.0.0.1", "64:ff9b::192.0.2.33")
+                if (groups > 6 || !parseIpv4(value, start, to, address, groups * 2)) {
+                    return null;
+                }
+                groups += 2;
+                break;
+            }
+            if (digits == 0 || groups == 8) {
+                return null;
+            }
+            address[groups * 2] = (byte) (group >>> 8);
+            address[groups * 2 + 1] = (byte) group;
+            groups++;
+            if (i == to) {
+                break;
+            }
+            if (value.charAt(i) != ':' || ++i == to) {
+                return null;
+            }
+            if (value.charAt(i) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = groups;
+                i++;
+            }
+        }
+        if (gap < 0) {
+            return groups == 8 ? address : null;
+        }
+        if (groups == 8) {
+            return null;
+        }
+        // Сдвигаем группы после "::" в конец адреса, пропуск заполняется нулями
+        int tailBytes = (groups - gap) * 2;
+        System.arraycopy(address, gap * 2, address, 16 - tailBytes, tailBytes);
+        Arrays.fill(address, gap * 2, 16 - tailBytes, (byte) 0);
+        return address;
+    }
+
+    // Только ASCII: Character.digit принял бы и цифры других алфавитов
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isIpv4Mapped(byte[] address) {
+        for (int i = 0; i < 10; i++) {
+            if (address[i] != 0) {
+                return false;
+            }
+        }
+        return address[10] == (byte) 0xFF && address[11] == (byte) 0xFF;
+    }
+
+    private static int group(byte[] address, int index) {
+        return ((address[index * 2] & 0xFF) << 8) | (address[index * 2 + 1] & 0xFF);
     }
 }
\ No newline at end of file
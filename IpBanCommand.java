@@ -7,6 +7,7 @@ import org.teverus.adventoraBans.AdventoraBans;
 import org.teverus.adventoraBans.punishments.BanRecord;
 import org.teverus.adventoraBans.punishments.PunishmentType;
 import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.IpRange;
 import org.teverus.adventoraBans.util.PlayerUtil;
 import org.teverus.adventoraBans.util.TimeUtil;
 
@@ -71,7 +72,7 @@ public class IpBanCommand extends BaseCommand {
         }
 
         // Определяем, является ли идентификатор IP-адресом или ником игрока
-        if (IPUtils.isValidIpAddress(targetIdentifier)) {
+        if (IPUtils.isValidIpAddress(targetIdentifier) || IpRange.isCidr(targetIdentifier)) {
             // Это IP-адрес
             processIpBan(sender, targetIdentifier, moderatorUuid, moderatorName, reason, durationMillis);
         } else {
@@ -126,7 +127,9 @@ public class IpBanCommand extends BaseCommand {
     }
 
     private void processIpBan(CommandSender sender, String ipToBan, UUID moderatorUuid, String moderatorName, String reason, long durationMillis) {
-        final String normalizedIpToBan = IPUtils.normalizeIpAddress(ipToBan);
+        // Диапазон CIDR (например, 203.0.113.0/24) банится одной записью в канонической форме
+        final IpRange range = IpRange.parse(ipToBan);
+        final String normalizedIpToBan = range != null ? range.toString() : IPUtils.normalizeIpAddress(ipToBan);
 
         // Проверяем и перманентные, и временные IP-баны
         CompletableFuture<Optional<BanRecord>> activeIpBanFuture = plugin.getDatabaseManager().getActivePunishment(normalizedIpToBan, PunishmentType.IP_BAN);
@@ -200,7 +203,7 @@ public class IpBanCommand extends BaseCommand {
                                     for (Player onlinePlayer : plugin.getServer().getOnlinePlayers()) {
                                         if (onlinePlayer.getAddress() != null && onlinePlayer.getAddress().getAddress() != null) {
                                             String playerIp = IPUtils.normalizeIpAddress(onlinePlayer.getAddress().getAddress().getHostAddress());
-                                            if (playerIp.equals(normalizedIpToBan)) {
+                                            if (range != null ? range.contains(playerIp) : playerIp.equals(normalizedIpToBan)) {
                                                 String kickMessage = plugin.getMessageManager().getMessage("ip_banned_screen", placeholders);
                                                 onlinePlayer.kickPlayer(kickMessage);
                                             }
@@ -3,6 +3,7 @@ package org.teverus.adventoraBans.commands;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.cache.AltAccount;
 import org.teverus.adventoraBans.util.IPUtils; // Используем IPUtils для валидации IP
 import org.teverus.adventoraBans.util.PlayerUtil;
 
@@ -67,6 +68,15 @@ public class IpInfoCommand extends BaseCommand {
                         sender.sendMessage(plugin.getMessageManager().getMessage("ipinfo_no_last_ip_found"));
                     }
                 })
+                .thenCompose(__ -> plugin.getDatabaseManager().getKnownIps(player.getUniqueId()))
+                .thenAccept(knownIps -> {
+                    if (!knownIps.isEmpty()) {
+                        Map<String, String> placeholders = Map.of("count", String.valueOf(knownIps.size()), "ips", String.join(", ", knownIps));
+                        sender.sendMessage(plugin.getMessageManager().getMessage("ipinfo_known_ips", placeholders));
+                    }
+                })
+                .thenCompose(__ -> plugin.getDatabaseManager().getAltAccounts(player.getUniqueId(), 1, plugin.getConfigManager().getAltsMaxResults()))
+                .thenAccept(accounts -> sendLinkedAccounts(sender, accounts))
                 .exceptionally(ex -> {
                     sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
                     plugin.getLogger().log(Level.SEVERE, "Ошибка при получении IP-информации для игрока " + playerNameForDisplay + ": " + ex.getMessage(), ex);
@@ -108,10 +118,27 @@ public class IpInfoCommand extends BaseCommand {
                         return CompletableFuture.completedFuture(null);
                     }
                 })
+                .thenCompose(__ -> plugin.getDatabaseManager().getAccountsByIp(normalizedIpAddress, 1, plugin.getConfigManager().getAltsMaxResults()))
+                .thenAccept(accounts -> sendLinkedAccounts(sender, accounts))
                 .exceptionally(ex -> {
                     sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
                     plugin.getLogger().log(Level.SEVERE, "Ошибка при получении IP-информации для IP " + normalizedIpAddress + ": " + ex.getMessage(), ex);
                     return null;
                 });
     }
+
+    // Аккаунты из истории входов (первый уровень графа аккаунт - IP); подробнее - /alts
+    private void sendLinkedAccounts(CommandSender sender, List<AltAccount> accounts) {
+        if (accounts.isEmpty()) {
+            sender.sendMessage(plugin.getMessageManager().getMessage("ipinfo_no_linked_accounts"));
+            return;
+        }
+        List<String> names = new ArrayList<>(accounts.size());
+        for (AltAccount account : accounts) {
+            String name = PlayerUtil.getPlayerNameSync(account.getPlayerUuid());
+            names.add(name != null ? name : account.getPlayerUuid().toString());
+        }
+        Map<String, String> placeholders = Map.of("count", String.valueOf(accounts.size()), "accounts", String.join(", ", names));
+        sender.sendMessage(plugin.getMessageManager().getMessage("ipinfo_linked_accounts", placeholders));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package org.teverus.adventoraBans.util;
+
+import java.util.Arrays;
+
+/**
+ * Диапазон IP-адресов в нотации CIDR (например, "203.0.113.0/24" или "2001:db8:1::/48").
+ * Адрес сети хранится в байтовом виде (4 байта для IPv4, 16 для IPv6) с обнуленными битами хоста.
+ */
+public final class IpRange {
+
+    private final byte[] network;
+    private final int prefixLength;
+
+    private IpRange(byte[] network, int prefixLength) {
+        this.network = network;
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * Разбирает строку CIDR. Биты хоста в адресе обнуляются ("10.1.2.3/8" -> "10.0.0.0/8").
+     * @param cidr Строка вида "адрес/длина_префикса".
+     * @return Диапазон или null, если строка не является корректным CIDR.
+     */
+    public static IpRange parse(String cidr) {
+        if (cidr == null) {
+            return null;
+        }
+        int slash = cidr.indexOf('/');
+        if (slash <= 0 || slash == cidr.length() - 1 || slash != cidr.lastIndexOf('/')) {
+            return null;
+        }
+        byte[] address = IPUtils.toAddressBytes(cidr.substring(0, slash));
+        if (address == null) {
+            return null;
+        }
+        int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return of(address, prefixLength);
+    }
+
+    /**
+     * Создает диапазон по адресу и длине префикса. Биты хоста в адресе обнуляются.
+     * @param address Адрес в байтовом виде (4 или 16 байт).
+     * @param prefixLength Длина префикса в битах.
+     * @return Диапазон или null, если длина адреса или префикса недопустима.
+     */
+    public static IpRange of(byte[] address, int prefixLength) {
+        if ((address.length != 4 && address.length != 16) || prefixLength < 0 || prefixLength > address.length * 8) {
+            return null;
+        }
+        return new IpRange(mask(address, prefixLength), prefixLength);
+    }
+
+    /**
+     * @param value Строка для проверки.
+     * @return true, если строка - корректный CIDR-диапазон.
+     */
+    public static boolean isCidr(String value) {
+        return parse(value) != null;
+    }
+
+    private static byte[] mask(byte[] address, int prefixLength) {
+        byte[] masked = Arrays.copyOf(address, address.length);
+        for (int bit = prefixLength; bit < masked.length * 8; bit++) {
+            masked[bit >>> 3] &= (byte) ~(0x80 >>> (bit & 7));
+        }
+        return masked;
+    }
+
+    /**
+     * @return Адрес сети (копия массива).
+     */
+    public byte[] getNetwork() {
+        return network.clone();
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    /**
+     * @return 4 для IPv4, 6 для IPv6.
+     */
+    public int getVersion() {
+        return network.length == 4 ? 4 : 6;
+    }
+
+    /**
+     * @param address Адрес в байтовом виде.
+     * @return true, если адрес той же версии и входит в диапазон.
+     */
+    public boolean contains(byte[] address) {
+        if (address == null || address.length != network.length) {
+            return false;
+        }
+        int fullBytes = prefixLength >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            if (address[i] != network[i]) {
+                return false;
+            }
+        }
+        int remainingBits = prefixLength & 7;
+        if (remainingBits == 0) {
+            return true;
+        }
+        int byteMask = (0xFF << (8 - remainingBits)) & 0xFF;
+        return (address[fullBytes] & byteMask) == (network[fullBytes] & byteMask);
+    }
+
+    /**
+     * @param ipAddress IP-адрес в текстовом виде.
+     * @return true, если адрес входит в диапазон.
+     */
+    public boolean contains(String ipAddress) {
+        return contains(IPUtils.toAddressBytes(IPUtils.normalizeIpAddress(ipAddress)));
+    }
+
+    /**
+     * Первый адрес диапазона в 16-байтовом виде (IPv4 - как IPv4-mapped "::ffff:a.b.c.d"), шестнадцатеричной строкой.
+     * Строки одинаковой длины, поэтому сравниваются в SQL как числа.
+     * @return 32 шестнадцатеричных символа.
+     */
+    public String getStartKey() {
+        return IPUtils.toRangeKey(network);
+    }
+
+    /**
+     * @return Последний адрес диапазона в том же виде, что и {@link #getStartKey()}.
+     */
+    public String getEndKey() {
+        byte[] last = Arrays.copyOf(network, network.length);
+        for (int bit = prefixLength; bit < last.length * 8; bit++) {
+            last[bit >>> 3] |= (byte) (0x80 >>> (bit & 7));
+        }
+        return IPUtils.toRangeKey(last);
+    }
+
+    /**
+     * @return Каноническая запись диапазона "адрес_сети/длина_префикса".
+     */
+    @Override
+    public String toString() {
+        return IPUtils.formatAddress(network) + "/" + prefixLength;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof IpRange)) {
+            return false;
+        }
+        IpRange range = (IpRange) other;
+        return prefixLength == range.prefixLength && Arrays.equals(network, range.network);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(network) + prefixLength;
+    }
+}
@@ -0,0 +1,232 @@
+package org.teverus.adventoraBans.cache;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.util.IpRange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Двоичное префиксное дерево со сжатием путей (Patricia) для диапазонных IP-банов.
+ * Отдельные деревья для 32-битных IPv4 и 128-битных IPv6 адресов; поиск идет по битам адреса
+ * и занимает не больше шагов, чем длина самого длинного подходящего префикса.
+ *
+ * Узлы неизменяемы: изменения копируют путь от корня и публикуют новый корень,
+ * поэтому поиск при входе игроков не берет блокировок. Изменения сериализуются самим деревом.
+ */
+public class IpRangeTrie {
+
+    private volatile Node ipv4Root;
+    private volatile Node ipv6Root;
+
+    /**
+     * Добавляет диапазонный бан.
+     * @param range Диапазон.
+     * @param record Запись о бане.
+     */
+    public synchronized void add(IpRange range, BanRecord record) {
+        byte[] network = range.getNetwork();
+        if (network.length == 4) {
+            ipv4Root = insert(ipv4Root, network, range.getPrefixLength(), record);
+        } else {
+            ipv6Root = insert(ipv6Root, network, range.getPrefixLength(), record);
+        }
+    }
+
+    /**
+     * Удаляет диапазонный бан по ID записи.
+     * @param range Диапазон, под которым бан был добавлен.
+     * @param punishmentId ID записи.
+     */
+    public synchronized void remove(IpRange range, int punishmentId) {
+        byte[] network = range.getNetwork();
+        if (network.length == 4) {
+            ipv4Root = delete(ipv4Root, network, range.getPrefixLength(), punishmentId);
+        } else {
+            ipv6Root = delete(ipv6Root, network, range.getPrefixLength(), punishmentId);
+        }
+    }
+
+    /**
+     * Удаляет все диапазоны.
+     */
+    public synchronized void clear() {
+        ipv4Root = null;
+        ipv6Root = null;
+    }
+
+    /**
+     * @return true, если в дереве нет ни одного диапазона.
+     */
+    public boolean isEmpty() {
+        return ipv4Root == null && ipv6Root == null;
+    }
+
+    /**
+     * Ищет действующий бан на самом узком диапазоне, содержащем адрес.
+     * @param address Адрес в байтовом виде (4 или 16 байт).
+     * @return Самый свежий неистекший бан самого узкого подходящего диапазона, если есть.
+     */
+    public Optional<BanRecord> find(byte[] address) {
+        if (address == null) {
+            return Optional.empty();
+        }
+        Node node = address.length == 4 ? ipv4Root : ipv6Root;
+        int totalBits = address.length * 8;
+        BanRecord best = null;
+        while (node != null && matches(node.key, node.length, address)) {
+            BanRecord effective = firstEffective(node.records);
+            if (effective != null) {
+                best = effective; // Более глубокий узел - более узкий диапазон
+            }
+            if (node.length == totalBits) {
+                break;
+            }
+            node = bit(address, node.length) == 0 ? node.zero : node.one;
+        }
+        return Optional.ofNullable(best);
+    }
+
+    private static Node insert(Node node, byte[] key, int length, BanRecord record) {
+        if (node == null) {
+            return new Node(key, length, List.of(record), null, null);
+        }
+        int common = commonPrefixLength(node.key, node.length, key, length);
+        if (common == node.length && common == length) {
+            return node.withRecords(withRecord(node.records, record));
+        }
+        if (common == node.length) {
+            // Новый диапазон уже текущего: спускаемся в поддерево
+            return bit(key, node.length) == 0
+                    ? node.withChildren(insert(node.zero, key, length, record), node.one)
+                    : node.withChildren(node.zero, insert(node.one, key, length, record));
+        }
+        if (common == length) {
+            // Новый диапазон шире текущего: он становится родителем
+            return bit(node.key, length) == 0
+                    ? new Node(key, length, List.of(record), node, null)
+                    : new Node(key, length, List.of(record), null, node);
+        }
+        // Диапазоны расходятся: разветвление на первом различающемся бите
+        Node leaf = new Node(key, length, List.of(record), null, null);
+        return bit(key, common) == 0
+                ? new Node(key, common, List.of(), leaf, node)
+                : new Node(key, common, List.of(), node, leaf);
+    }
+
+    private static Node delete(Node node, byte[] key, int length, int punishmentId) {
+        if (node == null || node.length > length || !matches(node.key, node.length, key)) {
+            return node;
+        }
+        Node updated;
+        if (node.length == length) {
+            List<BanRecord> records = withoutRecord(node.records, punishmentId);
+            if (records == node.records) {
+                return node;
+            }
+            updated = node.withRecords(records);
+        } else if (bit(key, node.length) == 0) {
+            Node zero = delete(node.zero, key, length, punishmentId);
+            if (zero == node.zero) {
+                return node;
+            }
+            updated = node.withChildren(zero, node.one);
+        } else {
+            Node one = delete(node.one, key, length, punishmentId);
+            if (one == node.one) {
+                return node;
+            }
+            updated = node.withChildren(node.zero, one);
+        }
+        // Пустые узлы без разветвления схлопываются, чтобы путь оставался сжатым
+        if (updated.records.isEmpty()) {
+            if (updated.zero == null) {
+                return updated.one;
+            }
+            if (updated.one == null) {
+                return updated.zero;
+            }
+        }
+        return updated;
+    }
+
+    private static int bit(byte[] key, int index) {
+        return (key[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static boolean matches(byte[] prefix, int length, byte[] address) {
+        return commonPrefixLength(prefix, length, address, length) == length;
+    }
+
+    private static int commonPrefixLength(byte[] a, int aLength, byte[] b, int bLength) {
+        int max = Math.min(aLength, bLength);
+        int common = 0;
+        while (common + 8 <= max && a[common >>> 3] == b[common >>> 3]) {
+            common += 8;
+        }
+        while (common < max && bit(a, common) == bit(b, common)) {
+            common++;
+        }
+        return common;
+    }
+
+    // Записи узла отсортированы по ban_time DESC, как и в ActivePunishmentIndex
+    private static BanRecord firstEffective(List<BanRecord> records) {
+        for (BanRecord record : records) {
+            if (!record.isExpired()) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private static List<BanRecord> withRecord(List<BanRecord> current, BanRecord record) {
+        List<BanRecord> updated = new ArrayList<>(current.size() + 1);
+        for (BanRecord existing : current) {
+            if (existing.getId() != record.getId()) {
+                updated.add(existing);
+            }
+        }
+        int position = 0;
+        while (position < updated.size() && updated.get(position).getBanTime() >= record.getBanTime()) {
+            position++;
+        }
+        updated.add(position, record);
+        return List.copyOf(updated);
+    }
+
+    private static List<BanRecord> withoutRecord(List<BanRecord> current, int punishmentId) {
+        List<BanRecord> updated = new ArrayList<>(current.size());
+        for (BanRecord existing : current) {
+            if (existing.getId() != punishmentId) {
+                updated.add(existing);
+            }
+        }
+        return updated.size() == current.size() ? current : List.copyOf(updated);
+    }
+
+    private static final class Node {
+        private final byte[] key; // Значимы только первые length бит
+        private final int length;
+        private final List<BanRecord> records; // Баны ровно этого диапазона; пусто у узлов разветвления
+        private final Node zero;
+        private final Node one;
+
+        private Node(byte[] key, int length, List<BanRecord> records, Node zero, Node one) {
+            this.key = key;
+            this.length = length;
+            this.records = records;
+            this.zero = zero;
+            this.one = one;
+        }
+
+        private Node withRecords(List<BanRecord> updated) {
+            return new Node(key, length, updated, zero, one);
+        }
+
+        private Node withChildren(Node updatedZero, Node updatedOne) {
+            return new Node(key, length, records, updatedZero, updatedOne);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.teverus.adventoraBans.AdventoraBans;
 import org.teverus.adventoraBans.punishments.BanRecord;
 import org.teverus.adventoraBans.punishments.PunishmentType;
 import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.IpRange;
 import org.teverus.adventoraBans.util.PlayerUtil;
 import org.teverus.adventoraBans.util.TimeUtil;
 
@@ -47,7 +48,7 @@ public class IpTempBanCommand extends BaseCommand {
         }
 
         // Определяем, является ли идентификатор IP-адресом или ником игрока
-        if (IPUtils.isValidIpAddress(targetIdentifier)) {
+        if (IPUtils.isValidIpAddress(targetIdentifier) || IpRange.isCidr(targetIdentifier)) {
             // Это IP-адрес
             processIpTempBan(sender, targetIdentifier, moderatorUuid, moderatorName, reason, durationMillis);
         } else {
@@ -97,7 +98,9 @@ public class IpTempBanCommand extends BaseCommand {
     }
 
     private void processIpTempBan(CommandSender sender, String ipToBan, UUID moderatorUuid, String moderatorName, String reason, long durationMillis) {
-        final String normalizedIpToBan = IPUtils.normalizeIpAddress(ipToBan);
+        // Диапазон CIDR (например, 203.0.113.0/24) банится одной записью в канонической форме
+        final IpRange range = IpRange.parse(ipToBan);
+        final String normalizedIpToBan = range != null ? range.toString() : IPUtils.normalizeIpAddress(ipToBan);
 
 // Проверяем на наличие любого активного IP-бана (перманентного или временного).
         // Метод getActivePunishment(String ipAddress, PunishmentType type) в AbstractDatabaseManager
@@ -156,7 +159,7 @@ public class IpTempBanCommand extends BaseCommand {
                                     for (Player onlinePlayer : plugin.getServer().getOnlinePlayers()) {
                                         if (onlinePlayer.getAddress() != null && onlinePlayer.getAddress().getAddress() != null) {
                                             String playerIp = IPUtils.normalizeIpAddress(onlinePlayer.getAddress().getAddress().getHostAddress());
-                                            if (playerIp.equals(normalizedIpToBan)) {
+                                            if (range != null ? range.contains(playerIp) : playerIp.equals(normalizedIpToBan)) {
                                                 String kickMessage = plugin.getMessageManager().getMessage("ip_banned_screen", placeholders);
                                                 onlinePlayer.kickPlayer(kickMessage);
                                             }
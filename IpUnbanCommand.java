@@ -6,6 +6,7 @@ import org.teverus.adventoraBans.AdventoraBans;
 import org.teverus.adventoraBans.punishments.BanRecord;
 import org.teverus.adventoraBans.punishments.PunishmentType;
 import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.IpRange;
 import org.teverus.adventoraBans.util.PlayerUtil; // Возможно, понадобится для получения OfflinePlayer, если захотите улучшить получение имени
 
 import java.util.HashMap;
@@ -13,19 +14,10 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
-import java.util.regex.Pattern;
 import java.util.Optional;
 
 public class IpUnbanCommand extends BaseCommand {
 
-    // Улучшенные паттерны для IPv4 и IPv6
-    private static final Pattern IP_V4_PATTERN = Pattern.compile(
-            "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$"
-    );
-    private static final Pattern IP_V6_PATTERN = Pattern.compile(
-            "(([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}|([0-9a-fA-F]{1,4}:){1,7}:|([0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}|([0-9a-fA-F]{1,4}:){1,5}(:[0-9a-fA-F]{1,4}){1,2}|([0-9a-fA-F]{1,4}:){1,4}(:[0-9a-fA-F]{1,4}){1,3}|([0-9a-fA-F]{1,4}:){1,3}(:[0-9a-fA-F]{1,4}){1,4}|([0-9a-fA-F]{1,4}:){1,2}(:[0-9a-fA-F]{1,4}){1,5}|[0-9a-fA-F]{1,4}:((:[0-9a-fA-F]{1,6})|:))$"
-    );
-
     public IpUnbanCommand(AdventoraBans plugin) {
         super(plugin, "adventorabans.command.ipunban", false);
     }
@@ -42,7 +34,11 @@ public class IpUnbanCommand extends BaseCommand {
         final String moderatorName = (sender instanceof Player) ? sender.getName() : "CONSOLE";
 
         // Проверяем, является ли аргумент IP-адресом
-        if (IP_V4_PATTERN.matcher(identifier).matches() || IP_V6_PATTERN.matcher(identifier).matches()) {
+        IpRange range = IpRange.parse(identifier);
+        if (range != null) {
+            // Диапазонный бан хранится в канонической записи CIDR
+            unbanByIpAddress(sender, range.toString(), moderatorUuid, moderatorName);
+        } else if (IPUtils.isValidIpAddress(identifier)) {
             // НОРМАЛИЗАЦИЯ ВХОДЯЩЕГО IP ДЛЯ IP_UNBAN
             final String normalizedIp = IPUtils.normalizeIpAddress(identifier);
             unbanByIpAddress(sender, normalizedIp, moderatorUuid, moderatorName);
@@ -0,0 +1,143 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.util.BoundedVirtualThreadExecutor;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Одна полоса пула запросов к БД ({@link DatabaseLane}) с собственным пределом одновременных задач и метриками очереди.
+ * Задачи выполняются фиксированным пулом потоков платформы размером с предел (режим FIXED)
+ * или в виртуальных потоках с семафором (режим VIRTUAL, {@link BoundedVirtualThreadExecutor}).
+ */
+public class LaneExecutor extends AbstractExecutorService {
+
+    private final DatabaseLane lane;
+    private final int maxConcurrency;
+    private final ExecutorService delegate;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param lane Полоса.
+     * @param maxConcurrency Максимальное число одновременно выполняемых задач.
+     * @param virtualThreads true - виртуальный поток на задачу, false - фиксированный пул потоков платформы.
+     */
+    public LaneExecutor(DatabaseLane lane, int maxConcurrency, boolean virtualThreads) {
+        this.lane = lane;
+        this.maxConcurrency = maxConcurrency;
+        String threadNamePrefix = "AdventoraBans-DB-" + lane.getConfigKey() + "-";
+        if (virtualThreads) {
+            this.delegate = new BoundedVirtualThreadExecutor(threadNamePrefix, maxConcurrency);
+        } else {
+            ThreadFactory threadFactory = Thread.ofPlatform().name(threadNamePrefix, 0).daemon(true).factory();
+            this.delegate = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        }
+    }
+
+    public DatabaseLane getLane() {
+        return lane;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return Задачи, ожидающие начала выполнения.
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return Задачи, выполняющиеся сейчас.
+     */
+    public int getRunningCount() {
+        return running.get();
+    }
+
+    /**
+     * @return Завершенные задачи с момента запуска.
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return Среднее время ожидания задачи в очереди, мс.
+     */
+    public double getAverageWaitMillis() {
+        long started = completed.get() + running.get();
+        return started == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / started;
+    }
+
+    /**
+     * @return Наибольшее время ожидания задачи в очереди с момента запуска, мс.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long submittedAt = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                long waitNanos = System.nanoTime() - submittedAt;
+                queued.decrementAndGet();
+                running.incrementAndGet();
+                totalWaitNanos.addAndGet(waitNanos);
+                maxWaitNanos.accumulate(waitNanos);
+                try {
+                    command.run();
+                } finally {
+                    running.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -7,6 +7,7 @@ import org.teverus.adventoraBans.AdventoraBans;
 
 import java.io.File;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level; // Import for logging
 
 public class MessageManager {
@@ -15,9 +16,13 @@ public class MessageManager {
     private FileConfiguration messagesConfig;
     private String cachedPrefix; // Для кэширования отформатированного префикса
     private File messagesFile; // Ссылка на файл messages.yml
+    private volatile Map<String, MessageTemplate> templates = new ConcurrentHashMap<>(); // Предкомпилированные сообщения по пути
+    private final MessageTemplate.NullValueListener nullValueWarning;
 
     public MessageManager(AdventoraBans plugin) {
         this.plugin = plugin;
+        this.nullValueWarning = (path, placeholderName) -> plugin.getLogger().warning("Плейсхолдер %" + placeholderName
+                + "% имеет значение NULL для сообщения: '" + path + "'. Использую 'N/A'.");
         this.messagesFile = new File(plugin.getDataFolder(), "messages.yml"); // Инициализируем File здесь
         loadMessages(); // Загружаем сообщения при инициализации
     }
@@ -32,6 +37,40 @@ public class MessageManager {
 
         // Обновляем кэшированный префикс после загрузки конфигурации
         this.cachedPrefix = ChatColor.translateAlternateColorCodes('&', messagesConfig.getString("prefix", "&8[&cAdventoraBans&8] &r"));
+        compileTemplates();
+    }
+
+    /**
+     * Компилирует все сообщения из messages.yml в шаблоны.
+     * Вызывается при загрузке и перезагрузке, после обновления префикса.
+     */
+    private void compileTemplates() {
+        Map<String, MessageTemplate> compiled = new ConcurrentHashMap<>();
+        for (String path : messagesConfig.getKeys(true)) {
+            if (!messagesConfig.isConfigurationSection(path)) {
+                compiled.put(path, compileMessage(path, messagesConfig.getString(path)));
+            }
+        }
+        this.templates = compiled;
+    }
+
+    private MessageTemplate compileMessage(String path, String rawMessage) {
+        return MessageTemplate.compile(path, ChatColor.translateAlternateColorCodes('&', rawMessage.replace("%prefix%", cachedPrefix))); // Поле, а не getFormattedPrefix(): вызывается из конструктора
+    }
+
+    /**
+     * Возвращает шаблон сообщения. Отсутствующие в messages.yml пути компилируются в сообщение-заглушку один раз.
+     * @param path Путь к сообщению в messages.yml
+     * @return Шаблон сообщения
+     */
+    private MessageTemplate getTemplate(String path) {
+        MessageTemplate template = templates.get(path);
+        if (template != null) {
+            return template;
+        }
+        // Fallback на английский, если сообщение не найдено (или если messages.yml поврежден)
+        return templates.computeIfAbsent(path, missing -> compileMessage(missing, messagesConfig.getString(missing,
+                "&cMessage not found: '" + missing + "' in messages.yml. Please check your configuration.")));
     }
 
     /**
@@ -41,13 +80,7 @@ public class MessageManager {
      * @return Отформатированное сообщение
      */
     public String getMessage(String path) {
-        // Получаем сырую строку сообщения.
-        // Fallback на английский, если сообщение не найдено (или если messages.yml поврежден)
-        String message = messagesConfig.getString(path, "&cMessage not found: '" + path + "' in messages.yml. Please check your configuration.");
-
-        // Заменяем %prefix% на отформатированный префикс и применяем цветовые коды
-        // ChatColor.translateAlternateColorCodes уже обрабатывает '&'
-        return ChatColor.translateAlternateColorCodes('&', message.replace("%prefix%", getFormattedPrefix()));
+        return getTemplate(path).getText();
     }
 
     /**
@@ -58,25 +91,7 @@ public class MessageManager {
      * @return Отформатированное сообщение
      */
     public String getMessage(String path, Map<String, String> placeholders) {
-        // Сначала получаем базовое сообщение с префиксом и цветами, используя getMessage(String path)
-        String message = getMessage(path);
-        // Затем заменяем специфичные плейсхолдеры
-        for (Map.Entry<String, String> entry : placeholders.entrySet()) {
-            String placeholderKey = "%" + entry.getKey() + "%";
-            String placeholderValue = entry.getValue();
-
-            // *** ИСПРАВЛЕНИЕ: Обработка null значений для плейсхолдеров ***
-            if (placeholderValue == null) {
-                plugin.getLogger().warning("Плейсхолдер " + placeholderKey + " имеет значение NULL для сообщения: '" + path + "'. Использую 'N/A'.");
-                placeholderValue = "N/A"; // Заменяем null на "N/A" или пустую строку, чтобы избежать NullPointerException
-            }
-            // ***************************************************************
-
-            // Используем replaceAll для замены всех вхождений плейсхолдера
-            // replaceAll ожидает регулярное выражение, поэтому экранируем "%"
-            message = message.replaceAll(java.util.regex.Pattern.quote(placeholderKey), placeholderValue);
-        }
-        return message;
+        return getTemplate(path).render(placeholders, nullValueWarning);
     }
 
     /**
@@ -129,6 +144,7 @@ public class MessageManager {
             this.messagesConfig = YamlConfiguration.loadConfiguration(this.messagesFile);
             // Важно: обновить кэшированный префикс после перезагрузки
             this.cachedPrefix = ChatColor.translateAlternateColorCodes('&', messagesConfig.getString("prefix", "&8[&cAdventoraBans&8] &r"));
+            compileTemplates();
             plugin.getLogger().info(getFormattedPrefix() + " Сообщения плагина успешно перезагружены из messages.yml.");
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, getFormattedPrefix() + " Ошибка при перезагрузке messages.yml: " + e.getMessage(), e);
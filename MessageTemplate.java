@@ -0,0 +1,109 @@
+package org.teverus.adventoraBans.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Предкомпилированное сообщение из messages.yml.
+ * При компиляции %prefix% уже подставлен, цветовые коды переведены, а текст разбит на литеральные
+ * сегменты и слоты плейсхолдеров (%имя%). Рендер - один проход по сегментам в StringBuilder, без регулярных выражений.
+ */
+public final class MessageTemplate {
+
+    /**
+     * Обработчик плейсхолдеров, переданных со значением null.
+     */
+    @FunctionalInterface
+    public interface NullValueListener {
+        void onNullValue(String messagePath, String placeholderName);
+    }
+
+    private static final String NULL_VALUE = "N/A"; // Подставляется вместо null-значений плейсхолдеров
+
+    private final String path; // Путь сообщения в messages.yml
+    private final String text; // Сообщение без подстановки плейсхолдеров
+    private final String[] literals; // literals[i] идет перед placeholders[i]; последний литерал - после последнего слота
+    private final String[] placeholders;
+
+    private MessageTemplate(String path, String text, String[] literals, String[] placeholders) {
+        this.path = path;
+        this.text = text;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Компилирует уже отформатированное сообщение (цвета переведены, %prefix% подставлен).
+     * Плейсхолдер - имя из букв, цифр, '_', '-' или '.', заключенное в '%'; одиночные '%' остаются текстом.
+     * @param path Путь сообщения в messages.yml.
+     * @param text Отформатированное сообщение.
+     * @return Шаблон сообщения.
+     */
+    public static MessageTemplate compile(String path, String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (text.charAt(i) != '%') {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < text.length() && isNameChar(text.charAt(end))) {
+                end++;
+            }
+            if (end < text.length() && end > i + 1 && text.charAt(end) == '%') {
+                literals.add(text.substring(literalStart, i));
+                placeholders.add(text.substring(i + 1, end));
+                i = end + 1;
+                literalStart = i;
+            } else {
+                i++;
+            }
+        }
+        literals.add(text.substring(literalStart));
+        return new MessageTemplate(path, text, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-' || c == '.';
+    }
+
+    /**
+     * @return Сообщение без подстановки плейсхолдеров.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Подставляет значения плейсхолдеров. Неизвестные плейсхолдеры остаются в тексте как есть,
+     * а подставленные значения повторно не разбираются.
+     * @param values Карта плейсхолдеров (ключ без '%' -> значение).
+     * @param nullValueListener Вызывается, если значение плейсхолдера null (вместо него подставляется "N/A").
+     * @return Готовое сообщение.
+     */
+    public String render(Map<String, String> values, NullValueListener nullValueListener) {
+        if (placeholders.length == 0 || values == null || values.isEmpty()) {
+            return text;
+        }
+        StringBuilder builder = new StringBuilder(text.length() + 16 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+            String name = placeholders[i];
+            String value = values.get(name);
+            if (value != null) {
+                builder.append(value);
+            } else if (values.containsKey(name)) {
+                nullValueListener.onNullValue(path, name);
+                builder.append(NULL_VALUE);
+            } else {
+                builder.append('%').append(name).append('%');
+            }
+        }
+        builder.append(literals[placeholders.length]);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,164 @@
+package org.teverus.adventoraBans.cache;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш состояния мута для игроков, находящихся на сервере.
+ * Состояние загружается при входе игрока, обновляется менеджером БД при выдаче/снятии мутов
+ * и удаляется при выходе. Истекший временный мут снимается из кэша при первом обращении.
+ * Пока состояние игрока не загружено, {@link #isTracked(UUID)} возвращает false
+ * и вызывающий код должен проверить мут через БД.
+ * У игрока может быть несколько активных мутов; в кэше хранится самый долгий из них, поэтому его истечение
+ * означает, что мутов не осталось. После снятия закэшированного мута состояние перечитывается из БД.
+ */
+public class MuteCache {
+
+    private static final MuteState LOADING = new MuteState(null, true);
+    private static final MuteState NOT_MUTED = new MuteState(null, false);
+
+    private final ConcurrentHashMap<UUID, MuteState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Начинает отслеживание игрока. До вызова {@link #load(UUID, Optional)} состояние считается загружающимся.
+     * @param playerUuid UUID игрока.
+     */
+    public void track(UUID playerUuid) {
+        states.put(playerUuid, LOADING);
+    }
+
+    /**
+     * Сохраняет результат загрузки мута из БД.
+     * Мут, выданный за время загрузки, сравнивается с загруженным; если за время загрузки все муты игрока сняты,
+     * результат загрузки игнорируется.
+     * @param playerUuid UUID игрока.
+     * @param mute Активный мут из БД, если есть.
+     */
+    public void load(UUID playerUuid, Optional<BanRecord> mute) {
+        states.computeIfPresent(playerUuid, (uuid, state) ->
+                state.loading ? new MuteState(longestLived(mute.orElse(null), state.mute), false) : state);
+    }
+
+    /**
+     * Прекращает отслеживание игрока (выход с сервера или отказ во входе).
+     * @param playerUuid UUID игрока.
+     */
+    public void evict(UUID playerUuid) {
+        states.remove(playerUuid);
+    }
+
+    /**
+     * @param playerUuid UUID игрока.
+     * @return true, если состояние мута игрока загружено и кэш может заменить запрос к БД.
+     */
+    public boolean isTracked(UUID playerUuid) {
+        MuteState state = states.get(playerUuid);
+        return state != null && !state.loading;
+    }
+
+    /**
+     * Возвращает действующий мут игрока из кэша. Истекший мут удаляется из кэша.
+     * @param playerUuid UUID игрока.
+     * @return Действующий мут, если есть.
+     */
+    public Optional<BanRecord> getActiveMute(UUID playerUuid) {
+        MuteState state = states.get(playerUuid);
+        if (state == null || state.loading || state.mute == null) {
+            return Optional.empty();
+        }
+        if (state.mute.isExpired()) {
+            states.replace(playerUuid, state, NOT_MUTED);
+            return Optional.empty();
+        }
+        return Optional.of(state.mute);
+    }
+
+    /**
+     * Учитывает новое наказание. Для отслеживаемых игроков активный MUTE/TEMPMUTE заменяет закэшированный мут,
+     * если действует дольше него.
+     * @param record Добавленная запись о наказании.
+     */
+    public void onPunishmentAdded(BanRecord record) {
+        if (record.getPunishedUuid() == null || !record.isActive()
+                || (record.getPunishmentType() != PunishmentType.MUTE && record.getPunishmentType() != PunishmentType.TEMPMUTE)) {
+            return;
+        }
+        states.computeIfPresent(record.getPunishedUuid(), (uuid, state) -> new MuteState(longestLived(record, state.mute), state.loading));
+    }
+
+    /**
+     * Снимает мут с указанным ID, если он закэширован у кого-либо из игроков.
+     * @param punishmentId ID деактивированного наказания.
+     * @return UUID игроков, состояние которых нужно перечитать из БД через {@link #load(UUID, Optional)}.
+     */
+    public Set<UUID> remove(int punishmentId) {
+        return removeMatching(Set.of(punishmentId));
+    }
+
+    /**
+     * Снимает муты с указанными ID (после массовой деактивации).
+     * @param punishmentIds ID деактивированных наказаний.
+     * @return UUID игроков, состояние которых нужно перечитать из БД через {@link #load(UUID, Optional)}.
+     */
+    public Set<UUID> removeAll(Collection<Integer> punishmentIds) {
+        return removeMatching(punishmentIds instanceof Set ? (Set<Integer>) punishmentIds : new HashSet<>(punishmentIds));
+    }
+
+    /**
+     * Снятый мут мог быть не единственным: игрок переводится в состояние загрузки (проверки мута идут в БД),
+     * а вызывающий перечитывает его мут. Если загрузка уже идет, ее результат и так не содержит снятого мута.
+     */
+    private Set<UUID> removeMatching(Set<Integer> punishmentIds) {
+        Set<UUID> reload = new HashSet<>();
+        for (UUID playerUuid : states.keySet()) {
+            states.computeIfPresent(playerUuid, (uuid, state) -> {
+                if (state.mute == null || !punishmentIds.contains(state.mute.getId())) {
+                    return state;
+                }
+                if (!state.loading) {
+                    reload.add(uuid);
+                }
+                return LOADING;
+            });
+        }
+        return reload;
+    }
+
+    /**
+     * Снимает мут игрока в кэше (после деактивации всех его мутов в БД).
+     * @param playerUuid UUID игрока.
+     */
+    public void clear(UUID playerUuid) {
+        states.computeIfPresent(playerUuid, (uuid, state) -> NOT_MUTED);
+    }
+
+    /**
+     * @return Мут, который истечет позже (постоянный - никогда), или null, если оба null.
+     */
+    private static BanRecord longestLived(BanRecord first, BanRecord second) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
+        }
+        if (first.isPermanent() || second.isPermanent()) {
+            return first.isPermanent() ? first : second;
+        }
+        return first.getExpireTime() >= second.getExpireTime() ? first : second;
+    }
+
+    private static final class MuteState {
+        private final BanRecord mute;
+        private final boolean loading; // Состояние загружается из БД; mute - мут, выданный за время загрузки
+
+        private MuteState(BanRecord mute, boolean loading) {
+            this.mute = mute;
+            this.loading = loading;
+        }
+    }
+}
@@ -3,15 +3,10 @@ package org.teverus.adventoraBans.database;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.teverus.adventoraBans.AdventoraBans;
-import org.teverus.adventoraBans.util.IPUtils;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.concurrent.TimeUnit; // Добавьте этот импорт
 
@@ -37,7 +32,7 @@ public class MySQLManager extends AbstractDatabaseManager {
 
 
     public MySQLManager(AdventoraBans plugin) {
-        super(plugin);
+        super(plugin, plugin.getConfigManager().getMySQLPoolMaximumSize());
     }
 
     public void setConnectionDetails(String host, int port, String database, String username, String password,
@@ -67,9 +62,16 @@ public class MySQLManager extends AbstractDatabaseManager {
         config.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database + "?autoReconnect=true"); // Добавил autoReconnect
         config.setUsername(username);
         config.setPassword(password);
+        // Кэш подготовленных запросов в каждом соединении; с useServerPrepStmts запрос разбирается и планируется сервером
+        // один раз на соединение, а повторные вызовы (строки SQL из PunishmentQueries неизменны) только передают параметры
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", String.valueOf(plugin.getConfigManager().isMySQLServerPreparedStatements()));
+        config.addDataSourceProperty("cacheResultSetMetadata", "true");
+        // Запросы с fetchSize > 0 (потоковое чтение) читают результат серверным курсором порциями, остальные - как обычно
+        config.addDataSourceProperty("useCursorFetch", String.valueOf(plugin.getConfigManager().isMySQLCursorFetch()));
+        config.addDataSourceProperty("rewriteBatchedStatements", "true"); // Пакеты (IP игроков) уходят одним многострочным INSERT
         config.addDataSourceProperty("useSSL", String.valueOf(useSSL));
         config.addDataSourceProperty("allowPublicKeyRetrieval", "true"); // Важно для MySQL 8+ и старых драйверов
         config.setPoolName("AdventoraBans-HikariCP"); // Добавил имя пула для лучшей отладки
@@ -103,6 +105,8 @@ public class MySQLManager extends AbstractDatabaseManager {
                 }
             }
             createTables(); // Создаем таблицы после успешного подключения
+            migrateSchema(); // Индексы и изменения схемы
+            loadCaches(); // Загружаем индекс активных банов
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Ошибка при подключении к MySQL: " + e.getMessage(), e);
             throw new SQLException("Ошибка при инициализации HikariCP.", e);
@@ -128,6 +132,11 @@ public class MySQLManager extends AbstractDatabaseManager {
         }
     }
 
+    @Override
+    protected SqlDialect getDialect() {
+        return SqlDialect.MYSQL;
+    }
+
     @Override
     protected void createTables() {
         // Удалено: plugin.getLogger().info("DEBUG: Попытка создания/проверки таблиц MySQL.");
@@ -137,27 +146,24 @@ public class MySQLManager extends AbstractDatabaseManager {
             // Таблица для наказаний
             String punishmentsTable = "CREATE TABLE IF NOT EXISTS punishments (" +
                     "id INT AUTO_INCREMENT PRIMARY KEY," +
-                    "punished_uuid VARCHAR(36) NULL," + // UUID игрока (ЯВНО УКАЗАНО NULL)
+                    "punished_uuid BINARY(16) NULL," + // UUID игрока, 16 байт (UUIDUtils.toBytes) (ЯВНО УКАЗАНО NULL)
                     "punished_name VARCHAR(16) NULL," + // Имя игрока (на момент наказания) (ЯВНО УКАЗАНО NULL)
-                    "punished_ip VARCHAR(45) NULL," + // IP-адрес игрока (поддержка IPv6) (ЯВНО УКАЗАНО NULL)
-                    "moderator_uuid VARCHAR(36)," + // UUID модератора
+                    "punished_ip VARBINARY(17) NULL," + // IP-адрес (4/16 байт) или CIDR-диапазон (5/17 байт) (ЯВНО УКАЗАНО NULL)
+                    "moderator_uuid BINARY(16) NULL," + // UUID модератора, 16 байт
                     "moderator_name VARCHAR(16) NOT NULL," + // Имя модератора
-                    "type VARCHAR(20) NOT NULL," + // Тип наказания (BAN, MUTE, KICK, IP_BAN)
+                    "type TINYINT NOT NULL," + // Код типа наказания (PunishmentType.getCode())
                     "reason VARCHAR(255) NOT NULL," + // Причина наказания
                     "ban_time BIGINT NOT NULL," + // Время выдачи (Unix timestamp в мс)
                     "expire_time BIGINT NOT NULL," + // Время истечения (0 для перманентного)
-                    "active BOOLEAN NOT NULL," + // Активно ли наказание
-                    "INDEX idx_punished_uuid (punished_uuid, type, active)," + // Индекс для быстрого поиска активных наказаний по UUID
-                    "INDEX idx_punished_ip (punished_ip, type, active)," + // Индекс для быстрого поиска активных наказаний по IP
-                    "INDEX idx_active_type (active, type)" + // Индекс для поиска всех активных наказаний (для очистки)
-                    ");";
+                    "active BOOLEAN NOT NULL" + // Активно ли наказание
+                    ");"; // Индексы создаются миграциями схемы (SchemaMigrator)
             stmt.execute(punishmentsTable);
             plugin.getLogger().info("Таблица 'punishments' проверена/создана в MySQL.");
 
             // Таблица для хранения последних IP-адресов игроков
             String playerIpsTable = "CREATE TABLE IF NOT EXISTS player_ips (" +
                     "player_uuid VARCHAR(36) PRIMARY KEY," + // UUID игрока
-                    "ip_address VARCHAR(45) NOT NULL," + // Последний известный IP (поддержка IPv6)
+                    "ip_address VARBINARY(17) NOT NULL," + // Последний известный IP в бинарном виде (4 или 16 байт)
                     "last_seen BIGINT NOT NULL" + // Последнее время входа с этим IP
                     ");";
             stmt.execute(playerIpsTable);
@@ -167,36 +173,4 @@ public class MySQLManager extends AbstractDatabaseManager {
             plugin.getLogger().log(Level.SEVERE, "Не удалось создать таблицы MySQL: " + e.getMessage(), e);
         }
     }
-
-    @Override
-    public CompletableFuture<Void> savePlayerIp(UUID playerUuid, String ipAddress) {
-        // Удалено: plugin.getLogger().info("DEBUG: MySQLManager: Попытка сохранения/обновления IP для UUID " + playerUuid + ", IP: " + ipAddress);
-        return CompletableFuture.runAsync(() -> {
-            String normalizedIpAddress = IPUtils.normalizeIpAddress(ipAddress);
-            String sql = "INSERT INTO player_ips (player_uuid, ip_address, last_seen) VALUES (?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE ip_address = VALUES(ip_address), last_seen = VALUES(last_seen)";
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, playerUuid.toString());
-                stmt.setString(2, normalizedIpAddress);
-                stmt.setLong(3, System.currentTimeMillis());
-                // Для MySQL ON DUPLICATE KEY UPDATE не требует повторного указания параметров для VALUES()
-                // Они автоматически ссылаются на значения из INSERT части.
-                /*
-                // Удалены эти DEBUG-логи, так как они не являются критическими информационными сообщениями.
-                plugin.getLogger().info("DEBUG: MySQLManager: Выполняем SQL INSERT/UPDATE для player_ips: " + stmt.toString().replaceFirst(".*: ", ""));
-                int rowsAffected = stmt.executeUpdate();
-                if (rowsAffected > 0) {
-                    plugin.getLogger().info("DEBUG: MySQLManager: IP для " + playerUuid + " успешно сохранен/обновлен. Строк затронуто: " + rowsAffected);
-                } else {
-                    plugin.getLogger().warning("DEBUG: MySQLManager: Сохранение/обновление IP для " + playerUuid + " не затронуло ни одной строки.");
-                }
-                */
-                stmt.executeUpdate(); // Выполнение запроса без логирования rowsAffected
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при сохранении/обновлении IP для " + playerUuid + ": " + e.getMessage(), e);
-                throw new CompletionException(e);
-            }
-        }, executor);
-    }
 }
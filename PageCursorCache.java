@@ -0,0 +1,91 @@
+package org.teverus.adventoraBans.commands;
+
+import org.teverus.adventoraBans.database.PunishmentCursor;
+import org.teverus.adventoraBans.database.PunishmentPage;
+import org.teverus.adventoraBans.punishments.BanRecord;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Курсоры начала страниц для постраничного просмотра одного списка наказаний.
+ * Переход на соседнюю страницу стоит один keyset-запрос; переход на еще не посещенную дальнюю страницу -
+ * один запрос от ближайшей известной страницы, который пропускает промежуточные записи в БД (OFFSET)
+ * и возвращает только последнюю запись предыдущей страницы (курсор начала нужной) и саму страницу.
+ */
+class PageCursorCache {
+
+    /**
+     * Запрос страницы по курсору (метод DatabaseManager).
+     */
+    @FunctionalInterface
+    interface PageFetcher {
+        CompletableFuture<PunishmentPage> fetch(PunishmentCursor after, int skip, int limit);
+    }
+
+    private final Map<Integer, PunishmentCursor> pageStarts = new ConcurrentHashMap<>(); // Номер страницы (с 2) -> курсор ее начала
+    private String listKey;
+
+    /**
+     * Сбрасывает курсоры, если просматривается другой список (другая цель истории).
+     * @param listKey Идентификатор списка.
+     */
+    synchronized void useList(String listKey) {
+        if (!Objects.equals(this.listKey, listKey)) {
+            this.listKey = listKey;
+            pageStarts.clear();
+        }
+    }
+
+    /**
+     * Загружает страницу списка.
+     * @param page Номер страницы (с 1).
+     * @param pageSize Размер страницы.
+     * @param fetcher Запрос страницы по курсору.
+     * @return CompletableFuture со страницей; страница за концом списка пуста.
+     * @throws IllegalArgumentException если номер страницы или размер страницы меньше 1.
+     */
+    CompletableFuture<PunishmentPage> fetchPage(int page, int pageSize, PageFetcher fetcher) {
+        if (page < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("Некорректная страница " + page + " размера " + pageSize);
+        }
+        int knownPage = page;
+        while (knownPage > 1 && !pageStarts.containsKey(knownPage)) {
+            knownPage--;
+        }
+        PunishmentCursor knownStart = knownPage > 1 ? pageStarts.get(knownPage) : null;
+        if (knownPage == page) {
+            return fetchAndRemember(page, knownStart, pageSize, fetcher);
+        }
+
+        // Записи между известной и нужной страницей пропускает БД; читается только последняя запись предыдущей страницы
+        long skip = (long) (page - knownPage) * pageSize - 1;
+        if (skip > Integer.MAX_VALUE) {
+            return CompletableFuture.completedFuture(new PunishmentPage(List.of(), null)); // Дальше любого списка
+        }
+        return fetcher.fetch(knownStart, (int) skip, pageSize + 1).thenApply(result -> {
+            List<BanRecord> records = result.getRecords();
+            if (records.size() < 2) {
+                return new PunishmentPage(List.of(), null); // Страница за концом списка
+            }
+            BanRecord boundary = records.get(0);
+            pageStarts.put(page, new PunishmentCursor(boundary.getBanTime(), boundary.getId()));
+            if (result.hasNext()) {
+                pageStarts.put(page + 1, result.getNextCursor());
+            }
+            return new PunishmentPage(records.subList(1, records.size()), result.getNextCursor());
+        });
+    }
+
+    private CompletableFuture<PunishmentPage> fetchAndRemember(int page, PunishmentCursor start, int pageSize, PageFetcher fetcher) {
+        return fetcher.fetch(start, 0, pageSize).thenApply(result -> {
+            if (result.hasNext()) {
+                pageStarts.put(page + 1, result.getNextCursor());
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,272 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.AdventoraBans;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Буфер отложенной записи IP игроков (таблицы player_ips и player_ip_history).
+ * Повторные входы с одной парой UUID - IP схлопываются в одну запись со счетчиком входов;
+ * разные IP одного игрока хранятся отдельно, чтобы каждый попал в историю.
+ * Буфер сбрасывается пакетом по таймеру или при достижении порога размера,
+ * поэтому вход игрока не ждет записи в БД.
+ * Таймер запускается {@link #start()} после подключения к БД; после {@link #close()} входы записываются сразу.
+ * Последний неотправленный IP игрока и игрок IP ищутся по индексам, а не перебором буфера: их спрашивает каждый вход.
+ */
+public class PlayerIpWriteBuffer {
+
+    /**
+     * Пакетная запись накопленных IP в БД.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(List<PendingIp> batch) throws SQLException;
+    }
+
+    /**
+     * Ожидающая записи пара UUID - IP.
+     */
+    public static final class PendingIp {
+        private final UUID playerUuid;
+        private final String ipAddress;
+        private final long firstSeen;
+        private final long lastSeen;
+        private final int loginCount;
+
+        PendingIp(UUID playerUuid, String ipAddress, long firstSeen, long lastSeen, int loginCount) {
+            this.playerUuid = playerUuid;
+            this.ipAddress = ipAddress;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+            this.loginCount = loginCount;
+        }
+
+        // Объединяет две записи одной пары (например, неотправленную и более новую)
+        private static PendingIp merge(PendingIp a, PendingIp b) {
+            return new PendingIp(a.playerUuid, a.ipAddress, Math.min(a.firstSeen, b.firstSeen),
+                    Math.max(a.lastSeen, b.lastSeen), a.loginCount + b.loginCount);
+        }
+
+        public UUID getPlayerUuid() {
+            return playerUuid;
+        }
+
+        public String getIpAddress() {
+            return ipAddress;
+        }
+
+        public long getFirstSeen() {
+            return firstSeen;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        /**
+         * @return Количество входов с этой парой UUID - IP, накопленных в буфере.
+         */
+        public int getLoginCount() {
+            return loginCount;
+        }
+    }
+
+    private static final class PendingKey {
+        private final UUID playerUuid;
+        private final String ipAddress;
+
+        private PendingKey(UUID playerUuid, String ipAddress) {
+            this.playerUuid = playerUuid;
+            this.ipAddress = ipAddress;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey key = (PendingKey) other;
+            return playerUuid.equals(key.playerUuid) && ipAddress.equals(key.ipAddress);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * playerUuid.hashCode() + ipAddress.hashCode();
+        }
+    }
+
+    private final AdventoraBans plugin;
+    private final BatchWriter writer;
+    private final int flushThreshold;
+    private final ConcurrentHashMap<PendingKey, PendingIp> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, PendingIp> latestByUuid = new ConcurrentHashMap<>(); // Последняя неотправленная запись игрока
+    private final ConcurrentHashMap<String, PendingIp> latestByIp = new ConcurrentHashMap<>(); // Последняя неотправленная запись IP
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private final long flushIntervalMillis;
+    private boolean started; // Под this
+    private volatile boolean closed;
+
+    public PlayerIpWriteBuffer(AdventoraBans plugin, BatchWriter writer, long flushIntervalMillis, int flushThreshold) {
+        this.plugin = plugin;
+        this.writer = writer;
+        this.flushThreshold = Math.max(1, flushThreshold);
+        this.flushIntervalMillis = Math.max(50, flushIntervalMillis);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AdventoraBans-IpWriteBuffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает запись по таймеру. Вызывается после подключения к БД; повторный вызов и вызов после {@link #close()} ничего не делают.
+     * До запуска входы только накапливаются.
+     */
+    public synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ставит вход игрока с IP в очередь на запись. Неотправленная запись той же пары UUID - IP дополняется.
+     * @param playerUuid UUID игрока.
+     * @param normalizedIpAddress Нормализованный IP-адрес.
+     */
+    public void offer(UUID playerUuid, String normalizedIpAddress) {
+        long now = System.currentTimeMillis();
+        PendingIp entry = pending.merge(new PendingKey(playerUuid, normalizedIpAddress),
+                new PendingIp(playerUuid, normalizedIpAddress, now, now, 1), PendingIp::merge);
+        index(latestByUuid, playerUuid, entry);
+        index(latestByIp, normalizedIpAddress, entry);
+        if (closed) {
+            // Буфер уже закрыт, и его последняя запись могла пройти раньше: пишем сами, чтобы вход не потерялся.
+            // Флаг читается после добавления, поэтому вход увидит либо последняя запись close(), либо этот вызов
+            flushQuietly();
+            return;
+        }
+        if (pending.size() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushQuietly(); // Таймер остановлен между проверкой closed и отправкой
+            }
+        }
+    }
+
+    /**
+     * @param playerUuid UUID игрока.
+     * @return IP игрока, еще не записанный в БД, если есть.
+     */
+    public Optional<String> getPendingIp(UUID playerUuid) {
+        PendingIp latest = latestByUuid.get(playerUuid);
+        return latest == null ? Optional.empty() : Optional.of(latest.ipAddress);
+    }
+
+    /**
+     * @param normalizedIpAddress Нормализованный IP-адрес.
+     * @return Последний по времени игрок с этим IP среди еще не записанных в БД, если есть.
+     */
+    public Optional<UUID> findPendingUuid(String normalizedIpAddress) {
+        PendingIp latest = latestByIp.get(normalizedIpAddress);
+        return latest == null ? Optional.empty() : Optional.of(latest.playerUuid);
+    }
+
+    // Индекс указывает на самую позднюю по времени входа запись ключа
+    private static <K> void index(ConcurrentHashMap<K, PendingIp> index, K key, PendingIp entry) {
+        index.merge(key, entry, (indexed, current) -> current.lastSeen >= indexed.lastSeen ? current : indexed);
+    }
+
+    /**
+     * Убирает из индекса запись, пара которой уже записана в БД и не вернулась в буфер.
+     * Более старые неотправленные записи того же ключа в индекс не возвращаются: последний IP уже в БД и читается оттуда.
+     */
+    private <K> void unindex(ConcurrentHashMap<K, PendingIp> index, K key) {
+        index.computeIfPresent(key, (k, indexed) ->
+                pending.containsKey(new PendingKey(indexed.playerUuid, indexed.ipAddress)) ? indexed : null);
+    }
+
+    /**
+     * Записывает все накопленные IP одним пакетом.
+     * При ошибке записи неотправленные значения возвращаются в буфер и объединяются с пришедшими за это время.
+     * @throws SQLException если запись не удалась.
+     */
+    public void flush() throws SQLException {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            List<PendingIp> batch = new ArrayList<>(pending.size());
+            for (Map.Entry<PendingKey, PendingIp> entry : pending.entrySet()) {
+                // Удаляем только то значение, которое отправляем: более новая запись останется в буфере
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    batch.add(entry.getValue());
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            // По времени входа: последний IP игрока в player_ips должен записаться последним
+            batch.sort(Comparator.comparingLong(PendingIp::getLastSeen));
+            try {
+                writer.write(batch);
+            } catch (SQLException | RuntimeException e) {
+                for (PendingIp entry : batch) {
+                    pending.merge(new PendingKey(entry.playerUuid, entry.ipAddress), entry, PendingIp::merge);
+                }
+                throw e;
+            }
+            for (PendingIp entry : batch) {
+                unindex(latestByUuid, entry.playerUuid);
+                unindex(latestByIp, entry.ipAddress);
+            }
+            if (plugin.getConfigManager().isDebugModeEnabled()) {
+                plugin.getLogger().info("DEBUG: Записано IP игроков пакетом: " + batch.size());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Ошибка при пакетной записи IP игроков: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Останавливает таймер и синхронно записывает все оставшиеся IP. Входы, пришедшие позже, записываются сразу при {@link #offer}.
+     * Вызывается при отключении от БД до закрытия пула соединений.
+     */
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+}
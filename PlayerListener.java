@@ -7,8 +7,12 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.cache.ActivePunishmentIndex;
+import org.teverus.adventoraBans.cache.MuteCache;
+import org.teverus.adventoraBans.cache.PunishedKeyFilter;
 import org.teverus.adventoraBans.punishments.BanRecord;
 import org.teverus.adventoraBans.punishments.PunishmentType;
 import org.teverus.adventoraBans.util.TimeUtil;
@@ -21,7 +25,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.TimeZone;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -61,38 +64,68 @@ public class PlayerListener implements Listener {
                     return null;
                 });
 
+        // Параллельно с проверкой бана загружаем состояние мута, чтобы чат и команды не ходили в БД
+        // Без синхронизации общей MySQL мут с другого сервера в кэш не попадет: тогда чат проверяется запросом к БД
+        boolean localStateAuthoritative = plugin.getDatabaseManager().isLocalStateAuthoritative();
+        MuteCache muteCache = plugin.getDatabaseManager().getMuteCache();
+        PunishedKeyFilter punishedKeyFilter = plugin.getDatabaseManager().getPunishedKeyFilter();
+        if (localStateAuthoritative) {
+            muteCache.track(playerUuid);
+            if (!punishedKeyFilter.mightBePunished(playerUuid)) {
+                muteCache.load(playerUuid, Optional.empty()); // Игрок ни разу не попадал в фильтр: мута точно нет
+            } else {
+                plugin.getDatabaseManager().getActivePunishment(playerUuid, PunishmentType.MUTE)
+                        .thenAccept(mute -> muteCache.load(playerUuid, mute))
+                        .exceptionally(ex -> {
+                            // Без загруженного состояния проверка мута пойдет в БД
+                            muteCache.evict(playerUuid);
+                            plugin.getLogger().log(Level.WARNING, "Не удалось загрузить мут игрока " + playerName + " в кэш: " + ex.getMessage(), ex);
+                            return null;
+                        });
+            }
+        }
+
         // --- Основная логика проверки бана (ДОЛЖНА БЛОКИРОВАТЬ AsyncPlayerPreLoginEvent) ---
         Optional<BanRecord> activeBan = Optional.empty();
-        try {
-            activeBan = plugin.getDatabaseManager().getActivePunishment(playerUuid, PunishmentType.BAN)
-                    .thenCompose(uuidBan -> {
-                        if (uuidBan.isPresent()) {
-                            return CompletableFuture.completedFuture(uuidBan);
-                        }
-                        return plugin.getDatabaseManager().getActivePunishment(playerIp, PunishmentType.IP_BAN);
-                    })
-                    .get(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Restore the interrupted status
-            plugin.getLogger().log(Level.SEVERE, "Таймаут или прерывание при проверке банов для " + playerName + ": " + e.getMessage(), e);
-            event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
-            event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
-            return;
-        } catch (TimeoutException e) {
-            plugin.getLogger().log(Level.SEVERE, "Таймаут или прерывание при проверке банов для " + playerName + ": " + e.getMessage(), e);
-            event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
-            event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
-            return;
-        } catch (ExecutionException e) {
-            plugin.getLogger().log(Level.SEVERE, "Ошибка выполнения асинхронной операции (ExecutionException) при проверке банов для " + playerName + ": " + e.getCause().getMessage(), e.getCause());
-            event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
-            event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
-            return;
-        } catch (CompletionException e) {
-            plugin.getLogger().log(Level.SEVERE, "Ошибка БД при проверке банов для " + playerName + ": " + e.getCause().getMessage(), e.getCause());
-            event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
-            event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
-            return;
+        ActivePunishmentIndex punishmentIndex = plugin.getDatabaseManager().getActivePunishmentIndex();
+        if (localStateAuthoritative && punishmentIndex.isLoaded()) {
+            // Индекс активных банов в памяти: решение принимается без обращения к БД
+            activeBan = punishmentIndex.findBan(playerUuid);
+            if (activeBan.isEmpty()) {
+                activeBan = punishmentIndex.findIpBan(playerIp);
+            }
+        } else if (localStateAuthoritative && !punishedKeyFilter.mightBeBanned(playerUuid, playerIp)) {
+            // Индекс еще не загружен, но фильтр отвечает, что ни UUID, ни IP точно не забанены
+            if (plugin.isDebugMode()) {
+                plugin.getLogger().info("DEBUG: Игрок " + playerName + " отсутствует в фильтре наказанных, проверка банов в БД пропущена.");
+            }
+        } else {
+            try {
+                // Бан по UUID, IP и диапазону - одним запросом к БД
+                activeBan = plugin.getDatabaseManager().checkLoginBan(playerUuid, playerIp)
+                        .get(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Restore the interrupted status
+                plugin.getLogger().log(Level.SEVERE, "Таймаут или прерывание при проверке банов для " + playerName + ": " + e.getMessage(), e);
+                event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
+                event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
+                return;
+            } catch (TimeoutException e) {
+                plugin.getLogger().log(Level.SEVERE, "Таймаут или прерывание при проверке банов для " + playerName + ": " + e.getMessage(), e);
+                event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
+                event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
+                return;
+            } catch (ExecutionException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка выполнения асинхронной операции (ExecutionException) при проверке банов для " + playerName + ": " + e.getCause().getMessage(), e.getCause());
+                event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
+                event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
+                return;
+            } catch (CompletionException e) {
+                plugin.getLogger().log(Level.SEVERE, "Ошибка БД при проверке банов для " + playerName + ": " + e.getCause().getMessage(), e.getCause());
+                event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
+                event.setKickMessage(plugin.getMessageManager().getMessage("error_during_login_check"));
+                return;
+            }
         }
 
         if (activeBan.isPresent()) {
@@ -108,6 +141,19 @@ public class PlayerListener implements Listener {
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLoginResult(AsyncPlayerPreLoginEvent event) {
+        // Вход запрещен (нами или другим плагином) - состояние мута этому игроку не понадобится
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            plugin.getDatabaseManager().getMuteCache().evict(event.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getDatabaseManager().getMuteCache().evict(event.getPlayer().getUniqueId());
+    }
+
     private void applyBanKickMessage(AsyncPlayerPreLoginEvent event, BanRecord ban, String playerName) {
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("reason", ban.getReason());
@@ -132,7 +178,7 @@ public class PlayerListener implements Listener {
         placeholders.put("expire_date", expireDateString);
 
         String kickMessage;
-        if (ban.getPunishmentType() == PunishmentType.IP_BAN) {
+        if (ban.getPunishmentType().isSameCategory(PunishmentType.IP_BAN)) {
             kickMessage = plugin.getMessageManager().getMessage("ip_banned_screen", placeholders);
         } else {
             kickMessage = plugin.getMessageManager().getMessage("player_banned_screen", placeholders);
@@ -171,8 +217,7 @@ public class PlayerListener implements Listener {
         }
 
         try {
-            Optional<BanRecord> optionalMute = plugin.getDatabaseManager().getActivePunishment(playerUuid, PunishmentType.MUTE)
-                    .get(1, TimeUnit.SECONDS);
+            Optional<BanRecord> optionalMute = findActiveMute(playerUuid);
 
             if (optionalMute.isPresent()) {
                 BanRecord mute = optionalMute.get();
@@ -258,8 +303,7 @@ public class PlayerListener implements Listener {
         }
 
         try {
-            Optional<BanRecord> optionalMute = plugin.getDatabaseManager().getActivePunishment(playerUuid, PunishmentType.MUTE)
-                    .get(1, TimeUnit.SECONDS);
+            Optional<BanRecord> optionalMute = findActiveMute(playerUuid);
 
             if (optionalMute.isPresent()) {
                 BanRecord mute = optionalMute.get();
@@ -308,6 +352,25 @@ public class PlayerListener implements Listener {
         }
     }
 
+    /**
+     * Ищет действующий мут игрока: из кэша, если состояние игрока загружено, иначе через фильтр наказанных и запросом к БД.
+     *
+     * @param playerUuid UUID игрока.
+     * @return Активный мут, если есть.
+     */
+    private Optional<BanRecord> findActiveMute(UUID playerUuid) throws InterruptedException, ExecutionException, TimeoutException {
+        MuteCache muteCache = plugin.getDatabaseManager().getMuteCache();
+        if (muteCache.isTracked(playerUuid)) {
+            return muteCache.getActiveMute(playerUuid);
+        }
+        if (plugin.getDatabaseManager().isLocalStateAuthoritative()
+                && !plugin.getDatabaseManager().getPunishedKeyFilter().mightBePunished(playerUuid)) {
+            return Optional.empty();
+        }
+        return plugin.getDatabaseManager().getActivePunishment(playerUuid, PunishmentType.MUTE)
+                .get(1, TimeUnit.SECONDS);
+    }
+
     /**
      * Вспомогательный метод для обработки исключений при проверке мута. (Пункт 4)
      * Улучшает читаемость и уменьшает дублирование кода.
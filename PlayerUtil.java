@@ -4,12 +4,20 @@ import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern; // Добавил импорт для Pattern
 
 /**
@@ -17,7 +25,10 @@ import java.util.regex.Pattern; // Добавил импорт для Pattern
  */
 public class PlayerUtil {
 
-    private static final ExecutorService playerLookupExecutor = Executors.newCachedThreadPool(); // Пул для неблокирующих операций
+    private static final int MAX_LOOKUP_THREADS = 8;
+
+    // Пул для блокирующих поисков игроков; заменяется в initializeCache, задачи читают текущий пул при отправке
+    private static volatile ExecutorService playerLookupExecutor = createLookupExecutor(false);
     private static final ConcurrentHashMap<String, UUID> nameToUuidCache = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<UUID, String> uuidToNameCache = new ConcurrentHashMap<>();
 
@@ -26,7 +37,12 @@ public class PlayerUtil {
             "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$"); //
 
     // Загрузка кэша при старте плагина
-    public static void initializeCache() {
+    public static void initializeCache(boolean useVirtualThreads) {
+        // Новый пул публикуется до остановки прежнего: уже отправленные в прежний пул поиски завершатся в нем,
+        // а новые не попадут в остановленный пул (в том числе после перезагрузки плагина и shutdownCache)
+        ExecutorService previous = playerLookupExecutor;
+        playerLookupExecutor = createLookupExecutor(useVirtualThreads);
+        previous.shutdown();
         // Можно загрузить известные UUID/имена из БД здесь при старте, если нужно,
         // но для начала это не обязательно, кэш будет заполняться по мере запросов.
         // Bukkit.getOfflinePlayers() загружает всех известных игроков, что может быть медленно.
@@ -39,6 +55,19 @@ public class PlayerUtil {
     }
 
 
+    /**
+     * Поиск игрока блокирует поток (usercache.json, Mojang API).
+     * В виртуальных потоках ожидание ничего не стоит; потоков платформы создается не больше {@link #MAX_LOOKUP_THREADS}.
+     */
+    private static ExecutorService createLookupExecutor(boolean useVirtualThreads) {
+        if (useVirtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("AdventoraBans-Lookup-", 0).factory());
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_LOOKUP_THREADS, MAX_LOOKUP_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     /**
      * Асинхронно получает OfflinePlayer по имени.
      * Сначала проверяет онлайн игроков, затем кэш, затем Bukkit/Mojang (блокирующий вызов).
@@ -102,6 +131,38 @@ public class PlayerUtil {
         });
     }
 
+    /**
+     * Асинхронно получает имена игроков по UUID. Известные имена берутся из кэша и онлайн-игроков сразу,
+     * остальные ищутся в пуле поиска игроков (блокирующий вызов Bukkit).
+     * @param uuids UUID игроков.
+     * @return CompletableFuture с именами по UUID; игроков без имени в карте нет.
+     */
+    public static CompletableFuture<Map<UUID, String>> getPlayerNamesAsync(Collection<UUID> uuids) {
+        Map<UUID, String> names = new HashMap<>();
+        List<UUID> unknown = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            Player onlinePlayer = Bukkit.getPlayer(uuid);
+            String name = onlinePlayer != null ? onlinePlayer.getName() : uuidToNameCache.get(uuid);
+            if (name != null) {
+                names.put(uuid, name);
+            } else {
+                unknown.add(uuid);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return CompletableFuture.completedFuture(names);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            for (UUID uuid : unknown) {
+                String name = getPlayerNameSync(uuid);
+                if (name != null) {
+                    names.put(uuid, name);
+                }
+            }
+            return names;
+        }, playerLookupExecutor);
+    }
+
     /**
      * Проверяет, является ли строка валидным UUID.
      * @param uuidString Строка для проверки.
@@ -0,0 +1,216 @@
+package org.teverus.adventoraBans.cache;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.IpRange;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума по UUID и IP-адресам, у которых есть активное наказание (бан, мут, IP-бан).
+ * Отвечает "точно не наказан" без обращения к БД; положительный ответ может быть ложным
+ * (с заданной вероятностью), и тогда вызывающий код проверяет наказание обычным путем.
+ * Снятые наказания из фильтра не удаляются (фильтр Блума не поддерживает удаление) - менеджер БД
+ * периодически перестраивает его из таблицы punishments.
+ *
+ * Диапазонные (CIDR) IP-баны не раскладываются на адреса: при их наличии фильтр не дает ответа "точно не забанен" по IP.
+ */
+public class PunishedKeyFilter {
+
+    private static final long UUID_SEED = 0x9E3779B97F4A7C15L;
+    private static final long IP_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private final double falsePositiveRate;
+    private volatile Bits current;
+    private volatile Bits rebuilding; // Новый набор битов на время перестроения; добавления пишутся в оба
+    private volatile boolean loaded = false;
+
+    /**
+     * @param falsePositiveRate Допустимая доля ложноположительных ответов (0..1).
+     */
+    public PunishedKeyFilter(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = new Bits(1, falsePositiveRate);
+    }
+
+    /**
+     * Начинает перестроение: дальнейшие добавления попадают и в новый набор битов.
+     * Вызывается до чтения активных наказаний из БД, чтобы не потерять наказания, выданные во время чтения.
+     * @param expectedEntries Ожидаемое число ключей (UUID и IP).
+     */
+    public synchronized void beginRebuild(int expectedEntries) {
+        rebuilding = new Bits(Math.max(1, expectedEntries), falsePositiveRate);
+    }
+
+    /**
+     * Добавляет активное наказание из БД только в новый набор битов (записи передаются по мере чтения, без списка).
+     * @param record Активное наказание.
+     */
+    public void addToRebuild(BanRecord record) {
+        Bits next = rebuilding;
+        if (next != null && isFiltered(record.getPunishmentType())) {
+            addTo(next, record);
+        }
+    }
+
+    /**
+     * Заменяет текущий набор битов новым, заполненным через {@link #addToRebuild(BanRecord)}.
+     */
+    public synchronized void finishRebuild() {
+        Bits next = rebuilding;
+        if (next == null) {
+            return;
+        }
+        current = next;
+        rebuilding = null;
+        loaded = true;
+    }
+
+    /**
+     * Отменяет перестроение (ошибка чтения из БД): остается прежний набор битов.
+     */
+    public synchronized void abortRebuild() {
+        rebuilding = null;
+    }
+
+    /**
+     * Добавляет ключи активного наказания (UUID наказанного; IP-адрес или признак диапазона для IP-банов).
+     * @param record Наказание.
+     */
+    public void add(BanRecord record) {
+        if (!record.isActive() || !isFiltered(record.getPunishmentType())) {
+            return;
+        }
+        // Новый набор читается до записи в текущий: если перестроение завершится между ними, запись попадет в уже замененный current
+        Bits next = rebuilding;
+        addTo(current, record);
+        if (next != null) {
+            addTo(next, record);
+        }
+    }
+
+    private static boolean isFiltered(PunishmentType type) {
+        return ActivePunishmentIndex.isIndexed(type) || type == PunishmentType.MUTE || type == PunishmentType.TEMPMUTE;
+    }
+
+    private static void addTo(Bits bits, BanRecord record) {
+        if (record.getPunishedUuid() != null) {
+            bits.add(hash(record.getPunishedUuid()));
+        }
+        PunishmentType type = record.getPunishmentType();
+        if ((type == PunishmentType.IP_BAN || type == PunishmentType.TEMP_IP_BAN) && record.getPunishedIp() != null) {
+            if (IpRange.parse(record.getPunishedIp()) != null) {
+                bits.hasRanges = true;
+            } else {
+                bits.add(hash(record.getPunishedIp()));
+            }
+        }
+    }
+
+    /**
+     * @return true, если фильтр построен из БД и его отрицательные ответы достоверны.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @param playerUuid UUID игрока.
+     * @return false, если у игрока точно нет активного наказания по UUID; true - возможно есть.
+     */
+    public boolean mightBePunished(UUID playerUuid) {
+        return !loaded || current.mightContain(hash(playerUuid));
+    }
+
+    /**
+     * @param playerUuid UUID игрока.
+     * @param ipAddress IP-адрес игрока.
+     * @return false, если игрок точно не забанен ни по UUID, ни по IP, ни по диапазону; true - возможно забанен.
+     */
+    public boolean mightBeBanned(UUID playerUuid, String ipAddress) {
+        if (!loaded) {
+            return true;
+        }
+        Bits bits = current;
+        return bits.hasRanges || bits.mightContain(hash(playerUuid)) || bits.mightContain(hash(ipAddress));
+    }
+
+    /**
+     * @return Размер текущего набора битов в байтах.
+     */
+    public long sizeInBytes() {
+        return current.words.length() * (long) Long.BYTES;
+    }
+
+    private static long hash(UUID uuid) {
+        return mix(mix(uuid.getMostSignificantBits() ^ UUID_SEED) ^ uuid.getLeastSignificantBits());
+    }
+
+    private static long hash(String ipAddress) {
+        String normalized = IPUtils.normalizeIpAddress(ipAddress);
+        byte[] address = IPUtils.toAddressBytes(normalized);
+        long h = IP_SEED;
+        if (address != null) {
+            for (byte b : address) {
+                h = mix(h ^ (b & 0xFF));
+            }
+        } else {
+            h = mix(h ^ normalized.hashCode());
+        }
+        return h;
+    }
+
+    // Финальное перемешивание MurmurHash3 (fmix64)
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Набор битов фиксированного размера; k позиций ключа получаются двойным хешированием (h1 + i * h2).
+     */
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+        private volatile boolean hasRanges = false;
+
+        Bits(int expectedEntries, double falsePositiveRate) {
+            // m = -n * ln(p) / ln(2)^2, k = m / n * ln(2)
+            long bits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.bitCount = wordCount * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        }
+
+        void add(long hash) {
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(hash + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ((words.get(word) & mask) == 0) {
+                    words.getAndUpdate(word, value -> value | mask);
+                }
+            }
+        }
+
+        boolean mightContain(long hash) {
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(hash + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.teverus.adventoraBans.tasks;
+
+import org.bukkit.scheduler.BukkitRunnable;
+import org.teverus.adventoraBans.AdventoraBans;
+
+import java.util.logging.Level;
+
+/**
+ * Периодическое перестроение фильтра наказанных UUID и IP из БД
+ * (снятые и истекшие наказания из фильтра Блума иначе не удаляются).
+ */
+public class PunishedKeyFilterRebuildTask extends BukkitRunnable {
+
+    private final AdventoraBans plugin;
+
+    public PunishedKeyFilterRebuildTask(AdventoraBans plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void run() {
+        plugin.getDatabaseManager().rebuildPunishedKeyFilter()
+                .exceptionally(ex -> {
+                    plugin.getLogger().log(Level.SEVERE, "Ошибка при перестроении фильтра наказанных UUID и IP: " + ex.getMessage(), ex);
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,301 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.UUIDUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Файл выгрузки таблиц punishments и player_ips для переноса между серверами и бэкендами (SQLite/MySQL).
+ *
+ * Формат (сжат gzip): сигнатура "ABDX", версия формата, заголовок (время выгрузки и число записей каждой таблицы),
+ * затем записи с байтом-меткой ({@link #PUNISHMENT}, {@link #PLAYER_IP}) и метка {@link #END}.
+ * Поля записей хранятся в том же виде, что и в БД: UUID - 16 байт, IP - {@link IPUtils#toStorageBytes(String)}, тип - код;
+ * длины строк и массивов - varint, 0 означает NULL. ID наказаний не сохраняются: при загрузке БД назначает новые в прежнем порядке.
+ */
+public final class PunishmentArchive {
+
+    public static final int END = 0;
+    public static final int PUNISHMENT = 1;
+    public static final int PLAYER_IP = 2;
+
+    private static final byte[] MAGIC = {'A', 'B', 'D', 'X'};
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private PunishmentArchive() {
+    }
+
+    /**
+     * Заголовок файла выгрузки.
+     */
+    public static final class Header {
+        private final long createdAt;
+        private final long punishmentCount;
+        private final long playerIpCount;
+
+        public Header(long createdAt, long punishmentCount, long playerIpCount) {
+            this.createdAt = createdAt;
+            this.punishmentCount = punishmentCount;
+            this.playerIpCount = playerIpCount;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getPunishmentCount() {
+            return punishmentCount;
+        }
+
+        public long getPlayerIpCount() {
+            return playerIpCount;
+        }
+    }
+
+    /**
+     * Запись последнего IP игрока (строка player_ips).
+     */
+    public static final class PlayerIp {
+        private final UUID playerUuid;
+        private final String ipAddress;
+        private final long lastSeen;
+
+        public PlayerIp(UUID playerUuid, String ipAddress, long lastSeen) {
+            this.playerUuid = playerUuid;
+            this.ipAddress = ipAddress;
+            this.lastSeen = lastSeen;
+        }
+
+        public UUID getPlayerUuid() {
+            return playerUuid;
+        }
+
+        public String getIpAddress() {
+            return ipAddress;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+    }
+
+    /**
+     * Последовательная запись файла выгрузки.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final DataOutputStream out;
+
+        private Writer(OutputStream target) throws IOException {
+            // Самое быстрое сжатие: выгрузка упирается в чтение из БД, а записи и так компактны
+            GZIPOutputStream gzip = new GZIPOutputStream(target, BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            this.out = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+        }
+
+        /**
+         * @param file Файл; существующий перезаписывается.
+         * @return Запись в файл.
+         * @throws IOException если файл не удалось создать.
+         */
+        public static Writer open(Path file) throws IOException {
+            OutputStream target = Files.newOutputStream(file);
+            try {
+                return new Writer(target);
+            } catch (IOException e) {
+                target.close();
+                throw e;
+            }
+        }
+
+        public void writeHeader(Header header) throws IOException {
+            out.write(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(header.getCreatedAt());
+            out.writeLong(header.getPunishmentCount());
+            out.writeLong(header.getPlayerIpCount());
+        }
+
+        public void writePunishment(BanRecord record) throws IOException {
+            out.writeByte(PUNISHMENT);
+            writeBytes(UUIDUtils.toBytes(record.getPunishedUuid()));
+            writeString(record.getPunishedName());
+            writeBytes(IPUtils.toStorageBytes(record.getPunishedIp()));
+            writeBytes(UUIDUtils.toBytes(record.getModeratorUuid()));
+            writeString(record.getModeratorName());
+            out.writeByte(record.getPunishmentType().getCode());
+            writeString(record.getReason());
+            out.writeLong(record.getBanTime());
+            out.writeLong(record.getExpireTime());
+            out.writeBoolean(record.isActive());
+        }
+
+        public void writePlayerIp(PlayerIp playerIp) throws IOException {
+            out.writeByte(PLAYER_IP);
+            writeBytes(UUIDUtils.toBytes(playerIp.getPlayerUuid()));
+            writeBytes(IPUtils.toStorageBytes(playerIp.getIpAddress()));
+            out.writeLong(playerIp.getLastSeen());
+        }
+
+        private void writeString(String value) throws IOException {
+            writeBytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+        }
+
+        private void writeBytes(byte[] value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(value.length + 1);
+            out.write(value);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        /**
+         * Дописывает метку конца и закрывает файл. Без нее файл при загрузке считается оборванным.
+         */
+        public void finish() throws IOException {
+            out.writeByte(END);
+            out.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Последовательное чтение файла выгрузки: {@link #next()} возвращает метку, затем читается запись этого вида.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final Header header;
+
+        private Reader(InputStream source) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(source, BUFFER_SIZE), BUFFER_SIZE));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Файл не является выгрузкой AdventoraBans");
+            }
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Неподдерживаемая версия формата выгрузки: " + version);
+            }
+            this.header = new Header(in.readLong(), in.readLong(), in.readLong());
+        }
+
+        /**
+         * @param file Файл выгрузки.
+         * @return Чтение файла с уже прочитанным заголовком.
+         * @throws IOException если файл не найден или не является выгрузкой.
+         */
+        public static Reader open(Path file) throws IOException {
+            InputStream source = Files.newInputStream(file);
+            try {
+                return new Reader(source);
+            } catch (IOException e) {
+                source.close();
+                throw e;
+            }
+        }
+
+        public Header getHeader() {
+            return header;
+        }
+
+        /**
+         * @return Метка следующей записи: {@link #PUNISHMENT}, {@link #PLAYER_IP} или {@link #END}.
+         * @throws IOException при ошибке чтения, неизвестной метке или оборванном файле.
+         */
+        public int next() throws IOException {
+            int tag = in.readUnsignedByte();
+            if (tag != END && tag != PUNISHMENT && tag != PLAYER_IP) {
+                throw new IOException("Неизвестная метка записи в выгрузке: " + tag);
+            }
+            return tag;
+        }
+
+        /**
+         * @return Наказание без ID.
+         */
+        public BanRecord readPunishment() throws IOException {
+            UUID punishedUuid = UUIDUtils.fromBytes(readBytes());
+            String punishedName = readString();
+            String punishedIp = IPUtils.fromStorageBytes(readBytes());
+            UUID moderatorUuid = UUIDUtils.fromBytes(readBytes());
+            String moderatorName = readString();
+            PunishmentType type;
+            try {
+                type = PunishmentType.fromCode(in.readUnsignedByte());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            return new BanRecord(punishedUuid, punishedName, punishedIp, moderatorUuid, moderatorName, type,
+                    readString(), in.readLong(), in.readLong(), in.readBoolean());
+        }
+
+        public PlayerIp readPlayerIp() throws IOException {
+            return new PlayerIp(UUIDUtils.fromBytes(readBytes()), IPUtils.fromStorageBytes(readBytes()), in.readLong());
+        }
+
+        private String readString() throws IOException {
+            byte[] value = readBytes();
+            return value != null ? new String(value, StandardCharsets.UTF_8) : null;
+        }
+
+        private byte[] readBytes() throws IOException {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            byte[] value = new byte[length - 1];
+            in.readFully(value);
+            return value;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Некорректная длина поля в выгрузке");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -2,7 +2,6 @@ package org.teverus.adventoraBans.tasks;
 
 import org.bukkit.scheduler.BukkitRunnable;
 import org.teverus.adventoraBans.AdventoraBans;
-import org.teverus.adventoraBans.punishments.BanRecord;
 
 import java.util.logging.Level;
 
@@ -17,28 +16,33 @@ public class PunishmentCleanupTask extends BukkitRunnable {
     @Override
     public void run() {
         plugin.getLogger().info("DEBUG: Запущена задача очистки истекших наказаний...");
-        plugin.getDatabaseManager().getAllActivePunishments()
-                .thenAccept(activePunishments -> {
-                    long cleanedCount = 0;
-                    for (BanRecord record : activePunishments) {
-                        if (record.isExpired()) {
-                            plugin.getDatabaseManager().deactivatePunishment(record.getId())
-                                    .exceptionally(ex -> {
-                                        plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации истекшего наказания ID " + record.getId() + ": " + ex.getMessage(), ex);
-                                        return null;
-                                    });
-                            cleanedCount++;
-                        }
-                    }
-                    if (cleanedCount > 0) {
-                        plugin.getLogger().info(plugin.getMessageManager().getFormattedMessage("prefix") + " Деактивировано " + cleanedCount + " истекших наказаний.");
+        // Деактивация выполняется на стороне БД пакетными UPDATE; менеджер сам снимает эти ID из своих кэшей
+        plugin.getDatabaseManager().deactivateExpiredPunishments(System.currentTimeMillis())
+                .thenAccept(deactivatedIds -> {
+                    if (!deactivatedIds.isEmpty()) {
+                        plugin.getLogger().info(plugin.getMessageManager().getFormattedMessage("prefix") + " Деактивировано " + deactivatedIds.size() + " истекших наказаний.");
                     } else {
                         plugin.getLogger().info("DEBUG: Истекших наказаний не найдено для очистки.");
                     }
                 })
                 .exceptionally(ex -> {
-                    plugin.getLogger().log(Level.SEVERE, "Ошибка при получении списка активных наказаний для очистки: " + ex.getMessage(), ex);
+                    plugin.getLogger().log(Level.SEVERE, "Ошибка при деактивации истекших наказаний: " + ex.getMessage(), ex);
                     return null;
                 });
+
+        // Журнал синхронизации нужен только для событий, которые другие серверы еще не прочитали
+        if (plugin.getConfigManager().isSyncEnabled()) {
+            long retentionMillis = plugin.getConfigManager().getSyncEventRetentionHours() * 3600000L;
+            plugin.getDatabaseManager().prunePunishmentEvents(System.currentTimeMillis() - retentionMillis)
+                    .thenAccept(deleted -> {
+                        if (deleted > 0 && plugin.getConfigManager().isDebugModeEnabled()) {
+                            plugin.getLogger().info("DEBUG: Удалено старых событий журнала наказаний: " + deleted);
+                        }
+                    })
+                    .exceptionally(ex -> {
+                        plugin.getLogger().log(Level.SEVERE, "Ошибка при удалении старых событий журнала наказаний: " + ex.getMessage(), ex);
+                        return null;
+                    });
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package org.teverus.adventoraBans.tasks;
+
+import org.bukkit.scheduler.BukkitRunnable;
+import org.teverus.adventoraBans.AdventoraBans;
+
+import java.util.logging.Level;
+
+/**
+ * Периодическая сверка кэшированных счетчиков наказаний с БД
+ * (на случай записей, добавленных в обход этого сервера).
+ */
+public class PunishmentCounterReconcileTask extends BukkitRunnable {
+
+    private final AdventoraBans plugin;
+
+    public PunishmentCounterReconcileTask(AdventoraBans plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void run() {
+        plugin.getDatabaseManager().reconcileCounters()
+                .exceptionally(ex -> {
+                    plugin.getLogger().log(Level.SEVERE, "Ошибка при сверке счетчиков наказаний: " + ex.getMessage(), ex);
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,174 @@
+package org.teverus.adventoraBans.cache;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.util.IPUtils;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики наказаний для постраничного просмотра истории: общее количество и количество по UUID/IP.
+ * Общий счетчик загружается при подключении, счетчики по UUID/IP - при первом запросе.
+ * Менеджер БД увеличивает их при добавлении наказаний, а периодическая сверка
+ * перезаписывает общий счетчик значением из БД и сбрасывает остальные.
+ *
+ * Количество, посчитанное в БД, запоминается, только если за время подсчета не было записи наказаний:
+ * иначе оно может уже включать новую строку, которую {@link #onPunishmentAdded} затем прибавит еще раз,
+ * или не включать строку, прибавка которой уже прошла мимо еще не запомненного счетчика.
+ * Для этого подсчет начинается с {@link #beginLoad()}, а запись обрамляется
+ * {@link #onPunishmentsWriting(int)} (до транзакции) и {@link #onPunishmentsWritten(int)} (после применения к счетчикам).
+ * Наказания других серверов (синхронизация) видны в БД раньше, чем приходит их событие; возможное расхождение на них
+ * исправляет периодическая сверка.
+ */
+public class PunishmentCounters {
+
+    private static final int MAX_TRACKED_KEYS = 10000; // Защита от неограниченного роста карт счетчиков
+
+    private final AtomicInteger total = new AtomicInteger(-1); // -1 - еще не загружен
+    private final ConcurrentHashMap<UUID, AtomicInteger> byUuid = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> byIp = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong(); // Растет при начале и конце каждой записи и каждом учтенном наказании
+    private final AtomicInteger writesInProgress = new AtomicInteger(); // Наказания, записываемые сейчас и еще не учтенные
+
+    /**
+     * Вызывается перед подсчетом наказаний в БД; результат передается в {@link #setTotal}/{@link #putByUuid}/{@link #putByIp} вместе с отметкой.
+     * @return Отметка подсчета или -1, если сейчас идет запись наказаний (результат подсчета не будет запомнен).
+     */
+    public long beginLoad() {
+        long stamp = generation.get();
+        return writesInProgress.get() > 0 ? -1 : stamp;
+    }
+
+    /**
+     * Начало записи наказаний (до транзакции): подсчеты, идущие одновременно с ней, не запоминаются.
+     * @param count Количество записываемых наказаний.
+     */
+    public void onPunishmentsWriting(int count) {
+        writesInProgress.addAndGet(count);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Конец записи наказаний: после применения к счетчикам или после неудачной транзакции.
+     * @param count Количество наказаний, переданное в {@link #onPunishmentsWriting(int)}.
+     */
+    public void onPunishmentsWritten(int count) {
+        generation.incrementAndGet();
+        writesInProgress.addAndGet(-count);
+    }
+
+    /**
+     * @return Общее количество наказаний или null, если счетчик еще не загружен.
+     */
+    public Integer getTotal() {
+        int value = total.get();
+        return value < 0 ? null : value;
+    }
+
+    /**
+     * Устанавливает общее количество наказаний, посчитанное в БД.
+     * Если с начала подсчета наказания записывались, счетчик сбрасывается и будет посчитан заново при следующем запросе.
+     * @param count Количество наказаний.
+     * @param stamp Отметка {@link #beginLoad()}, полученная до подсчета.
+     */
+    public void setTotal(int count, long stamp) {
+        if (stamp < 0) {
+            return;
+        }
+        total.set(count);
+        if (generation.get() != stamp) {
+            total.set(-1);
+        }
+    }
+
+    /**
+     * @param playerUuid UUID игрока.
+     * @return Количество наказаний игрока или null, если счетчик еще не загружен.
+     */
+    public Integer getByUuid(UUID playerUuid) {
+        AtomicInteger value = byUuid.get(playerUuid);
+        return value == null ? null : value.get();
+    }
+
+    /**
+     * Запоминает количество наказаний игрока, посчитанное в БД (если счетчик еще не появился и с начала подсчета
+     * наказания не записывались).
+     * @param playerUuid UUID игрока.
+     * @param count Количество наказаний.
+     * @param stamp Отметка {@link #beginLoad()}, полученная до подсчета.
+     */
+    public void putByUuid(UUID playerUuid, int count, long stamp) {
+        if (byUuid.size() >= MAX_TRACKED_KEYS) {
+            byUuid.clear();
+        }
+        putLoaded(byUuid, playerUuid, count, stamp);
+    }
+
+    /**
+     * @param ipAddress IP-адрес.
+     * @return Количество наказаний по IP или null, если счетчик еще не загружен.
+     */
+    public Integer getByIp(String ipAddress) {
+        AtomicInteger value = byIp.get(IPUtils.normalizeIpAddress(ipAddress));
+        return value == null ? null : value.get();
+    }
+
+    /**
+     * Запоминает количество наказаний по IP, посчитанное в БД (если счетчик еще не появился и с начала подсчета
+     * наказания не записывались).
+     * @param ipAddress IP-адрес.
+     * @param count Количество наказаний.
+     * @param stamp Отметка {@link #beginLoad()}, полученная до подсчета.
+     */
+    public void putByIp(String ipAddress, int count, long stamp) {
+        if (byIp.size() >= MAX_TRACKED_KEYS) {
+            byIp.clear();
+        }
+        putLoaded(byIp, IPUtils.normalizeIpAddress(ipAddress), count, stamp);
+    }
+
+    /**
+     * Кладет счетчик и убирает его, если запись наказаний началась до проверки отметки.
+     * Запись, начавшаяся после проверки, закоммичена позже подсчета и найдет уже положенный счетчик.
+     */
+    private <K> void putLoaded(ConcurrentHashMap<K, AtomicInteger> counters, K key, int count, long stamp) {
+        if (stamp < 0) {
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger(count);
+        if (counters.putIfAbsent(key, counter) == null && generation.get() != stamp) {
+            counters.remove(key, counter);
+        }
+    }
+
+    /**
+     * Учитывает добавленное наказание во всех загруженных счетчиках.
+     * @param record Добавленная запись о наказании.
+     */
+    public void onPunishmentAdded(BanRecord record) {
+        generation.incrementAndGet();
+        total.getAndUpdate(value -> value < 0 ? value : value + 1);
+        if (record.getPunishedUuid() != null) {
+            AtomicInteger value = byUuid.get(record.getPunishedUuid());
+            if (value != null) {
+                value.incrementAndGet();
+            }
+        }
+        if (record.getPunishedIp() != null) {
+            AtomicInteger value = byIp.get(IPUtils.normalizeIpAddress(record.getPunishedIp()));
+            if (value != null) {
+                value.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает счетчики по UUID/IP; они будут заново посчитаны в БД при следующем запросе.
+     */
+    public void resetKeyed() {
+        byUuid.clear();
+        byIp.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package org.teverus.adventoraBans.database;
+
+/**
+ * Позиция в списке наказаний, отсортированном по ban_time DESC, id DESC.
+ * Следующая страница начинается с записей строго "после" курсора, поэтому стоимость
+ * запроса не зависит от номера страницы (в отличие от LIMIT/OFFSET).
+ */
+public final class PunishmentCursor {
+
+    private final long banTime;
+    private final int id;
+
+    public PunishmentCursor(long banTime, int id) {
+        this.banTime = banTime;
+        this.id = id;
+    }
+
+    public long getBanTime() {
+        return banTime;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,210 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.punishments.BanRecord;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Групповая запись одиночных наказаний: вызовы addPunishment, пришедшие в течение окна (database.group_commit.window_ms),
+ * записываются одной транзакцией с пакетным INSERT вместо транзакции на каждое наказание.
+ * Первое наказание группы ждет не дольше окна, полная группа (database.group_commit.max_batch_size) отправляется сразу.
+ * При окне 0 каждое наказание пишется своей транзакцией без ожидания.
+ * Ошибка транзакции группы не отменяет чужие наказания: после нее каждое наказание группы пишется отдельно.
+ * Повторяется только сама транзакция; обновление кэшей после коммита ({@link CommitListener}) выполняется один раз и не повторяется.
+ */
+public class PunishmentGroupCommitter {
+
+    /**
+     * Запись группы наказаний одной транзакцией. Записи получают ID из БД.
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        /**
+         * @param batch Наказания группы.
+         * @throws SQLException только если транзакция не закоммичена и ни одно наказание группы не записано.
+         * Сбои после коммита (возврат соединения в пул) реализация не пробрасывает, иначе группа будет записана повторно.
+         */
+        void write(List<BanRecord> batch) throws SQLException;
+    }
+
+    /**
+     * Применение записанных наказаний к кэшам и счетчикам. Вызывается один раз после коммита, вне повторяемой записи.
+     */
+    @FunctionalInterface
+    public interface CommitListener {
+        void onCommitted(List<BanRecord> committed);
+    }
+
+    private static final class PendingPunishment {
+        private final BanRecord record;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingPunishment(BanRecord record) {
+            this.record = record;
+        }
+    }
+
+    private final AdventoraBans plugin;
+    private final BatchWriter writer;
+    private final CommitListener listener;
+    private final Executor executor;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService timer; // null при окне 0
+    private final Object lock = new Object();
+    private List<PendingPunishment> pending = new ArrayList<>(); // Под lock
+    private boolean flushScheduled; // Под lock: запись накопленной группы уже запланирована
+
+    /**
+     * @param plugin Плагин.
+     * @param writer Запись группы.
+     * @param listener Применение записанных наказаний к кэшам.
+     * @param executor Исполнитель записи (полоса пула запросов к БД).
+     * @param windowMillis Сколько ждать другие наказания после первого в группе.
+     * @param maxBatchSize Группа такого размера отправляется, не дожидаясь конца окна.
+     */
+    public PunishmentGroupCommitter(AdventoraBans plugin, BatchWriter writer, CommitListener listener, Executor executor,
+                                    long windowMillis, int maxBatchSize) {
+        this.plugin = plugin;
+        this.writer = writer;
+        this.listener = listener;
+        this.executor = executor;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.timer = this.windowMillis > 0 ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AdventoraBans-PunishmentGroupCommit");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Ставит наказание в текущую группу.
+     * @param record Наказание с IP в канонической записи.
+     * @return CompletableFuture, завершающийся после коммита группы (ID уже записан в record) или с ошибкой записи.
+     */
+    public CompletableFuture<Void> submit(BanRecord record) {
+        PendingPunishment punishment = new PendingPunishment(record);
+        boolean schedule;
+        boolean full;
+        synchronized (lock) {
+            pending.add(punishment);
+            schedule = !flushScheduled;
+            flushScheduled = true;
+            full = pending.size() == maxBatchSize; // Одна внеочередная отправка на заполнение группы
+        }
+        if (full || (schedule && timer == null)) {
+            dispatch();
+        } else if (schedule) {
+            try {
+                timer.schedule(this::dispatch, windowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                dispatch();
+            }
+        }
+        return punishment.future;
+    }
+
+    private void dispatch() {
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            flush(); // Пул уже остановлен: пишем в вызывающем потоке, чтобы наказание не потерялось
+        }
+    }
+
+    /**
+     * Записывает все накопленные наказания одной транзакцией и завершает их CompletableFuture.
+     */
+    private void flush() {
+        List<PendingPunishment> batch;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        List<BanRecord> records = new ArrayList<>(batch.size());
+        for (PendingPunishment punishment : batch) {
+            records.add(punishment.record);
+        }
+        List<PendingPunishment> committed;
+        try {
+            writer.write(records);
+            committed = batch;
+            if (plugin.getConfigManager().isDebugModeEnabled()) {
+                plugin.getLogger().info("DEBUG: Записано наказаний одной транзакцией: " + batch.size());
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            plugin.getLogger().log(Level.WARNING, "Групповая запись " + batch.size() + " наказаний не удалась, наказания будут записаны по отдельности: " + e.getMessage(), e);
+            committed = new ArrayList<>(batch.size());
+            for (PendingPunishment punishment : batch) {
+                try {
+                    writer.write(Collections.singletonList(punishment.record));
+                } catch (SQLException | RuntimeException singleError) {
+                    fail(punishment, singleError);
+                    continue;
+                }
+                committed.add(punishment);
+            }
+        }
+        complete(committed);
+    }
+
+    /**
+     * Применяет записанные наказания к кэшам и завершает их CompletableFuture.
+     * Наказания уже в БД, поэтому сбой обновления кэшей только логируется (кэши восстановятся при сверке/перезагрузке).
+     */
+    private void complete(List<PendingPunishment> committed) {
+        if (committed.isEmpty()) {
+            return;
+        }
+        List<BanRecord> records = new ArrayList<>(committed.size());
+        for (PendingPunishment punishment : committed) {
+            records.add(punishment.record);
+        }
+        try {
+            listener.onCommitted(records);
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Ошибка при обновлении кэшей после добавления наказаний: " + e.getMessage(), e);
+        }
+        for (PendingPunishment punishment : committed) {
+            punishment.future.complete(null);
+        }
+    }
+
+    private void fail(PendingPunishment punishment, Exception e) {
+        plugin.getLogger().log(Level.SEVERE, "Ошибка при добавлении наказания: " + e.getMessage(), e);
+        // Как и у записи без группировки (supplyAsync): обработчики получают CompletionException с причиной
+        punishment.future.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+    }
+
+    /**
+     * Останавливает таймер и синхронно записывает накопленные наказания.
+     * Вызывается при отключении от БД до остановки пула запросов.
+     */
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        flush();
+    }
+}
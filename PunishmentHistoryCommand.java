@@ -2,6 +2,10 @@ package org.teverus.adventoraBans.commands;
 
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.teverus.adventoraBans.AdventoraBans;
 // import org.teverus.adventoraBans.commands.BaseCommand; // Это лишний импорт, так как вы уже в пакете commands
 import org.teverus.adventoraBans.punishments.BanRecord;
@@ -21,10 +25,11 @@ import java.util.HashMap; // Для пагинации для каждого и
 import java.util.logging.Level;
 import java.util.Optional; // Добавляем импорт Optional
 
-public class PunishmentHistoryCommand extends BaseCommand {
+public class PunishmentHistoryCommand extends BaseCommand implements Listener {
 
     private static final int ITEMS_PER_PAGE = 5; // Сколько записей на одной странице
-    // Карта для отслеживания текущих страниц для игроков и их целей просмотра
+    // Карта для отслеживания текущих страниц для игроков и их целей просмотра (null - консоль).
+    // Только в основном потоке; контекст игрока удаляется при выходе, первая страница начинает курсоры заново
     private final Map<UUID, PunishmentViewContext> playerContexts = new HashMap<>();
 
     public PunishmentHistoryCommand(AdventoraBans plugin) {
@@ -61,6 +66,10 @@ public class PunishmentHistoryCommand extends BaseCommand {
         // Получаем контекст для текущего игрока-отправителя
         PunishmentViewContext context = playerContexts.computeIfAbsent(senderUuid, k -> new PunishmentViewContext());
         context.setCurrentPage(page);
+        if (page == 1) {
+            // История меняется, а курсоры запоминают границы страниц на момент просмотра
+            context.resetPageCursors();
+        }
 
         if (targetInput != null) {
             // Если указана цель, обновляем контекст
@@ -73,27 +82,16 @@ public class PunishmentHistoryCommand extends BaseCommand {
         }
 
         String finalTargetInput = context.getTargetInput();
+        context.getPageCursors().useList(finalTargetInput == null ? "" : finalTargetInput.toLowerCase());
 
         if (finalTargetInput != null) {
             // Проверяем, является ли цель IP-адресом
             // Предполагаем, что у вас есть метод getIpUtils() в главном классе плагина
             if (IPUtils.isValidIpAddress(finalTargetInput)) {
-                // Это IP-адрес, показываем историю IP-банов
-                plugin.getDatabaseManager().getPunishmentHistory(finalTargetInput)
-                        .thenAccept(punishments -> {
-                            // Здесь мы получаем ВСЮ историю для IP, нужно вручную пагинировать
-                            int totalItems = punishments.size();
-                            int totalPages = (int) Math.ceil((double) totalItems / ITEMS_PER_PAGE);
-                            int currentPage = context.getCurrentPage();
-                            if (currentPage > totalPages && totalPages > 0) currentPage = totalPages;
-                            if (currentPage < 1) currentPage = 1;
-
-                            int startIndex = (currentPage - 1) * ITEMS_PER_PAGE;
-                            int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, totalItems);
-
-                            List<BanRecord> pagePunishments = (totalItems > 0) ? punishments.subList(startIndex, endIndex) : List.of();
-
-                            displayPunishments(sender, pagePunishments, totalItems, currentPage, totalPages, finalTargetInput, true); // true для IP
+                // Это IP-адрес, показываем историю наказаний по IP
+                plugin.getDatabaseManager().getPunishmentsCountByIp(finalTargetInput)
+                        .thenAccept(totalItems -> {
+                            displayPunishmentsForIp(sender, finalTargetInput, totalItems, context);
                         })
                         .exceptionally(ex -> {
                             sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
@@ -108,7 +106,7 @@ public class PunishmentHistoryCommand extends BaseCommand {
                                 UUID targetUuid = optionalUuid.get();
                                 plugin.getDatabaseManager().getPunishmentsCountByPlayerUuid(targetUuid)
                                         .thenAccept(totalItems -> {
-                                            displayPunishmentsForPlayer(sender, targetUuid, finalTargetInput, totalItems, context.getCurrentPage());
+                                            displayPunishmentsForPlayer(sender, targetUuid, finalTargetInput, totalItems, context);
                                         })
                                         .exceptionally(ex -> {
                                             sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
@@ -129,7 +127,7 @@ public class PunishmentHistoryCommand extends BaseCommand {
             // Просмотр глобальной истории
             plugin.getDatabaseManager().getTotalPunishmentsCount()
                     .thenAccept(totalItems -> {
-                        displayAllPunishments(sender, totalItems, context.getCurrentPage());
+                        displayAllPunishments(sender, totalItems, context);
                     })
                     .exceptionally(ex -> {
                         sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
@@ -139,20 +137,25 @@ public class PunishmentHistoryCommand extends BaseCommand {
         }
     }
 
-    private void displayPunishmentsForPlayer(CommandSender sender, UUID targetUuid, String targetName, int totalItems, int page) {
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        playerContexts.remove(event.getPlayer().getUniqueId());
+    }
+
+    private void displayPunishmentsForPlayer(CommandSender sender, UUID targetUuid, String targetName, int totalItems, PunishmentViewContext context) {
         int totalPages = (int) Math.ceil((double) totalItems / ITEMS_PER_PAGE);
+        int page = context.getCurrentPage();
         if (page > totalPages && totalPages > 0) page = totalPages;
         if (page < 1) page = 1;
 
-        int offset = (page - 1) * ITEMS_PER_PAGE;
-
         final int currentPageFinal = page; // Для использования в лямбде
 
         sender.sendMessage(plugin.getMessageManager().getMessage("history_header_player", Map.of("player_name", targetName, "page", String.valueOf(currentPageFinal), "total_pages", String.valueOf(totalPages))));
 
-        plugin.getDatabaseManager().getPunishmentsByPlayerUuid(targetUuid, ITEMS_PER_PAGE, offset)
+        context.getPageCursors().fetchPage(currentPageFinal, ITEMS_PER_PAGE,
+                        (after, skip, limit) -> plugin.getDatabaseManager().getPunishmentsPageByPlayerUuid(targetUuid, after, skip, limit))
                 .thenAccept(punishments -> {
-                    displayPunishments(sender, punishments, totalItems, currentPageFinal, totalPages, targetName, false); // false для игрока
+                    displayPunishments(sender, punishments.getRecords(), totalItems, currentPageFinal, totalPages, targetName, false); // false для игрока
                 })
                 .exceptionally(ex -> {
                     sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
@@ -161,20 +164,20 @@ public class PunishmentHistoryCommand extends BaseCommand {
                 });
     }
 
-    private void displayAllPunishments(CommandSender sender, int totalItems, int page) {
+    private void displayAllPunishments(CommandSender sender, int totalItems, PunishmentViewContext context) {
         int totalPages = (int) Math.ceil((double) totalItems / ITEMS_PER_PAGE);
+        int page = context.getCurrentPage();
         if (page > totalPages && totalPages > 0) page = totalPages;
         if (page < 1) page = 1;
 
-        int offset = (page - 1) * ITEMS_PER_PAGE;
-
         final int currentPageFinal = page; // Для использования в лямбде
 
         sender.sendMessage(plugin.getMessageManager().getMessage("history_header_global", Map.of("page", String.valueOf(currentPageFinal), "total_pages", String.valueOf(totalPages))));
 
-        plugin.getDatabaseManager().getAllPunishments(ITEMS_PER_PAGE, offset)
+        context.getPageCursors().fetchPage(currentPageFinal, ITEMS_PER_PAGE,
+                        (after, skip, limit) -> plugin.getDatabaseManager().getPunishmentsPage(after, skip, limit))
                 .thenAccept(punishments -> {
-                    displayPunishments(sender, punishments, totalItems, currentPageFinal, totalPages, null, false); // null для глобальной, false для игрока
+                    displayPunishments(sender, punishments.getRecords(), totalItems, currentPageFinal, totalPages, null, false); // null для глобальной, false для игрока
                 })
                 .exceptionally(ex -> {
                     sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
@@ -183,6 +186,26 @@ public class PunishmentHistoryCommand extends BaseCommand {
                 });
     }
 
+    private void displayPunishmentsForIp(CommandSender sender, String ipAddress, int totalItems, PunishmentViewContext context) {
+        int totalPages = (int) Math.ceil((double) totalItems / ITEMS_PER_PAGE);
+        int page = context.getCurrentPage();
+        if (page > totalPages && totalPages > 0) page = totalPages;
+        if (page < 1) page = 1;
+
+        final int currentPageFinal = page; // Для использования в лямбде
+
+        context.getPageCursors().fetchPage(currentPageFinal, ITEMS_PER_PAGE,
+                        (after, skip, limit) -> plugin.getDatabaseManager().getPunishmentsPageByIp(ipAddress, after, skip, limit))
+                .thenAccept(punishments -> {
+                    displayPunishments(sender, punishments.getRecords(), totalItems, currentPageFinal, totalPages, ipAddress, true); // true для IP
+                })
+                .exceptionally(ex -> {
+                    sender.sendMessage(plugin.getMessageManager().getMessage("database_error"));
+                    plugin.getLogger().log(Level.SEVERE, "Ошибка при получении истории наказаний для IP " + ipAddress + ": " + ex.getMessage(), ex);
+                    return null;
+                });
+    }
+
     private void displayPunishments(CommandSender sender, List<BanRecord> punishments, int totalItems, int currentPage, int totalPages, String targetNameOrIp, boolean isIpHistory) {
         if (punishments.isEmpty() && totalItems > 0) {
             sender.sendMessage(plugin.getMessageManager().getMessage("no_punishments_found_on_page")); // Новое сообщение
@@ -266,6 +289,7 @@ public class PunishmentHistoryCommand extends BaseCommand {
     private static class PunishmentViewContext {
         private String targetInput; // null для глобальной истории, может быть никнейм или IP
         private int currentPage;
+        private PageCursorCache pageCursors = new PageCursorCache(); // Курсоры страниц текущей цели
 
         public PunishmentViewContext() {
             this.currentPage = 1;
@@ -286,5 +310,13 @@ public class PunishmentHistoryCommand extends BaseCommand {
         public void setCurrentPage(int currentPage) {
             this.currentPage = currentPage;
         }
+
+        public PageCursorCache getPageCursors() {
+            return pageCursors;
+        }
+
+        public void resetPageCursors() {
+            this.pageCursors = new PageCursorCache();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+
+import java.util.List;
+
+/**
+ * Страница наказаний, полученная по курсору.
+ */
+public final class PunishmentPage {
+
+    private final List<BanRecord> records;
+    private final PunishmentCursor nextCursor;
+
+    public PunishmentPage(List<BanRecord> records, PunishmentCursor nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return Записи страницы (новые вверху).
+     */
+    public List<BanRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return Курсор для запроса следующей страницы или null, если это последняя страница.
+     */
+    public PunishmentCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,166 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.punishments.PunishmentType;
+
+import java.util.EnumMap;
+
+/**
+ * Реестр SQL-запросов к таблице punishments, зависящих от типа наказания или числа параметров.
+ * Все варианты строятся один раз при загрузке класса: тип наказания сводится к своей группе
+ * (BAN/TEMPBAN, MUTE/TEMPMUTE - диапазоном кодов категории, остальные по отдельности) и подставляется литералом, а списки IN (?, ...)
+ * берутся готовыми по длине. Поэтому каждый вызов передает драйверу одну и ту же строку SQL,
+ * и подготовленный запрос берется из кэша соединения (MySQL: cachePrepStmts + useServerPrepStmts;
+ * SQLite: {@link SQLiteStatementCache} для запросов входа и мутов), а не разбирается заново.
+ */
+final class PunishmentQueries {
+
+    private static final int MAX_CACHED_PLACEHOLDERS = 128; // Не меньше пропусков журнала событий и числа типов наказаний
+
+    private static final EnumMap<PunishmentType, String> TYPE_CONDITIONS = new EnumMap<>(PunishmentType.class);
+    private static final EnumMap<PunishmentType, String> ACTIVE_BY_UUID = new EnumMap<>(PunishmentType.class);
+    private static final EnumMap<PunishmentType, String> ACTIVE_BY_UUID_CONDITIONS = new EnumMap<>(PunishmentType.class);
+    private static final EnumMap<PunishmentType, String> DEACTIVATE_BY_UUID = new EnumMap<>(PunishmentType.class);
+    private static final String[] PLACEHOLDERS = new String[MAX_CACHED_PLACEHOLDERS + 1];
+    private static final String[] ACTIVE_BY_TYPES = new String[PunishmentType.values().length + 1];
+
+    // Самый узкий диапазон (наибольший префикс), среди равных - самый свежий бан
+    private static final String ACTIVE_IP_RANGE_BAN = "SELECT " + PunishmentRowMapper.columns("p.") + " FROM ip_ban_ranges r JOIN punishments p ON p.id = r.punishment_id " +
+            "WHERE r.range_start <= ? AND r.range_end >= ? AND p.active = TRUE AND " + categoryRange("p.type", PunishmentType.IP_BAN, PunishmentType.IP_BAN) + " " +
+            "AND (p.expire_time = 0 OR p.expire_time > ?) ORDER BY r.prefix_length DESC, p.ban_time DESC LIMIT 1";
+
+    // Каждая ветка - лучший бан своего вида по своему индексу (idx_punishments_uuid_active, idx_punishments_ip_active,
+    // idx_ip_ban_ranges_range); login_priority выбирает среди них бан по UUID, затем по IP, затем по диапазону
+    private static final String LOGIN_BAN = "SELECT * FROM (" +
+            "SELECT * FROM (SELECT " + PunishmentRowMapper.columns("p.") + ", 0 AS login_priority FROM punishments p " +
+            "WHERE p.punished_uuid = ? AND p.active = TRUE AND " + categoryRange("p.type", PunishmentType.BAN, PunishmentType.BAN) + " AND (p.expire_time = 0 OR p.expire_time > ?) " +
+            "ORDER BY p.ban_time DESC LIMIT 1) uuid_ban " +
+            "UNION ALL " +
+            "SELECT * FROM (SELECT " + PunishmentRowMapper.columns("p.") + ", 1 AS login_priority FROM punishments p " +
+            "WHERE p.punished_ip = ? AND p.active = TRUE AND " + categoryRange("p.type", PunishmentType.IP_BAN, PunishmentType.IP_BAN) + " AND (p.expire_time = 0 OR p.expire_time > ?) " +
+            "ORDER BY p.ban_time DESC LIMIT 1) ip_ban " +
+            "UNION ALL " +
+            "SELECT * FROM (SELECT " + PunishmentRowMapper.columns("p.") + ", 2 AS login_priority FROM ip_ban_ranges r JOIN punishments p ON p.id = r.punishment_id " +
+            "WHERE r.range_start <= ? AND r.range_end >= ? AND p.active = TRUE AND " + categoryRange("p.type", PunishmentType.IP_BAN, PunishmentType.IP_BAN) + " " +
+            "AND (p.expire_time = 0 OR p.expire_time > ?) ORDER BY r.prefix_length DESC, p.ban_time DESC LIMIT 1) range_ban" +
+            ") login_bans ORDER BY login_priority LIMIT 1";
+
+    static {
+        for (PunishmentType type : PunishmentType.values()) {
+            String typeCondition = switch (type) {
+                case BAN, TEMPBAN, MUTE, TEMPMUTE -> categoryRange("type", type, type);
+                default -> "type = " + type.getCode();
+            };
+            TYPE_CONDITIONS.put(type, typeCondition);
+            ACTIVE_BY_UUID.put(type, "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE punished_uuid = ? AND " + typeCondition +
+                    " AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC LIMIT 1");
+            String activeCondition = "punished_uuid = ? AND " + typeCondition + " AND active = TRUE";
+            ACTIVE_BY_UUID_CONDITIONS.put(type, activeCondition);
+            DEACTIVATE_BY_UUID.put(type, "UPDATE punishments SET active = FALSE WHERE " + activeCondition);
+        }
+        StringBuilder builder = new StringBuilder();
+        PLACEHOLDERS[0] = "";
+        for (int i = 1; i <= MAX_CACHED_PLACEHOLDERS; i++) {
+            builder.append(i == 1 ? "?" : ", ?");
+            PLACEHOLDERS[i] = builder.toString();
+        }
+        for (int i = 1; i < ACTIVE_BY_TYPES.length; i++) {
+            ACTIVE_BY_TYPES[i] = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE type IN (" + PLACEHOLDERS[i] +
+                    ") AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC";
+        }
+    }
+
+    private PunishmentQueries() {
+    }
+
+    /**
+     * @param type Тип наказания.
+     * @return Условие на столбец type для группы типа, например "type BETWEEN 8 AND 15" для BAN/TEMPBAN.
+     */
+    static String typeCondition(PunishmentType type) {
+        return TYPE_CONDITIONS.get(type);
+    }
+
+    /**
+     * Условие "код типа в категориях от first до last включительно" (см. {@link PunishmentType#CATEGORY_MASK}).
+     * Например, BAN..IP_BAN - все баны по UUID и IP, BAN..MUTE - все баны и муты.
+     * @param column Столбец типа, например "type" или "p.type".
+     * @param first Тип первой категории.
+     * @param last Тип последней категории.
+     * @return Условие WHERE.
+     */
+    static String categoryRange(String column, PunishmentType first, PunishmentType last) {
+        return column + " BETWEEN " + first.getCategoryFirstCode() + " AND " + last.getCategoryLastCode();
+    }
+
+    /**
+     * Последнее действующее наказание группы типа по UUID. Параметры: punished_uuid, текущее время.
+     * @param type Тип наказания.
+     * @return SQL-запрос.
+     */
+    static String activeByUuid(PunishmentType type) {
+        return ACTIVE_BY_UUID.get(type);
+    }
+
+    /**
+     * Условие на активные наказания группы типа по UUID (для UPDATE и журнала событий). Параметр: punished_uuid.
+     * @param type Тип наказания.
+     * @return Условие WHERE.
+     */
+    static String activeByUuidCondition(PunishmentType type) {
+        return ACTIVE_BY_UUID_CONDITIONS.get(type);
+    }
+
+    /**
+     * Бан при входе: по UUID, по IP или по диапазону, в этом порядке.
+     * Параметры: punished_uuid, время, punished_ip, время, ключ диапазона дважды, время.
+     * @return SQL-запрос.
+     */
+    static String loginBan() {
+        return LOGIN_BAN;
+    }
+
+    /**
+     * Самый узкий действующий диапазонный IP-бан, содержащий адрес. Параметры: ключ диапазона дважды, текущее время.
+     * @return SQL-запрос.
+     */
+    static String activeIpRangeBan() {
+        return ACTIVE_IP_RANGE_BAN;
+    }
+
+    /**
+     * Деактивация активных наказаний группы типа по UUID. Параметр: punished_uuid.
+     * @param type Тип наказания.
+     * @return SQL-запрос.
+     */
+    static String deactivateByUuid(PunishmentType type) {
+        return DEACTIVATE_BY_UUID.get(type);
+    }
+
+    /**
+     * Действующие наказания нескольких типов, новые первыми. Параметры: типы, текущее время.
+     * @param typeCount Число типов в списке IN.
+     * @return SQL-запрос.
+     */
+    static String activeByTypes(int typeCount) {
+        if (typeCount > 0 && typeCount < ACTIVE_BY_TYPES.length) {
+            return ACTIVE_BY_TYPES[typeCount];
+        }
+        return "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments WHERE type IN (" + placeholders(typeCount) +
+                ") AND active = TRUE AND (expire_time = 0 OR expire_time > ?) ORDER BY ban_time DESC";
+    }
+
+    /**
+     * @param count Число параметров.
+     * @return Список "?, ?, ..." для IN (...).
+     */
+    static String placeholders(int count) {
+        if (count <= MAX_CACHED_PLACEHOLDERS) {
+            return PLACEHOLDERS[count];
+        }
+        StringBuilder builder = new StringBuilder(PLACEHOLDERS[MAX_CACHED_PLACEHOLDERS]);
+        for (int i = MAX_CACHED_PLACEHOLDERS; i < count; i++) {
+            builder.append(", ?");
+        }
+        return builder.toString();
+    }
+}
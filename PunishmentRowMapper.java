@@ -0,0 +1,73 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.UUIDUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Единственное место чтения строки punishments в {@link BanRecord}.
+ * Запросы выбирают столбцы списком {@link #COLUMNS} (а не SELECT *), поэтому значения читаются по номерам столбцов,
+ * без поиска по имени; UUID хранятся в 16 байтах и собираются из двух long, тип - числовым кодом, без разбора строк.
+ */
+public final class PunishmentRowMapper {
+
+    /**
+     * Число столбцов в {@link #COLUMNS}.
+     */
+    public static final int COLUMN_COUNT = 11;
+
+    /**
+     * Столбцы punishments в порядке чтения.
+     */
+    public static final String COLUMNS = columns("");
+
+    private PunishmentRowMapper() {
+    }
+
+    /**
+     * @param alias Префикс таблицы, например "p." для JOIN.
+     * @return Список столбцов punishments с префиксом в порядке чтения.
+     */
+    public static String columns(String alias) {
+        return alias + "id, " + alias + "punished_uuid, " + alias + "punished_name, " + alias + "punished_ip, " +
+                alias + "moderator_uuid, " + alias + "moderator_name, " + alias + "type, " + alias + "reason, " +
+                alias + "ban_time, " + alias + "expire_time, " + alias + "active";
+    }
+
+    /**
+     * Читает наказание из текущей строки, если столбцы {@link #COLUMNS} идут первыми.
+     * @param rs ResultSet, установленный на строку.
+     * @return Наказание.
+     * @throws SQLException при ошибке чтения.
+     */
+    public static BanRecord read(ResultSet rs) throws SQLException {
+        return read(rs, 1);
+    }
+
+    /**
+     * Читает наказание из текущей строки.
+     * @param rs ResultSet, установленный на строку.
+     * @param firstColumn Номер столбца id (столбцы {@link #COLUMNS} идут подряд начиная с него).
+     * @return Наказание.
+     * @throws SQLException при ошибке чтения.
+     */
+    public static BanRecord read(ResultSet rs, int firstColumn) throws SQLException {
+        return new BanRecord(
+                rs.getInt(firstColumn),
+                UUIDUtils.fromBytes(rs.getBytes(firstColumn + 1)),
+                rs.getString(firstColumn + 2),
+                IPUtils.fromStorageBytes(rs.getBytes(firstColumn + 3)),
+                UUIDUtils.fromBytes(rs.getBytes(firstColumn + 4)),
+                rs.getString(firstColumn + 5),
+                PunishmentType.fromCode(rs.getInt(firstColumn + 6)),
+                rs.getString(firstColumn + 7),
+                rs.getLong(firstColumn + 8),
+                rs.getLong(firstColumn + 9),
+                rs.getBoolean(firstColumn + 10)
+        );
+    }
+}
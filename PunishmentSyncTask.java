@@ -0,0 +1,91 @@
+package org.teverus.adventoraBans.tasks;
+
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.IpRange;
+import org.teverus.adventoraBans.util.TimeUtil;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Опрос журнала изменений наказаний (punishment_events) при работе нескольких серверов с общей БД.
+ * Менеджер БД применяет изменения других серверов к своим кэшам; задача кикает онлайн-игроков,
+ * забаненных на других серверах.
+ */
+public class PunishmentSyncTask extends BukkitRunnable {
+
+    private final AdventoraBans plugin;
+
+    public PunishmentSyncTask(AdventoraBans plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void run() {
+        plugin.getDatabaseManager().pollPunishmentEvents()
+                .thenAccept(added -> {
+                    if (!added.isEmpty()) {
+                        // kickPlayer должен вызываться в главном потоке
+                        plugin.getServer().getScheduler().runTask(plugin, () -> kickBannedPlayers(added));
+                    }
+                })
+                .exceptionally(ex -> {
+                    plugin.getLogger().log(Level.SEVERE, "Ошибка при синхронизации наказаний с другими серверами: " + ex.getMessage(), ex);
+                    return null;
+                });
+    }
+
+    private void kickBannedPlayers(List<BanRecord> records) {
+        for (BanRecord record : records) {
+            PunishmentType type = record.getPunishmentType();
+            if ((type == PunishmentType.BAN || type == PunishmentType.TEMPBAN) && record.getPunishedUuid() != null) {
+                Player player = plugin.getServer().getPlayer(record.getPunishedUuid());
+                if (player != null && player.isOnline()) {
+                    player.kickPlayer(plugin.getMessageManager().getMessage("player_banned_screen", buildPlaceholders(record, player.getName())));
+                }
+            } else if ((type == PunishmentType.IP_BAN || type == PunishmentType.TEMP_IP_BAN) && record.getPunishedIp() != null) {
+                IpRange range = IpRange.parse(record.getPunishedIp());
+                String bannedIp = IPUtils.normalizeIpAddress(record.getPunishedIp());
+                for (Player player : plugin.getServer().getOnlinePlayers()) {
+                    if (player.getAddress() == null || player.getAddress().getAddress() == null) {
+                        continue;
+                    }
+                    String playerIp = IPUtils.normalizeIpAddress(player.getAddress().getAddress().getHostAddress());
+                    if (range != null ? range.contains(playerIp) : playerIp.equals(bannedIp)) {
+                        player.kickPlayer(plugin.getMessageManager().getMessage("ip_banned_screen", buildPlaceholders(record, player.getName())));
+                    }
+                }
+            }
+            if (plugin.getConfigManager().isDebugModeEnabled()) {
+                plugin.getLogger().info("DEBUG: Применен бан ID " + record.getId() + " (" + type + ") с другого сервера.");
+            }
+        }
+    }
+
+    private Map<String, String> buildPlaceholders(BanRecord record, String playerName) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(plugin.getMessageManager().getMessage("date_format"));
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("player_name", playerName);
+        placeholders.put("ip", record.getPunishedIp() != null ? record.getPunishedIp() : "");
+        placeholders.put("reason", record.getReason());
+        placeholders.put("moderator_name", record.getModeratorName());
+        placeholders.put("ban_date", dateFormat.format(new Date(record.getBanTime())));
+        if (record.isPermanent()) {
+            placeholders.put("duration", plugin.getMessageManager().getMessage("duration_permanent"));
+            placeholders.put("expire_date", plugin.getMessageManager().getMessage("duration_permanent"));
+        } else {
+            placeholders.put("duration", TimeUtil.formatDuration(record.getExpireTime() - System.currentTimeMillis()));
+            placeholders.put("expire_date", dateFormat.format(new Date(record.getExpireTime())));
+        }
+        return placeholders;
+    }
+}
@@ -2,18 +2,98 @@ package org.teverus.adventoraBans.punishments;
 
 /**
  * Перечисление для типов наказаний.
+ *
+ * Каждый тип хранится в БД числовым кодом (столбец punishments.type, TINYINT): биты 3-6 - категория
+ * ({@link #CATEGORY_MASK}), младший бит - признак временного наказания ({@link #TEMPORARY_FLAG}).
+ * Коды одной категории идут подряд, а категории банов, IP-банов и мутов - друг за другом, поэтому
+ * "все баны" или "все баны и муты" в SQL - диапазон по индексу (см. {@link #getCategoryFirstCode()} и {@link #getCategoryLastCode()}).
+ * Выпущенные коды менять нельзя: они уже записаны в БД.
  */
 public enum PunishmentType {
-    BAN,
-    TEMPBAN,
-    MUTE,
-    TEMPMUTE,
-    KICK,
-    IP_BAN,
-    TEMP_IP_BAN,
-    IP_UNBAN, // Не совсем наказание, но тип записи для истории
-    UNBAN,    // Не совсем наказание
-    UNMUTE, IPTEMPBAN;   // Не совсем наказание
+    BAN(0x08),
+    TEMPBAN(0x09),
+    MUTE(0x18),
+    TEMPMUTE(0x19),
+    KICK(0x20),
+    IP_BAN(0x10),
+    TEMP_IP_BAN(0x11),
+    IP_UNBAN(0x2A), // Не совсем наказание, но тип записи для истории
+    UNBAN(0x28),    // Не совсем наказание
+    UNMUTE(0x2C);   // Не совсем наказание
+
+    /**
+     * Биты кода, задающие категорию (бан, IP-бан, мут, кик, снятие).
+     */
+    public static final int CATEGORY_MASK = 0x78;
+
+    /**
+     * Бит кода, отличающий временное наказание от постоянного той же категории.
+     */
+    public static final int TEMPORARY_FLAG = 0x01;
+
+    private static final PunishmentType[] BY_CODE = new PunishmentType[CATEGORY_MASK + 8];
+
+    static {
+        for (PunishmentType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    PunishmentType(int code) {
+        this.code = code;
+    }
+
+    /**
+     * @return Код типа в БД.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return Первый код категории типа (биты категории, остальные нули).
+     */
+    public int getCategoryFirstCode() {
+        return code & CATEGORY_MASK;
+    }
+
+    /**
+     * @return Последний код категории типа; коды категории - от {@link #getCategoryFirstCode()} до него включительно.
+     */
+    public int getCategoryLastCode() {
+        return (code & CATEGORY_MASK) | 0x07;
+    }
+
+    /**
+     * @param other Другой тип.
+     * @return true, если типы относятся к одной категории (например, BAN и TEMPBAN).
+     */
+    public boolean isSameCategory(PunishmentType other) {
+        return (code & CATEGORY_MASK) == (other.code & CATEGORY_MASK);
+    }
+
+    /**
+     * @return true для временных наказаний (TEMPBAN, TEMPMUTE, TEMP_IP_BAN).
+     */
+    public boolean isTemporary() {
+        return (code & TEMPORARY_FLAG) != 0;
+    }
+
+    /**
+     * Возвращает тип по коду из БД.
+     * @param code Код типа.
+     * @return Тип наказания.
+     * @throws IllegalArgumentException если такого кода нет.
+     */
+    public static PunishmentType fromCode(int code) {
+        PunishmentType type = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Неизвестный код типа наказания: " + code);
+        }
+        return type;
+    }
 
     /**
      * Возвращает базовый тип наказания (для проверки активных наказаний).
@@ -26,9 +106,8 @@ public enum PunishmentType {
             case TEMPMUTE:
                 return MUTE;
             case IP_UNBAN:
-                return IP_BAN;
             case TEMP_IP_BAN:
-                return IP_UNBAN;
+                return IP_BAN;
             default:
                 return this;
         }
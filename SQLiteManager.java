@@ -1,88 +1,151 @@
 package org.teverus.adventoraBans.database;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.teverus.adventoraBans.AdventoraBans;
-import org.teverus.adventoraBans.util.IPUtils;
 
 import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.concurrent.TimeUnit; // Добавьте этот импорт
 
 /**
  * Менеджер базы данных SQLite для AdventoraBans.
+ * SQLite допускает только одного писателя, поэтому используются два пула HikariCP:
+ * пул из одного соединения для записи и небольшой пул соединений для чтения.
+ * База работает в режиме WAL, в котором чтение не блокируется записью.
+ * Драйвер не кэширует подготовленные запросы, поэтому запросы входа и мутов переиспользуются через {@link SQLiteStatementCache}.
  */
 public class SQLiteManager extends AbstractDatabaseManager {
 
     private final String databasePath;
-    private static boolean driverLoaded = false; // Флаг, чтобы загружать драйвер только один раз
+    private HikariDataSource writeDataSource; // Единственное соединение для записи
+    private HikariDataSource readDataSource; // Пул соединений для чтения
+    private final SQLiteStatementCache statementCache = new SQLiteStatementCache(); // Запросы входа и мутов на соединениях чтения
 
     public SQLiteManager(AdventoraBans plugin) {
-        super(plugin);
+        super(plugin, Math.max(1, plugin.getConfigManager().getSQLiteReadPoolSize()) + 1); // Читатели и единственный писатель
         this.databasePath = plugin.getDataFolder().getAbsolutePath() + File.separator + "database.db";
-        // Загрузка драйвера при инициализации менеджера (один раз)
-        if (!driverLoaded) {
-            try {
-                Class.forName("org.sqlite.JDBC");
-                driverLoaded = true;
-                plugin.getLogger().info("SQLite JDBC драйвер успешно загружен.");
-            } catch (ClassNotFoundException e) {
-                plugin.getLogger().log(Level.SEVERE, "SQLite JDBC драйвер не найден! Функции БД не будут работать.", e);
-                // Можно добавить флаг ошибки, чтобы предотвратить дальнейшие попытки использования БД
-            }
+    }
+
+    @Override
+    public void connect() throws SQLException {
+        if (writeDataSource != null && !writeDataSource.isClosed()) {
+            return; // Уже подключены
         }
+
+        try {
+            // Сначала открываем писателя: он переводит файл БД в режим WAL до появления читателей
+            writeDataSource = new HikariDataSource(createPoolConfig("AdventoraBans-SQLite-Write", 1));
+            readDataSource = new HikariDataSource(createPoolConfig("AdventoraBans-SQLite-Read",
+                    Math.max(1, plugin.getConfigManager().getSQLiteReadPoolSize())));
+            plugin.getLogger().info("Подключение к SQLite установлено (режим журнала: " + plugin.getConfigManager().getSQLiteJournalMode() + ").");
+        } catch (Exception e) {
+            disconnectPools();
+            plugin.getLogger().log(Level.SEVERE, "Ошибка при подключении к SQLite: " + e.getMessage(), e);
+            throw new SQLException("Ошибка при инициализации пула соединений SQLite.", e);
+        }
+        createTables();
+        migrateSchema();
+        loadCaches();
+    }
+
+    /**
+     * Создает конфигурацию пула соединений к файлу БД.
+     * PRAGMA передаются драйверу sqlite-jdbc свойствами соединения и применяются к каждому новому соединению.
+     * @param poolName Имя пула (для логов HikariCP).
+     * @param poolSize Размер пула.
+     * @return Конфигурация HikariCP.
+     */
+    private HikariConfig createPoolConfig(String poolName, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.setJdbcUrl("jdbc:sqlite:" + databasePath);
+        config.addDataSourceProperty("journal_mode", plugin.getConfigManager().getSQLiteJournalMode());
+        config.addDataSourceProperty("synchronous", plugin.getConfigManager().getSQLiteSynchronous());
+        config.addDataSourceProperty("cache_size", String.valueOf(plugin.getConfigManager().getSQLiteCacheSize()));
+        config.addDataSourceProperty("mmap_size", String.valueOf(plugin.getConfigManager().getSQLiteMmapSize()));
+        config.addDataSourceProperty("busy_timeout", String.valueOf(plugin.getConfigManager().getSQLiteBusyTimeout()));
+        config.setPoolName(poolName);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(poolSize); // Соединения к локальному файлу дешевы в хранении, держим их открытыми
+        config.setConnectionTimeout(plugin.getConfigManager().getSQLiteBusyTimeout() + 5000L);
+        config.setMaxLifetime(0); // Локальный файл не обрывает соединения по таймауту
+        return config;
     }
 
     @Override
     protected Connection getConnection() throws SQLException {
-        // Каждый раз возвращаем новое соединение.
-        // try-with-resources в AbstractDatabaseManager будет отвечать за его закрытие.
-        if (!driverLoaded) {
-            throw new SQLException("SQLite JDBC драйвер не загружен. Невозможно получить соединение.");
+        if (readDataSource == null || readDataSource.isClosed()) {
+            throw new SQLException("Пул соединений SQLite не инициализирован или закрыт.");
         }
-        return DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+        return readDataSource.getConnection();
+    }
+
+    @Override
+    protected Connection getWriteConnection() throws SQLException {
+        if (writeDataSource == null || writeDataSource.isClosed()) {
+            throw new SQLException("Пул соединений SQLite не инициализирован или закрыт.");
+        }
+        return writeDataSource.getConnection();
+    }
+
+    @Override
+    protected PreparedStatement prepareHotStatement(Connection conn, String sql) throws SQLException {
+        return statementCache.prepare(conn, sql);
     }
 
     @Override
     public void disconnect() {
         super.disconnect(); // Завершаем пул потоков (executor) из AbstractDatabaseManager
-        // В SQLiteManager больше нет поля 'connection' для явного закрытия здесь,
-        // так как каждое соединение закрывается сразу после использования в try-with-resources.
-        plugin.getLogger().info("Отключение от SQLite базы данных завершено (соединения закрываются по мере использования).");
+        disconnectPools();
+        plugin.getLogger().info("Отключение от SQLite базы данных завершено.");
+    }
+
+    private void disconnectPools() {
+        statementCache.clear(); // Запросы закрываются вместе со своими соединениями
+        if (readDataSource != null) {
+            readDataSource.close();
+        }
+        if (writeDataSource != null) {
+            writeDataSource.close(); // Закрывается последним: при закрытии последнего соединения SQLite сбрасывает WAL в основной файл
+        }
+    }
+
+    @Override
+    protected SqlDialect getDialect() {
+        return SqlDialect.SQLITE;
     }
 
     @Override
     protected void createTables() {
-        try (Connection conn = getConnection();
+        try (Connection conn = getWriteConnection();
              Statement stmt = conn.createStatement()) {
 
             // Таблица для наказаний
             String punishmentsTable = "CREATE TABLE IF NOT EXISTS punishments (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "punished_uuid TEXT NULL," + // UUID игрока (ЯВНО УКАЗАНО NULL)
+                    "punished_uuid BLOB NULL," + // UUID игрока, 16 байт (UUIDUtils.toBytes) (ЯВНО УКАЗАНО NULL)
                     "punished_name TEXT NULL," + // Имя игрока (на момент наказания) (ЯВНО УКАЗАНО NULL)
-                    "punished_ip TEXT NULL," + // IP-адрес игрока (для IP-банов) (ЯВНО УКАЗАНО NULL)
-                    "moderator_uuid TEXT," + // UUID модератора
+                    "punished_ip BLOB NULL," + // IP-адрес или CIDR-диапазон в бинарном виде (IPUtils.toStorageBytes) (ЯВНО УКАЗАНО NULL)
+                    "moderator_uuid BLOB," + // UUID модератора, 16 байт
                     "moderator_name TEXT NOT NULL," + // Имя модератора (всегда должно быть)
-                    "type TEXT NOT NULL," + // Тип наказания (BAN, MUTE, KICK, IP_BAN)
+                    "type INTEGER NOT NULL," + // Код типа наказания (PunishmentType.getCode())
                     "reason TEXT NOT NULL," + // Причина наказания
                     "ban_time INTEGER NOT NULL," + // Время выдачи (Unix timestamp)
                     "expire_time INTEGER NOT NULL," + // Время истечения (0 для перманентного)
                     "active BOOLEAN NOT NULL" + // Активно ли наказание
-                    ");";
+                    ");"; // Индексы создаются миграциями схемы (SchemaMigrator)
             stmt.execute(punishmentsTable);
             plugin.getLogger().info("Таблица 'punishments' проверена/создана.");
 
             // Таблица для хранения последних IP-адресов игроков
             String playerIpsTable = "CREATE TABLE IF NOT EXISTS player_ips (" +
                     "player_uuid TEXT PRIMARY KEY," + // UUID игрока
-                    "ip_address TEXT NOT NULL," + // Последний известный IP
+                    "ip_address BLOB NOT NULL," + // Последний известный IP в бинарном виде
                     "last_seen INTEGER NOT NULL" + // Последнее время входа с этим IP
                     ");";
             stmt.execute(playerIpsTable);
@@ -92,36 +155,4 @@ public class SQLiteManager extends AbstractDatabaseManager {
             plugin.getLogger().log(Level.SEVERE, "Не удалось создать таблицы SQLite: " + e.getMessage(), e);
         }
     }
-
-    @Override
-    public CompletableFuture<Void> savePlayerIp(UUID playerUuid, String ipAddress) {
-        // Удалено: plugin.getLogger().info("DEBUG: SQLiteManager: Попытка сохранения/обновления IP для UUID " + playerUuid + ", IP: " + ipAddress);
-        return CompletableFuture.runAsync(() -> {
-            String normalizedIpAddress = IPUtils.normalizeIpAddress(ipAddress);
-            // ON CONFLICT(player_uuid) DO UPDATE SET ... - это специфично для SQLite
-            String sql = "INSERT INTO player_ips (player_uuid, ip_address, last_seen) VALUES (?, ?, ?) " +
-                    "ON CONFLICT(player_uuid) DO UPDATE SET ip_address = ?, last_seen = ?";
-            try (Connection conn = getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, playerUuid.toString());
-                stmt.setString(2, normalizedIpAddress);
-                stmt.setLong(3, System.currentTimeMillis());
-                stmt.setString(4, normalizedIpAddress);
-                stmt.setLong(5, System.currentTimeMillis());
-                // Удалено: plugin.getLogger().info("DEBUG: SQLiteManager: Выполняем SQL INSERT/UPDATE для player_ips: " + stmt.toString().replaceFirst(".*: ", ""));
-                int rowsAffected = stmt.executeUpdate();
-                /*
-                // Удалены эти DEBUG-логи, так как они не являются критическими информационными сообщениями.
-                if (rowsAffected > 0) {
-                    plugin.getLogger().info("DEBUG: SQLiteManager: IP для " + playerUuid + " успешно сохранен/обновлен. Строк затронуто: " + rowsAffected);
-                } else {
-                    plugin.getLogger().warning("DEBUG: SQLiteManager: Сохранение/обновление IP для " + playerUuid + " не затронуло ни одной строки.");
-                }
-                */
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Ошибка при сохранении/обновлении IP для " + playerUuid + ": " + e.getMessage(), e);
-                throw new CompletionException(e);
-            }
-        }, executor);
-    }
 }
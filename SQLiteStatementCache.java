@@ -0,0 +1,84 @@
+package org.teverus.adventoraBans.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Подготовленные запросы SQLite, переиспользуемые на одном физическом соединении пула.
+ * В sqlite-jdbc нет кэша подготовленных запросов: каждый prepareStatement заново разбирает и компилирует SQL,
+ * что для коротких запросов проверки входа и мута сравнимо с самим поиском по индексу.
+ *
+ * Выданный запрос закрывается вызывающим как обычно (try-with-resources): close() только сбрасывает параметры,
+ * а сам запрос остается открытым до закрытия соединения. Соединение пула используется одним потоком за раз,
+ * поэтому запросы одного соединения не разделяются между потоками.
+ */
+final class SQLiteStatementCache {
+
+    // Физическое соединение -> SQL -> запрос; записи закрытых соединений удаляются при появлении нового соединения
+    private final Map<Connection, Map<String, PreparedStatement>> statements = new IdentityHashMap<>();
+
+    /**
+     * Возвращает подготовленный запрос для соединения, при первом обращении подготавливая его.
+     * @param pooledConnection Соединение, полученное из пула HikariCP.
+     * @param sql Текст запроса (одна и та же строка для каждого вызова, см. {@link PunishmentQueries}).
+     * @return Подготовленный запрос, закрываемый вызывающим.
+     * @throws SQLException если запрос не удалось подготовить.
+     */
+    PreparedStatement prepare(Connection pooledConnection, String sql) throws SQLException {
+        // HikariCP отдает обертку, которая живет до возврата в пул; кэш привязан к соединению драйвера под ней
+        Connection connection = pooledConnection.unwrap(Connection.class);
+        Map<String, PreparedStatement> connectionStatements;
+        synchronized (statements) {
+            connectionStatements = statements.get(connection);
+            if (connectionStatements == null) {
+                statements.keySet().removeIf(SQLiteStatementCache::isClosed); // Соединения, замененные пулом
+                connectionStatements = new HashMap<>();
+                statements.put(connection, connectionStatements);
+            }
+        }
+        PreparedStatement statement = connectionStatements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = reusable(connection.prepareStatement(sql));
+            connectionStatements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Забывает все запросы; вызывается перед закрытием пулов, которые закрывают соединения вместе с их запросами.
+     */
+    void clear() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    private static PreparedStatement reusable(PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(SQLiteStatementCache.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                        statement.clearParameters(); // Запрос остается в кэше; его ResultSet уже закрыт вызывающим
+                        return null;
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.teverus.adventoraBans.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Один шаг миграции схемы БД.
+ * Шаги применяются строго по возрастанию версии, каждый ровно один раз;
+ * примененные версии записываются в таблицу schema_version.
+ */
+public final class SchemaMigration {
+
+    /**
+     * Действие миграции.
+     */
+    @FunctionalInterface
+    public interface Step {
+        /**
+         * @param connection Соединение для записи (в транзакции, если диалект поддерживает транзакционный DDL).
+         * @param dialect Диалект БД.
+         * @throws SQLException если миграцию не удалось применить.
+         */
+        void apply(Connection connection, SqlDialect dialect) throws SQLException;
+    }
+
+    private final int version;
+    private final String description;
+    private final Step step;
+
+    public SchemaMigration(int version, String description, Step step) {
+        this.version = version;
+        this.description = description;
+        this.step = step;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void apply(Connection connection, SqlDialect dialect) throws SQLException {
+        step.apply(connection, dialect);
+    }
+}
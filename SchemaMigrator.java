@@ -0,0 +1,414 @@
+package org.teverus.adventoraBans.database;
+
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.UUIDUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Применяет миграции схемы БД, общие для SQLite и MySQL.
+ * Текущая версия схемы хранится в таблице schema_version; при подключении применяются
+ * все миграции с большей версией в порядке возрастания.
+ *
+ * Новые миграции добавляются только в конец списка {@link #MIGRATIONS} со следующим номером версии.
+ * Уже выпущенные миграции менять нельзя: на существующих БД они не будут выполнены повторно.
+ */
+public class SchemaMigrator {
+
+    private static final List<SchemaMigration> MIGRATIONS = List.of(
+            new SchemaMigration(1, "Индексы для поиска активных наказаний, истории и имен", (conn, dialect) -> {
+                // Поиск активного наказания: WHERE punished_uuid/punished_ip = ? AND active AND type ... ORDER BY ban_time DESC
+                createIndex(conn, dialect, "punishments", "idx_punishments_uuid_active", "punished_uuid, active, type, ban_time");
+                createIndex(conn, dialect, "punishments", "idx_punishments_ip_active", "punished_ip, active, type, ban_time");
+                // История: WHERE punished_uuid/punished_ip = ? ORDER BY ban_time DESC
+                createIndex(conn, dialect, "punishments", "idx_punishments_uuid_history", "punished_uuid, ban_time");
+                createIndex(conn, dialect, "punishments", "idx_punishments_ip_history", "punished_ip, ban_time");
+                // Поиск UUID по имени: WHERE punished_name = ? ORDER BY ban_time DESC
+                createIndex(conn, dialect, "punishments", "idx_punishments_name", "punished_name, ban_time");
+                // Общий список наказаний: ORDER BY active DESC, ban_time DESC
+                createIndex(conn, dialect, "punishments", "idx_punishments_active_time", "active, ban_time");
+                // Загрузка всех активных наказаний (индекс банов, очистка); в MySQL уже создавался вместе с таблицей
+                createIndex(conn, dialect, "punishments", "idx_active_type", "active, type");
+                // Последний игрок по IP: WHERE ip_address = ? ORDER BY last_seen DESC
+                createIndex(conn, dialect, "player_ips", "idx_player_ips_ip", "ip_address, last_seen");
+                // Старые индексы MySQL полностью покрываются новыми
+                dropIndex(conn, dialect, "punishments", "idx_punished_uuid");
+                dropIndex(conn, dialect, "punishments", "idx_punished_ip");
+            }),
+            new SchemaMigration(2, "Индекс для очистки истекших наказаний", (conn, dialect) -> {
+                // Очистка: WHERE active = TRUE AND expire_time BETWEEN ? AND ?
+                createIndex(conn, dialect, "punishments", "idx_punishments_active_expire", "active, expire_time");
+            }),
+            new SchemaMigration(3, "Индекс для постраничного просмотра истории по курсору", (conn, dialect) -> {
+                // Общая история: ORDER BY ban_time DESC, id DESC с условием (ban_time, id) < курсора
+                createIndex(conn, dialect, "punishments", "idx_punishments_time", "ban_time, id");
+            }),
+            new SchemaMigration(4, "Таблица диапазонов CIDR IP-банов", (conn, dialect) -> {
+                // Границы диапазона - 16-байтовые адреса в hex (IPv4 как ::ffff:a.b.c.d), сравниваются как строки
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS ip_ban_ranges (" +
+                            (dialect == SqlDialect.SQLITE ? "punishment_id INTEGER PRIMARY KEY," : "punishment_id INT PRIMARY KEY,") +
+                            (dialect == SqlDialect.SQLITE ? "network TEXT NOT NULL," : "network VARCHAR(64) NOT NULL,") +
+                            "prefix_length INT NOT NULL," +
+                            (dialect == SqlDialect.SQLITE ? "range_start TEXT NOT NULL," : "range_start CHAR(32) NOT NULL,") +
+                            (dialect == SqlDialect.SQLITE ? "range_end TEXT NOT NULL" : "range_end CHAR(32) NOT NULL") +
+                            ")");
+                }
+                // Поиск диапазонов, содержащих адрес: WHERE range_start <= ? AND range_end >= ?
+                createIndex(conn, dialect, "ip_ban_ranges", "idx_ip_ban_ranges_range", "range_start, range_end");
+            }),
+            new SchemaMigration(5, "Бинарное хранение IP-адресов", (conn, dialect) -> {
+                // Адрес - 4/16 байт, CIDR-диапазон - адрес сети и байт длины префикса (см. IPUtils.toStorageBytes).
+                // Разные записи одного адреса ("::1" и "0:0:0:0:0:0:0:1") после перекодирования совпадают.
+                if (dialect == SqlDialect.MYSQL) {
+                    // Сначала тип без потери текста, чтобы перекодировать значения на месте
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE punishments MODIFY punished_ip VARBINARY(64) NULL");
+                        stmt.execute("ALTER TABLE player_ips MODIFY ip_address VARBINARY(64) NOT NULL");
+                    }
+                }
+                // В SQLite тип столбца не ограничивает значения: BLOB хранится как есть и в старом столбце TEXT
+                convertIpColumn(conn, "punishments", "id", "punished_ip", true);
+                convertIpColumn(conn, "player_ips", "player_uuid", "ip_address", false);
+                if (dialect == SqlDialect.MYSQL) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE punishments MODIFY punished_ip VARBINARY(17) NULL");
+                        stmt.execute("ALTER TABLE player_ips MODIFY ip_address VARBINARY(17) NOT NULL");
+                    }
+                }
+            }),
+            new SchemaMigration(6, "История IP-адресов игроков", (conn, dialect) -> {
+                // В player_ips хранится только последний IP игрока; здесь - каждая пара аккаунт - IP
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS player_ip_history (" +
+                            (dialect == SqlDialect.SQLITE ? "player_uuid TEXT NOT NULL," : "player_uuid VARCHAR(36) NOT NULL,") +
+                            (dialect == SqlDialect.SQLITE ? "ip_address BLOB NOT NULL," : "ip_address VARBINARY(16) NOT NULL,") +
+                            "first_seen BIGINT NOT NULL," +
+                            "last_seen BIGINT NOT NULL," +
+                            "login_count INT NOT NULL," +
+                            "PRIMARY KEY (player_uuid, ip_address)" + // Прямое направление: IP аккаунта
+                            ")");
+                    // Уже известные последние IP становятся первыми записями истории
+                    stmt.execute((dialect == SqlDialect.SQLITE ? "INSERT OR IGNORE" : "INSERT IGNORE") +
+                            " INTO player_ip_history (player_uuid, ip_address, first_seen, last_seen, login_count)" +
+                            " SELECT player_uuid, ip_address, last_seen, last_seen, 1 FROM player_ips");
+                }
+                // Обратное направление: аккаунты IP
+                createIndex(conn, dialect, "player_ip_history", "idx_player_ip_history_ip", "ip_address, player_uuid");
+            }),
+            new SchemaMigration(7, "Журнал изменений наказаний для синхронизации серверов", (conn, dialect) -> {
+                // Каждая выдача/снятие наказания получает возрастающий id; серверы читают журнал с последнего прочитанного id
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE TABLE IF NOT EXISTS punishment_events (" +
+                            (dialect == SqlDialect.SQLITE ? "id INTEGER PRIMARY KEY AUTOINCREMENT," : "id BIGINT AUTO_INCREMENT PRIMARY KEY,") +
+                            "punishment_id INT NOT NULL," +
+                            "action VARCHAR(16) NOT NULL," +
+                            "origin VARCHAR(64) NOT NULL," +
+                            "created_at BIGINT NOT NULL" +
+                            ")");
+                }
+                // Удаление старых событий: WHERE created_at < ?
+                createIndex(conn, dialect, "punishment_events", "idx_punishment_events_created", "created_at");
+            }),
+            new SchemaMigration(8, "Бинарное хранение UUID в punishments", (conn, dialect) -> {
+                // UUID - 16 байт (старшие, затем младшие 8 байт, см. UUIDUtils) вместо 36 символов текста
+                if (dialect == SqlDialect.MYSQL) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE punishments MODIFY punished_uuid VARBINARY(36) NULL, MODIFY moderator_uuid VARBINARY(36) NULL");
+                    }
+                }
+                convertUuidColumn(conn, "punishments", "id", "punished_uuid");
+                convertUuidColumn(conn, "punishments", "id", "moderator_uuid");
+                if (dialect == SqlDialect.MYSQL) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE punishments MODIFY punished_uuid BINARY(16) NULL, MODIFY moderator_uuid BINARY(16) NULL");
+                    }
+                }
+            }),
+            new SchemaMigration(9, "Числовые коды типов наказаний", (conn, dialect) -> {
+                // Имя типа заменяется кодом PunishmentType.getCode(); шаг пропускается, если столбец уже числовой
+                if (isIntegerColumn(conn, "punishments", "type")) {
+                    return;
+                }
+                // Строку с неизвестным именем нельзя перевести в код: миграция не применяется, пока такие строки есть
+                checkTypeNames(conn);
+                if (dialect == SqlDialect.MYSQL) {
+                    // Коды записываются строками в старый столбец и приводятся к числу при смене типа
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.executeUpdate("UPDATE punishments SET type = " + typeCodeCase("type"));
+                        stmt.execute("ALTER TABLE punishments MODIFY type TINYINT NOT NULL");
+                    }
+                } else {
+                    // В столбце TEXT SQLite сравнивает коды как строки ('9' > '15'), поэтому нужен новый столбец INTEGER.
+                    // Старый столбец удаляется вместе с индексами по нему, индексы создаются заново
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE punishments ADD COLUMN type_code INTEGER NOT NULL DEFAULT 0");
+                        stmt.executeUpdate("UPDATE punishments SET type_code = " + typeCodeCase("type"));
+                    }
+                    dropIndex(conn, dialect, "punishments", "idx_punishments_uuid_active");
+                    dropIndex(conn, dialect, "punishments", "idx_punishments_ip_active");
+                    dropIndex(conn, dialect, "punishments", "idx_active_type");
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE punishments DROP COLUMN type");
+                        stmt.execute("ALTER TABLE punishments RENAME COLUMN type_code TO type");
+                    }
+                    createIndex(conn, dialect, "punishments", "idx_punishments_uuid_active", "punished_uuid, active, type, ban_time");
+                    createIndex(conn, dialect, "punishments", "idx_punishments_ip_active", "punished_ip, active, type, ban_time");
+                    createIndex(conn, dialect, "punishments", "idx_active_type", "active, type");
+                }
+            })
+    );
+
+    private final AdventoraBans plugin;
+    private final SqlDialect dialect;
+
+    public SchemaMigrator(AdventoraBans plugin, SqlDialect dialect) {
+        this.plugin = plugin;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Приводит схему БД к последней версии.
+     * @param connection Соединение для записи.
+     * @throws SQLException если какая-либо миграция не была применена. Последующие миграции в этом случае не выполняются.
+     */
+    public void migrate(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY," +
+                    "description VARCHAR(255) NOT NULL," +
+                    "applied_at BIGINT NOT NULL" +
+                    // Описания миграций на русском: без явной кодировки таблица в БД с latin1 по умолчанию (MariaDB, MySQL 5.7) их не примет
+                    (dialect == SqlDialect.MYSQL ? ") DEFAULT CHARSET=utf8mb4" : ")"));
+        }
+
+        int currentVersion = getCurrentVersion(connection);
+        if (currentVersion == 0 && dialect == SqlDialect.MYSQL) {
+            // Пустая таблица могла остаться в latin1 после неудачного первого запуска
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("ALTER TABLE schema_version CONVERT TO CHARACTER SET utf8mb4");
+            }
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            for (SchemaMigration migration : MIGRATIONS) {
+                if (migration.getVersion() <= currentVersion) {
+                    continue;
+                }
+                connection.setAutoCommit(false);
+                try {
+                    migration.apply(connection, dialect);
+                    try (PreparedStatement stmt = connection.prepareStatement(
+                            "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                        stmt.setInt(1, migration.getVersion());
+                        stmt.setString(2, migration.getDescription());
+                        stmt.setLong(3, System.currentTimeMillis());
+                        stmt.executeUpdate();
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    // В MySQL DDL фиксируется сразу, поэтому шаги миграций должны быть повторяемыми (см. createIndex/dropIndex)
+                    connection.rollback();
+                    throw new SQLException("Не удалось применить миграцию схемы " + migration.getVersion() + " (" + migration.getDescription() + "): " + e.getMessage(), e);
+                }
+                plugin.getLogger().info("Применена миграция схемы БД " + migration.getVersion() + ": " + migration.getDescription());
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0; // MAX по пустой таблице дает NULL, getInt вернет 0
+        }
+    }
+
+    /**
+     * Перекодирует текстовые IP-адреса столбца в бинарный вид.
+     * Значения, которые не удалось разобрать, обнуляются (nullable) или удаляются вместе со строкой.
+     * Уже перекодированные значения пропускаются, поэтому шаг повторяем после сбоя на MySQL.
+     */
+    private static void convertIpColumn(Connection connection, String table, String keyColumn, String ipColumn, boolean nullable) throws SQLException {
+        // Строки читаются целиком до обновления: обновлять столбец, по индексу которого идет чтение, небезопасно
+        List<Object> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT " + keyColumn + ", " + ipColumn + " FROM " + table + " WHERE " + ipColumn + " IS NOT NULL")) {
+            while (rs.next()) {
+                keys.add(rs.getObject(1));
+                values.add(rs.getBytes(2));
+            }
+        }
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET " + ipColumn + " = ? WHERE " + keyColumn + " = ?");
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE " + keyColumn + " = ?")) {
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] stored = IPUtils.toStorageBytes(new String(values.get(i), StandardCharsets.UTF_8));
+                if (stored == null && isStorageForm(values.get(i))) {
+                    continue;
+                }
+                if (stored != null) {
+                    update.setBytes(1, stored);
+                    update.setObject(2, keys.get(i));
+                    update.addBatch();
+                } else if (nullable) {
+                    update.setNull(1, Types.VARBINARY);
+                    update.setObject(2, keys.get(i));
+                    update.addBatch();
+                } else {
+                    delete.setObject(1, keys.get(i));
+                    delete.addBatch();
+                }
+                if ((i + 1) % 500 == 0) {
+                    update.executeBatch();
+                    delete.executeBatch();
+                }
+            }
+            update.executeBatch();
+            delete.executeBatch();
+        }
+    }
+
+    /**
+     * Перекодирует текстовые UUID столбца в 16 байт. Значения, которые не удалось разобрать, обнуляются.
+     * Уже перекодированные значения (ровно 16 байт) пропускаются, поэтому шаг повторяем после сбоя на MySQL.
+     */
+    private static void convertUuidColumn(Connection connection, String table, String keyColumn, String uuidColumn) throws SQLException {
+        List<Object> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT " + keyColumn + ", " + uuidColumn + " FROM " + table + " WHERE " + uuidColumn + " IS NOT NULL")) {
+            while (rs.next()) {
+                byte[] value = rs.getBytes(2);
+                if (value.length != 16) {
+                    keys.add(rs.getObject(1));
+                    values.add(value);
+                }
+            }
+        }
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET " + uuidColumn + " = ? WHERE " + keyColumn + " = ?")) {
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] stored;
+                try {
+                    stored = UUIDUtils.toBytes(UUID.fromString(new String(values.get(i), StandardCharsets.UTF_8).trim()));
+                } catch (IllegalArgumentException e) {
+                    stored = null;
+                }
+                if (stored != null) {
+                    update.setBytes(1, stored);
+                } else {
+                    update.setNull(1, Types.BINARY);
+                }
+                update.setObject(2, keys.get(i));
+                update.addBatch();
+                if ((i + 1) % 500 == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        }
+    }
+
+    /**
+     * @param otherwise Значение для имен, не являющихся типом наказания.
+     * @return Выражение CASE, переводящее имя типа наказания в его код.
+     */
+    private static String typeCodeCase(String otherwise) {
+        StringBuilder sql = new StringBuilder("CASE type");
+        for (PunishmentType type : PunishmentType.values()) {
+            sql.append(" WHEN '").append(type.name()).append("' THEN ").append(type.getCode());
+        }
+        // Прежнее имя TEMP_IP_BAN, которое было в PunishmentType, но не записывалось командами
+        sql.append(" WHEN 'IPTEMPBAN' THEN ").append(PunishmentType.TEMP_IP_BAN.getCode());
+        return sql.append(" ELSE ").append(otherwise).append(" END").toString();
+    }
+
+    /**
+     * Проверяет, что {@link #typeCodeCase(String)} переводит в код каждую строку punishments. Сравнение имен выполняет сама БД
+     * тем же выражением, что и UPDATE миграции, поэтому на SQLite и MySQL неизвестными считаются одни и те же строки.
+     * @throws SQLException со списком неизвестных имен и количеством строк с каждым.
+     */
+    private static void checkTypeNames(Connection connection) throws SQLException {
+        List<String> unknown = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT type, COUNT(*) FROM punishments WHERE " + typeCodeCase("NULL") + " IS NULL GROUP BY type")) {
+            while (rs.next()) {
+                unknown.add("'" + rs.getString(1) + "' (строк: " + rs.getLong(2) + ")");
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new SQLException("В таблице punishments есть наказания с неизвестным типом: " + String.join(", ", unknown)
+                    + ". Исправьте или удалите эти строки и перезапустите сервер.");
+        }
+    }
+
+    private static boolean isIntegerColumn(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            if (!rs.next()) {
+                return false;
+            }
+            int type = rs.getInt("DATA_TYPE");
+            return type == Types.TINYINT || type == Types.SMALLINT || type == Types.INTEGER || type == Types.BIGINT;
+        }
+    }
+
+    private static boolean isStorageForm(byte[] value) {
+        return value.length == 4 || value.length == 5 || value.length == 16 || value.length == 17;
+    }
+
+    /**
+     * Создает индекс, если его еще нет.
+     */
+    static void createIndex(Connection connection, SqlDialect dialect, String table, String indexName, String columns) throws SQLException {
+        if (dialect == SqlDialect.SQLITE) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS " + indexName + " ON " + table + " (" + columns + ")");
+            }
+        } else if (!indexExists(connection, table, indexName)) {
+            // MySQL не поддерживает CREATE INDEX IF NOT EXISTS
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE INDEX " + indexName + " ON " + table + " (" + columns + ")");
+            }
+        }
+    }
+
+    /**
+     * Удаляет индекс, если он существует.
+     */
+    static void dropIndex(Connection connection, SqlDialect dialect, String table, String indexName) throws SQLException {
+        if (dialect == SqlDialect.SQLITE) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP INDEX IF EXISTS " + indexName);
+            }
+        } else if (indexExists(connection, table, indexName)) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP INDEX " + indexName + " ON " + table);
+            }
+        }
+    }
+
+    private static boolean indexExists(Connection connection, String table, String indexName) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? LIMIT 1";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, indexName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.teverus.adventoraBans.database;
+
+/**
+ * Диалект SQL, на котором работает менеджер БД.
+ * Используется там, где синтаксис SQLite и MySQL расходится (миграции схемы, upsert и т.п.).
+ */
+public enum SqlDialect {
+    SQLITE,
+    MYSQL
+}
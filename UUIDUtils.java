@@ -0,0 +1,51 @@
+package org.teverus.adventoraBans.util;
+
+import java.util.UUID;
+
+/**
+ * Хранение UUID в БД в бинарном виде: 16 байт (старшие 8 байт - mostSignificantBits, младшие - leastSignificantBits,
+ * big-endian), вместо 36-символьной строки. Порядок байт совпадает с порядком сравнения строк UUID одной версии,
+ * а чтение не требует разбора текста.
+ */
+public class UUIDUtils {
+
+    /**
+     * @param uuid UUID или null.
+     * @return 16 байт или null.
+     */
+    public static byte[] toBytes(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        byte[] bytes = new byte[16];
+        putLong(bytes, 0, uuid.getMostSignificantBits());
+        putLong(bytes, 8, uuid.getLeastSignificantBits());
+        return bytes;
+    }
+
+    /**
+     * @param bytes 16 байт из БД или null.
+     * @return UUID или null, если значения нет или его длина не 16 байт.
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        return new UUID(getLong(bytes, 0), getLong(bytes, 8));
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,242 @@
+package org.teverus.adventoraBans.benchmark;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.database.AbstractDatabaseManager;
+import org.teverus.adventoraBans.database.MySQLManager;
+import org.teverus.adventoraBans.database.SQLiteManager;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.UUIDUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовая БД для бенчмарков: SQLite во временном файле или встроенный MariaDB (MySQL-совместимый, через MySQLManager).
+ * Таблицы создаются и мигрируются самим менеджером, затем заполняются пакетной вставкой,
+ * после чего менеджер переподключается, чтобы индексы и счетчики загрузились из заполненной БД.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    /**
+     * Поддерживаемые бэкенды.
+     */
+    public enum Backend {
+        SQLITE,
+        MYSQL
+    }
+
+    public static final long BASE_TIME = 1_700_000_000_000L;
+    public static final int PUNISHMENTS_PER_PLAYER = 10;
+    public static final int BANNED_PLAYER_STEP = 10; // Каждый десятый игрок забанен (активный BAN/IP_BAN)
+
+    private static final String MYSQL_USER = "root";
+    private static final AtomicInteger MYSQL_DATABASE_COUNTER = new AtomicInteger();
+    private static DB embeddedMariaDb;
+    private static int embeddedMariaDbPort;
+
+    private final Backend backend;
+    private final Path dataFolder;
+    private final AdventoraBans plugin;
+    private final String mysqlDatabase;
+    private final int players;
+    private AbstractDatabaseManager manager;
+    private final List<AbstractDatabaseManager> peers = new ArrayList<>();
+
+    private BenchmarkDatabase(Backend backend, int players, Map<String, Object> settings) throws Exception {
+        this.backend = backend;
+        this.players = players;
+        this.dataFolder = Files.createTempDirectory("adventorabans-bench-");
+        this.plugin = BenchmarkPlugin.create(dataFolder);
+        settings.forEach(plugin.getConfigManager().config::set);
+        this.mysqlDatabase = backend == Backend.MYSQL ? "adventorabans_" + MYSQL_DATABASE_COUNTER.incrementAndGet() : null;
+        if (backend == Backend.MYSQL) {
+            mariaDb().createDB(mysqlDatabase);
+        }
+    }
+
+    /**
+     * Открывает и заполняет тестовую БД.
+     * @param backend Бэкенд.
+     * @param players Количество игроков; у каждого {@link #PUNISHMENTS_PER_PLAYER} записей в истории.
+     * @return Подключенная тестовая БД.
+     * @throws Exception если БД не удалось подготовить.
+     */
+    public static BenchmarkDatabase open(Backend backend, int players) throws Exception {
+        return open(backend, players, Map.of());
+    }
+
+    /**
+     * Открывает и заполняет тестовую БД с измененными настройками config.yml.
+     * @param backend Бэкенд.
+     * @param players Количество игроков.
+     * @param settings Путь настройки -> значение (например, "database.executor.mode" -> "VIRTUAL").
+     * @return Подключенная тестовая БД.
+     * @throws Exception если БД не удалось подготовить.
+     */
+    public static BenchmarkDatabase open(Backend backend, int players, Map<String, Object> settings) throws Exception {
+        BenchmarkDatabase database = new BenchmarkDatabase(backend, players, settings);
+        database.manager = database.newManager();
+        database.manager.connect(); // Таблицы и миграции
+        database.seed();
+        database.manager.disconnect();
+        database.manager = database.newManager();
+        database.manager.connect(); // Индексы и счетчики загружаются уже из заполненной БД
+        return database;
+    }
+
+    public AbstractDatabaseManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Подключает к той же БД еще один менеджер - второй сервер с общей БД (проверка синхронизации).
+     * Менеджеры делят один плагин, поэтому настройки применяются к общему config.yml до создания менеджера,
+     * а уже созданные менеджеры читают свои (например, sync.server_id) только в конструкторе.
+     * @param settings Путь настройки -> значение для второго сервера.
+     * @return Подключенный менеджер; отключается в {@link #close()}.
+     * @throws SQLException если не удалось подключиться.
+     */
+    public AbstractDatabaseManager connectPeer(Map<String, Object> settings) throws SQLException {
+        settings.forEach(plugin.getConfigManager().config::set);
+        AbstractDatabaseManager peer = newManager();
+        peers.add(peer);
+        peer.connect();
+        return peer;
+    }
+
+    public AdventoraBans getPlugin() {
+        return plugin;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    /**
+     * @param player Номер игрока.
+     * @return Детерминированный UUID тестового игрока.
+     */
+    public static UUID playerUuid(int player) {
+        return new UUID(0x0ADBL, player);
+    }
+
+    /**
+     * @param player Номер игрока.
+     * @return IP тестового игрока.
+     */
+    public static String playerIp(int player) {
+        return "10." + ((player >> 16) & 0xFF) + "." + ((player >> 8) & 0xFF) + "." + (player & 0xFF);
+    }
+
+    /**
+     * @param player Номер игрока.
+     * @return true, если у игрока есть активный бан по UUID и по IP.
+     */
+    public static boolean isBanned(int player) {
+        return player % BANNED_PLAYER_STEP == 0;
+    }
+
+    /**
+     * @return Прямое JDBC-соединение к тестовой БД (в обход пулов менеджера).
+     * @throws SQLException если соединение не удалось открыть.
+     */
+    public Connection openRawConnection() throws SQLException {
+        if (backend == Backend.SQLITE) {
+            return DriverManager.getConnection("jdbc:sqlite:" + dataFolder.resolve("database.db").toAbsolutePath());
+        }
+        return DriverManager.getConnection("jdbc:mysql://localhost:" + embeddedMariaDbPort + "/" + mysqlDatabase
+                + "?rewriteBatchedStatements=true", MYSQL_USER, "");
+    }
+
+    private AbstractDatabaseManager newManager() {
+        if (backend == Backend.SQLITE) {
+            return new SQLiteManager(plugin);
+        }
+        MySQLManager mysql = new MySQLManager(plugin);
+        mysql.setConnectionDetails("localhost", embeddedMariaDbPort, mysqlDatabase, MYSQL_USER, "",
+                false, 10, 2, 30000, 600000, 1800000);
+        return mysql;
+    }
+
+    private void seed() throws SQLException {
+        String sql = "INSERT INTO punishments (punished_uuid, punished_name, punished_ip, moderator_uuid, moderator_name, " +
+                "type, reason, ban_time, expire_time, active) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        PunishmentType[] historyTypes = {PunishmentType.KICK, PunishmentType.TEMPMUTE, PunishmentType.TEMPBAN, PunishmentType.MUTE};
+        try (Connection conn = openRawConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            long banTime = BASE_TIME;
+            for (int player = 0; player < players; player++) {
+                for (int i = 0; i < PUNISHMENTS_PER_PLAYER; i++) {
+                    boolean activeBan = isBanned(player) && i >= PUNISHMENTS_PER_PLAYER - 2;
+                    PunishmentType type = activeBan
+                            ? (i == PUNISHMENTS_PER_PLAYER - 1 ? PunishmentType.IP_BAN : PunishmentType.BAN)
+                            : historyTypes[i % historyTypes.length];
+                    stmt.setBytes(1, UUIDUtils.toBytes(playerUuid(player)));
+                    stmt.setString(2, "Player" + player);
+                    stmt.setBytes(3, IPUtils.toStorageBytes(playerIp(player)));
+                    stmt.setString(4, null);
+                    stmt.setString(5, "Console");
+                    stmt.setInt(6, type.getCode());
+                    stmt.setString(7, "Benchmark " + i);
+                    stmt.setLong(8, banTime++);
+                    stmt.setLong(9, activeBan || type == PunishmentType.KICK || type == PunishmentType.MUTE ? 0 : banTime + 1000);
+                    stmt.setBoolean(10, activeBan);
+                    stmt.addBatch();
+                }
+                if (player % 500 == 499) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static synchronized DB mariaDb() throws Exception {
+        if (embeddedMariaDb == null) {
+            DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+            builder.setPort(0); // Свободный порт
+            builder.addArg("--user=" + System.getProperty("user.name")); // Иначе mariadbd отказывается запускаться от root (CI, контейнеры)
+            builder.addArg("--character-set-server=utf8mb4"); // Как у MySQL 8 по умолчанию; у MariaDB - latin1, он не хранит русский текст
+            DBConfiguration configuration = builder.build();
+            embeddedMariaDb = DB.newEmbeddedDB(configuration);
+            embeddedMariaDb.start();
+            embeddedMariaDbPort = configuration.getPort();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    embeddedMariaDb.stop();
+                } catch (Exception ignored) {
+                    // Процесс MariaDB будет завершен вместе с JVM форка
+                }
+            }, "AdventoraBans-Benchmark-MariaDB-Stop"));
+        }
+        return embeddedMariaDb;
+    }
+
+    @Override
+    public void close() {
+        peers.forEach(AbstractDatabaseManager::disconnect);
+        if (manager != null) {
+            manager.disconnect();
+        }
+        BenchmarkPlugin.deleteDataFolder(dataFolder);
+    }
+}
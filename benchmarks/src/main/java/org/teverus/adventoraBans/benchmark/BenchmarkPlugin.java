@@ -0,0 +1,86 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.mockito.Mockito;
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.config.ConfigManager;
+import org.teverus.adventoraBans.messages.MessageManager;
+import org.teverus.adventoraBans.util.TimeUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Экземпляр плагина для бенчмарков без запуска сервера.
+ * AdventoraBans подменяется моком, а ConfigManager и MessageManager - настоящие
+ * и читают config.yml/messages.yml из jar плагина, скопированные во временную папку данных.
+ */
+public final class BenchmarkPlugin {
+
+    private BenchmarkPlugin() {
+    }
+
+    /**
+     * Создает плагин с папкой данных во временной директории.
+     * @param dataFolder Папка данных плагина (файл SQLite, messages.yml).
+     * @return Мок плагина с настоящими ConfigManager и MessageManager.
+     */
+    public static AdventoraBans create(Path dataFolder) {
+        try {
+            Files.createDirectories(dataFolder);
+            copyResource("config.yml", dataFolder);
+            copyResource("messages.yml", dataFolder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось подготовить папку данных бенчмарка: " + dataFolder, e);
+        }
+
+        // В логи бенчмарка попадают только предупреждения и ошибки
+        Logger logger = Logger.getLogger("AdventoraBans-Benchmark");
+        logger.setLevel(Level.WARNING);
+
+        AdventoraBans plugin = Mockito.mock(AdventoraBans.class);
+        Mockito.when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+        Mockito.when(plugin.getLogger()).thenReturn(logger);
+
+        ConfigManager configManager = new ConfigManager(plugin);
+        configManager.config = YamlConfiguration.loadConfiguration(dataFolder.resolve("config.yml").toFile());
+        Mockito.when(plugin.getConfigManager()).thenReturn(configManager);
+
+        MessageManager messageManager = new MessageManager(plugin);
+        Mockito.when(plugin.getMessageManager()).thenReturn(messageManager);
+
+        TimeUtil.loadTimeUnits(plugin);
+        return plugin;
+    }
+
+    private static void copyResource(String name, Path dataFolder) throws IOException {
+        try (InputStream in = AdventoraBans.class.getResourceAsStream("/" + name)) {
+            if (in == null) {
+                throw new IOException("Ресурс " + name + " не найден в jar плагина.");
+            }
+            Files.copy(in, dataFolder.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Рекурсивно удаляет временную папку бенчмарка.
+     * @param dataFolder Папка данных.
+     */
+    public static void deleteDataFolder(Path dataFolder) {
+        if (dataFolder == null || !Files.exists(dataFolder)) {
+            return;
+        }
+        try (var paths = Files.walk(dataFolder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
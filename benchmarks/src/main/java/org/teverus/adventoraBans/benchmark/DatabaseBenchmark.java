@@ -0,0 +1,137 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.teverus.adventoraBans.database.AbstractDatabaseManager;
+import org.teverus.adventoraBans.database.PunishmentCursor;
+import org.teverus.adventoraBans.database.PunishmentPage;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки горячих путей менеджера БД на SQLite и встроенном MariaDB:
+ * проверка наказаний при входе, добавление наказаний и постраничная история.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"SQLITE", "MYSQL"})
+    public BenchmarkDatabase.Backend backend;
+
+    @Param({"10000"})
+    public int players;
+
+    @Param({"5000"})
+    public int deepOffset;
+
+    private BenchmarkDatabase database;
+    private AbstractDatabaseManager manager;
+    private PunishmentCursor deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.open(backend, players);
+        manager = database.getManager();
+        // Курсор на ту же позицию, что и OFFSET, - сравнение keyset- и offset-пагинации на одной глубине
+        BanRecord last = manager.getAllPunishments(1, deepOffset - 1).join().get(0);
+        deepCursor = new PunishmentCursor(last.getBanTime(), last.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    private int randomPlayer() {
+        return ThreadLocalRandom.current().nextInt(players);
+    }
+
+    /**
+     * Проверка при входе через индекс активных банов в памяти (текущий путь PlayerListener).
+     */
+    @Benchmark
+    public void loginCheckIndex(Blackhole blackhole) {
+        int player = randomPlayer();
+        blackhole.consume(manager.getActivePunishmentIndex().findBan(BenchmarkDatabase.playerUuid(player)));
+        blackhole.consume(manager.getActivePunishmentIndex().findIpBan(BenchmarkDatabase.playerIp(player)));
+    }
+
+    /**
+     * Проверка при входе отдельными запросами в БД по UUID и по IP.
+     */
+    @Benchmark
+    public void loginCheckDatabase(Blackhole blackhole) {
+        int player = randomPlayer();
+        Optional<BanRecord> ban = manager.getActivePunishment(BenchmarkDatabase.playerUuid(player), PunishmentType.BAN).join();
+        blackhole.consume(ban);
+        blackhole.consume(manager.getActivePunishment(BenchmarkDatabase.playerIp(player), PunishmentType.IP_BAN).join());
+    }
+
+    /**
+     * Проверка при входе одним запросом в БД (путь PlayerListener до загрузки индекса).
+     */
+    @Benchmark
+    public Optional<BanRecord> loginCheckDatabaseCombined() {
+        int player = randomPlayer();
+        return manager.checkLoginBan(BenchmarkDatabase.playerUuid(player), BenchmarkDatabase.playerIp(player)).join();
+    }
+
+    /**
+     * Добавление наказания (кик: не попадает в индексы и планировщик истечения, поэтому измеряется сама запись).
+     */
+    @Benchmark
+    public void addPunishment() {
+        int player = randomPlayer();
+        manager.addPunishment(new BanRecord(BenchmarkDatabase.playerUuid(player), "Player" + player,
+                BenchmarkDatabase.playerIp(player), null, "Console", PunishmentType.KICK, "Benchmark",
+                System.currentTimeMillis(), 0, false)).join();
+    }
+
+    @Benchmark
+    public PunishmentPage historyFirstPage() {
+        return manager.getPunishmentsPage(null, 0, PAGE_SIZE).join();
+    }
+
+    @Benchmark
+    public PunishmentPage historyDeepPageCursor() {
+        return manager.getPunishmentsPage(deepCursor, 0, PAGE_SIZE).join();
+    }
+
+    @Benchmark
+    public List<BanRecord> historyDeepPageOffset() {
+        return manager.getAllPunishments(PAGE_SIZE, deepOffset).join();
+    }
+
+    @Benchmark
+    public PunishmentPage playerHistoryPage() {
+        UUID playerUuid = BenchmarkDatabase.playerUuid(randomPlayer());
+        return manager.getPunishmentsPageByPlayerUuid(playerUuid, null, 0, PAGE_SIZE).join();
+    }
+}
@@ -0,0 +1,110 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teverus.adventoraBans.database.AbstractDatabaseManager;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест пула запросов к БД: задержка проверки входа через БД (полоса login), пока фоновые клиенты
+ * непрерывно запрашивают глубокие страницы истории (медленный OFFSET-запрос в полосе moderation).
+ * Сравниваются режимы database.executor.mode: FIXED (фиксированные пулы) и VIRTUAL (виртуальные потоки с семафором).
+ * Режим SampleTime выводит перцентили (p0.99, p0.999), по которым сравнивается хвост задержки.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorLoadBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"FIXED", "VIRTUAL"})
+    public String executorMode;
+
+    @Param({"SQLITE", "MYSQL"})
+    public BenchmarkDatabase.Backend backend;
+
+    @Param({"10000"})
+    public int players;
+
+    @Param({"32"})
+    public int backgroundClients;
+
+    @Param({"50000"})
+    public int historyOffset;
+
+    private BenchmarkDatabase database;
+    private AbstractDatabaseManager manager;
+    private final List<Thread> clients = new ArrayList<>();
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.open(backend, players, Map.of("database.executor.mode", executorMode));
+        manager = database.getManager();
+        running = true;
+        for (int i = 0; i < backgroundClients; i++) {
+            Thread client = new Thread(this::runHistoryClient, "AdventoraBans-Benchmark-History-" + i);
+            client.setDaemon(true);
+            client.start();
+            clients.add(client);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        for (Thread client : clients) {
+            client.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        clients.clear();
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    // Фоновая нагрузка: каждый клиент ждет свою страницу и сразу запрашивает следующую
+    private void runHistoryClient() {
+        while (running) {
+            int offset = ThreadLocalRandom.current().nextInt(historyOffset);
+            try {
+                manager.getAllPunishments(PAGE_SIZE, offset).join();
+            } catch (RuntimeException e) {
+                if (running) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверка входа запросом в БД (бан по UUID); делит с запросами истории только пул соединений, но не очередь.
+     */
+    @Benchmark
+    public Optional<BanRecord> loginCheckUnderLoad() {
+        int player = ThreadLocalRandom.current().nextInt(players);
+        return manager.getActivePunishment(BenchmarkDatabase.playerUuid(player), PunishmentType.BAN).join();
+    }
+}
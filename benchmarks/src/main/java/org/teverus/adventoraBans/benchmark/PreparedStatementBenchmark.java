@@ -0,0 +1,90 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teverus.adventoraBans.database.AbstractDatabaseManager;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость разбора и планирования запросов на встроенном MariaDB: database.mysql.server_prepared_statements
+ * false - драйвер подставляет параметры в текст, и сервер разбирает каждый запрос заново;
+ * true - запрос подготавливается на сервере один раз на соединение и берется из кэша драйвера.
+ * Строки SQL неизменны между вызовами (PunishmentQueries), поэтому кэш срабатывает на каждом вызове.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PreparedStatementBenchmark {
+
+    @Param({"false", "true"})
+    public boolean serverPreparedStatements;
+
+    @Param({"10000"})
+    public int players;
+
+    private BenchmarkDatabase database;
+    private AbstractDatabaseManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.open(BenchmarkDatabase.Backend.MYSQL, players,
+                Map.of("database.mysql.server_prepared_statements", serverPreparedStatements));
+        manager = database.getManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    private int randomPlayer() {
+        return ThreadLocalRandom.current().nextInt(players);
+    }
+
+    /**
+     * Короткий точечный запрос: мут по UUID (загрузка мута при входе).
+     */
+    @Benchmark
+    public Optional<BanRecord> activeMuteByUuid() {
+        return manager.getActivePunishment(BenchmarkDatabase.playerUuid(randomPlayer()), PunishmentType.MUTE).join();
+    }
+
+    /**
+     * Длинный запрос из трех веток UNION ALL (проверка банов при входе): разбор и план дороже самого поиска.
+     */
+    @Benchmark
+    public Optional<BanRecord> loginBanCheck() {
+        int player = randomPlayer();
+        return manager.checkLoginBan(BenchmarkDatabase.playerUuid(player), BenchmarkDatabase.playerIp(player)).join();
+    }
+
+    /**
+     * История наказаний игрока по UUID: несколько строк на вызов, доля разбора запроса меньше.
+     */
+    @Benchmark
+    public int punishmentHistoryByUuid() {
+        return manager.getPunishmentHistory(BenchmarkDatabase.playerUuid(randomPlayer())).join().size();
+    }
+}
@@ -0,0 +1,96 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teverus.adventoraBans.database.AbstractDatabaseManager;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись наказаний (в секунду): одновременные одиночные addPunishment из 16 потоков
+ * с групповой записью (database.group_commit.window_ms) и без нее против addPunishments пачками по {@link #BULK_SIZE}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PunishmentWriteBenchmark {
+
+    private static final int BULK_SIZE = 100;
+
+    @Param({"SQLITE", "MYSQL"})
+    public BenchmarkDatabase.Backend backend;
+
+    @Param({"0", "5"})
+    public long groupCommitWindowMillis;
+
+    @Param({"1000"})
+    public int players;
+
+    private BenchmarkDatabase database;
+    private AbstractDatabaseManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.open(backend, players, Map.of("database.group_commit.window_ms", groupCommitWindowMillis));
+        manager = database.getManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    // Кик: не попадает в индексы и планировщик истечения, поэтому измеряется сама запись
+    private BanRecord newKick() {
+        int player = ThreadLocalRandom.current().nextInt(players);
+        return new BanRecord(BenchmarkDatabase.playerUuid(player), "Player" + player,
+                BenchmarkDatabase.playerIp(player), null, "Console", PunishmentType.KICK, "Benchmark",
+                System.currentTimeMillis(), 0, false);
+    }
+
+    /**
+     * Одиночные addPunishment из 16 потоков: при окне больше 0 одновременные вызовы пишутся одной транзакцией.
+     */
+    @Benchmark
+    @Threads(16)
+    public void addPunishmentConcurrent() {
+        manager.addPunishment(newKick()).join();
+    }
+
+    /**
+     * {@link #BULK_SIZE} наказаний одним вызовом addPunishments (одна транзакция с пакетным INSERT).
+     */
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public List<Integer> addPunishmentsBulk() {
+        List<BanRecord> records = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            records.add(newKick());
+        }
+        return manager.addPunishments(records).join();
+    }
+}
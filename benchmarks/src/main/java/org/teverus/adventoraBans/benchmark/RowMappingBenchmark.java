@@ -0,0 +1,160 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.teverus.adventoraBans.database.PunishmentRowMapper;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.IPUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение всей истории наказаний (players * 10 строк) в BanRecord:
+ * прежний способ (SELECT *, чтение по именам столбцов, UUID из 36-символьной строки через UUID.fromString, тип по имени)
+ * против {@link PunishmentRowMapper} (список столбцов, чтение по номерам, UUID из 16 байт, тип по коду).
+ * Прежний вид хранится в отдельной таблице punishments_legacy с теми же строками.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    private static final String LEGACY_SQL = "SELECT * FROM punishments_legacy";
+    private static final String ORDINAL_SQL = "SELECT " + PunishmentRowMapper.COLUMNS + " FROM punishments";
+
+    @Param({"SQLITE", "MYSQL"})
+    public BenchmarkDatabase.Backend backend;
+
+    @Param({"10000"})
+    public int players;
+
+    private BenchmarkDatabase database;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.open(backend, players);
+        connection = database.openRawConnection();
+        createLegacyTable();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    // Копия punishments с UUID и типом в текстовом виде, как до перехода на BINARY(16) и коды типов
+    private void createLegacyTable() throws SQLException {
+        boolean sqlite = backend == BenchmarkDatabase.Backend.SQLITE;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE punishments_legacy (" +
+                    "id INT PRIMARY KEY," +
+                    (sqlite ? "punished_uuid TEXT NULL," : "punished_uuid VARCHAR(36) NULL,") +
+                    (sqlite ? "punished_name TEXT NULL," : "punished_name VARCHAR(16) NULL,") +
+                    (sqlite ? "punished_ip BLOB NULL," : "punished_ip VARBINARY(17) NULL,") +
+                    (sqlite ? "moderator_uuid TEXT NULL," : "moderator_uuid VARCHAR(36) NULL,") +
+                    (sqlite ? "moderator_name TEXT NOT NULL," : "moderator_name VARCHAR(16) NOT NULL,") +
+                    (sqlite ? "type TEXT NOT NULL," : "type VARCHAR(20) NOT NULL,") +
+                    "reason TEXT," +
+                    "ban_time BIGINT NOT NULL," +
+                    "expire_time BIGINT NOT NULL," +
+                    "active BOOLEAN NOT NULL" +
+                    ")");
+        }
+        String insert = "INSERT INTO punishments_legacy (" + PunishmentRowMapper.COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        connection.setAutoCommit(false);
+        try (Statement select = connection.createStatement();
+             ResultSet rs = select.executeQuery(ORDINAL_SQL);
+             PreparedStatement stmt = connection.prepareStatement(insert)) {
+            int rows = 0;
+            while (rs.next()) {
+                BanRecord record = PunishmentRowMapper.read(rs);
+                stmt.setInt(1, record.getId());
+                stmt.setString(2, record.getPunishedUuid() != null ? record.getPunishedUuid().toString() : null);
+                stmt.setString(3, record.getPunishedName());
+                stmt.setBytes(4, IPUtils.toStorageBytes(record.getPunishedIp()));
+                stmt.setString(5, record.getModeratorUuid() != null ? record.getModeratorUuid().toString() : null);
+                stmt.setString(6, record.getModeratorName());
+                stmt.setString(7, record.getPunishmentType().name());
+                stmt.setString(8, record.getReason());
+                stmt.setLong(9, record.getBanTime());
+                stmt.setLong(10, record.getExpireTime());
+                stmt.setBoolean(11, record.isActive());
+                stmt.addBatch();
+                if (++rows % 5000 == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    /**
+     * Прежнее преобразование: поиск столбцов по имени и разбор текстовых UUID.
+     */
+    @Benchmark
+    public void legacyNamedColumns(Blackhole blackhole) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(LEGACY_SQL)) {
+            while (rs.next()) {
+                String punishedUuid = rs.getString("punished_uuid");
+                String moderatorUuid = rs.getString("moderator_uuid");
+                blackhole.consume(new BanRecord(
+                        rs.getInt("id"),
+                        punishedUuid != null ? UUID.fromString(punishedUuid) : null,
+                        rs.getString("punished_name"),
+                        IPUtils.fromStorageBytes(rs.getBytes("punished_ip")),
+                        moderatorUuid != null ? UUID.fromString(moderatorUuid) : null,
+                        rs.getString("moderator_name"),
+                        PunishmentType.valueOf(rs.getString("type")),
+                        rs.getString("reason"),
+                        rs.getLong("ban_time"),
+                        rs.getLong("expire_time"),
+                        rs.getBoolean("active")
+                ));
+            }
+        }
+    }
+
+    /**
+     * {@link PunishmentRowMapper}: чтение по номерам столбцов, UUID из двух long.
+     */
+    @Benchmark
+    public void ordinalBinaryColumns(Blackhole blackhole) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(ORDINAL_SQL)) {
+            while (rs.next()) {
+                blackhole.consume(PunishmentRowMapper.read(rs));
+            }
+        }
+    }
+}
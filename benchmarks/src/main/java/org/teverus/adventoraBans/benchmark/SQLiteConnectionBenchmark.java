@@ -0,0 +1,75 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.util.UUIDUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы в секунду к SQLite: пулы менеджера (WAL, отдельные пулы чтения и записи)
+ * против открытия нового соединения на каждый запрос.
+ * Запросы идут из нескольких потоков, как при одновременном входе игроков.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SQLiteConnectionBenchmark {
+
+    private static final int PLAYERS = 10000;
+    private static final String ACTIVE_BAN_SQL = "SELECT id FROM punishments WHERE punished_uuid = ? AND type = ? AND active = TRUE LIMIT 1";
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.open(BenchmarkDatabase.Backend.SQLITE, PLAYERS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public Object pooledManager() {
+        int player = ThreadLocalRandom.current().nextInt(PLAYERS);
+        return database.getManager().getActivePunishment(BenchmarkDatabase.playerUuid(player), PunishmentType.BAN).join();
+    }
+
+    @Benchmark
+    public boolean connectionPerQuery() throws SQLException {
+        int player = ThreadLocalRandom.current().nextInt(PLAYERS);
+        try (Connection conn = database.openRawConnection();
+             PreparedStatement stmt = conn.prepareStatement(ACTIVE_BAN_SQL)) {
+            stmt.setBytes(1, UUIDUtils.toBytes(BenchmarkDatabase.playerUuid(player)));
+            stmt.setInt(2, PunishmentType.BAN.getCode());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.teverus.adventoraBans.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.messages.MessageManager;
+import org.teverus.adventoraBans.util.IPUtils;
+import org.teverus.adventoraBans.util.TimeUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Бенчмарки утилит, вызываемых на каждый вход игрока и каждую команду:
+ * разбор/проверка IP, разбор/форматирование длительности и подстановка плейсхолдеров в сообщения.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class IpState {
+        @Param({"192.168.1.1:25565", "[2001:db8::1]:25565", "2001:0db8:85a3:0000:0000:8a2e:0370:7334", "not-an-ip"})
+        public String address;
+    }
+
+    @State(Scope.Benchmark)
+    public static class DurationState {
+        @Param({"30m", "5d3h10m", "1y2mo"})
+        public String duration;
+
+        private long durationMillis;
+
+        @Setup(Level.Trial)
+        public void setUp(PluginState plugin) {
+            // Единицы времени загружаются из конфига при создании плагина
+            durationMillis = TimeUtil.parseDuration(duration);
+        }
+    }
+
+    /**
+     * Плагин с настоящими ConfigManager/MessageManager; без него TimeUtil не знает единиц времени.
+     */
+    @State(Scope.Benchmark)
+    public static class PluginState {
+        private Path dataFolder;
+        private MessageManager messageManager;
+        private FileConfiguration messagesConfig;
+        private Map<String, String> placeholders;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            dataFolder = Files.createTempDirectory("adventorabans-bench-");
+            AdventoraBans plugin = BenchmarkPlugin.create(dataFolder);
+            messageManager = plugin.getMessageManager();
+            messagesConfig = YamlConfiguration.loadConfiguration(dataFolder.resolve("messages.yml").toFile());
+            placeholders = new HashMap<>();
+            placeholders.put("player_name", "Player42");
+            placeholders.put("moderator_name", "Console");
+            placeholders.put("reason", "Использование читов");
+            placeholders.put("duration", "5 д. 3 ч.");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            BenchmarkPlugin.deleteDataFolder(dataFolder);
+        }
+    }
+
+    @Benchmark
+    public String normalizeIpAddress(IpState state) {
+        return IPUtils.normalizeIpAddress(state.address);
+    }
+
+    @Benchmark
+    public boolean isValidIpAddress(IpState state) {
+        return IPUtils.isValidIpAddress(IPUtils.normalizeIpAddress(state.address));
+    }
+
+    @Benchmark
+    public byte[] toStorageBytes(IpState state) {
+        return IPUtils.toStorageBytes(state.address);
+    }
+
+    @Benchmark
+    public long parseDuration(DurationState state) {
+        return TimeUtil.parseDuration(state.duration);
+    }
+
+    @Benchmark
+    public String formatDuration(DurationState state) {
+        return TimeUtil.formatDuration(state.durationMillis);
+    }
+
+    @Benchmark
+    public String getMessageWithPlaceholders(PluginState plugin) {
+        return plugin.messageManager.getMessage("tempban_success_broadcast", plugin.placeholders);
+    }
+
+    /**
+     * Прежний путь MessageManager.getMessage: поиск в YAML, перевод цветов и replaceAll на каждый плейсхолдер.
+     */
+    @Benchmark
+    public String getMessageWithPlaceholdersLegacy(PluginState plugin) {
+        String message = plugin.messagesConfig.getString("tempban_success_broadcast", "");
+        message = ChatColor.translateAlternateColorCodes('&', message.replace("%prefix%", plugin.messageManager.getFormattedPrefix()));
+        for (Map.Entry<String, String> entry : plugin.placeholders.entrySet()) {
+            message = message.replaceAll(Pattern.quote("%" + entry.getKey() + "%"), entry.getValue());
+        }
+        return message;
+    }
+}
@@ -0,0 +1,101 @@
+package org.teverus.adventoraBans.database;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mockito;
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.benchmark.BenchmarkDatabase;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+import org.teverus.adventoraBans.tasks.PunishmentSyncTask;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Синхронизация двух серверов через общую БД: бан с одного сервера попадает в кэши другого и кикает там игрока,
+ * снятие бана снимает его и на другом сервере.
+ */
+class PunishmentSyncTest {
+
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0adb-0000-000000000001");
+    private static final String PLAYER_IP = "192.168.10.20";
+
+    private BenchmarkDatabase database;
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(BenchmarkDatabase.Backend.class)
+    void banAndUnbanReachOtherServer(BenchmarkDatabase.Backend backend) throws Exception {
+        database = BenchmarkDatabase.open(backend, 0, Map.of("sync.enabled", true, "sync.server_id", "server-a"));
+        AbstractDatabaseManager serverA = database.getManager();
+        AbstractDatabaseManager serverB = database.connectPeer(Map.of("sync.server_id", "server-b"));
+        Player player = mockOnlinePlayer(database.getPlugin(), serverB);
+
+        // Игрок входил только на сервере A: граф мультиаккаунтов сервера B о его IP не знает
+        serverA.savePlayerIp(PLAYER, PLAYER_IP).get(10, TimeUnit.SECONDS);
+        serverA.playerIpBuffer.flush();
+        assertTrue(serverB.getKnownIps(PLAYER).get(10, TimeUnit.SECONDS).isEmpty());
+
+        BanRecord ban = new BanRecord(PLAYER, "SyncPlayer", PLAYER_IP, null, "Console", PunishmentType.BAN, "Тест", System.currentTimeMillis(), 0, true);
+        serverA.addPunishment(ban).get(10, TimeUnit.SECONDS);
+        assertTrue(serverA.getActivePunishmentIndex().findBan(PLAYER).isPresent());
+        assertTrue(serverA.pollPunishmentEvents().get(10, TimeUnit.SECONDS).isEmpty(), "Свои события не применяются повторно");
+
+        new PunishmentSyncTask(database.getPlugin()).run();
+        Mockito.verify(player, Mockito.timeout(10000)).kickPlayer(Mockito.anyString());
+        assertEquals(ban.getId(), serverB.getActivePunishmentIndex().findBan(PLAYER).orElseThrow().getId());
+        assertEquals(List.of(PLAYER_IP), serverB.getKnownIps(PLAYER).get(10, TimeUnit.SECONDS));
+
+        serverA.deactivatePunishment(ban.getId()).get(10, TimeUnit.SECONDS);
+        assertFalse(serverA.getActivePunishmentIndex().findBan(PLAYER).isPresent());
+        assertTrue(serverB.pollPunishmentEvents().get(10, TimeUnit.SECONDS).isEmpty(), "Снятие бана не кикает");
+        assertFalse(serverB.getActivePunishmentIndex().findBan(PLAYER).isPresent());
+
+        // Обратное направление: бан с сервера B снимается на сервере A
+        BanRecord banFromB = new BanRecord(PLAYER, "SyncPlayer", PLAYER_IP, null, "Console", PunishmentType.TEMPBAN, "Тест",
+                System.currentTimeMillis(), System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1), true);
+        serverB.addPunishment(banFromB).get(10, TimeUnit.SECONDS);
+        List<BanRecord> added = serverA.pollPunishmentEvents().get(10, TimeUnit.SECONDS);
+        assertEquals(1, added.size());
+        assertEquals(banFromB.getId(), added.get(0).getId());
+        assertTrue(serverA.getActivePunishmentIndex().findBan(PLAYER).isPresent());
+    }
+
+    /**
+     * Сервер B для задачи синхронизации: онлайн-игрок {@link #PLAYER}, задачи главного потока выполняются сразу.
+     */
+    private static Player mockOnlinePlayer(AdventoraBans plugin, AbstractDatabaseManager serverB) {
+        Player player = Mockito.mock(Player.class);
+        Mockito.when(player.isOnline()).thenReturn(true);
+        Mockito.when(player.getName()).thenReturn("SyncPlayer");
+        BukkitScheduler scheduler = Mockito.mock(BukkitScheduler.class);
+        Mockito.doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(scheduler).runTask(Mockito.any(Plugin.class), Mockito.any(Runnable.class));
+        Server server = Mockito.mock(Server.class);
+        Mockito.when(server.getScheduler()).thenReturn(scheduler);
+        Mockito.when(server.getPlayer(PLAYER)).thenReturn(player);
+        Mockito.when(plugin.getServer()).thenReturn(server);
+        Mockito.when(plugin.getDatabaseManager()).thenReturn(serverB);
+        return player;
+    }
+}
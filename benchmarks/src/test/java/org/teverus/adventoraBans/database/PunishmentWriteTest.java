@@ -0,0 +1,186 @@
+package org.teverus.adventoraBans.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.teverus.adventoraBans.AdventoraBans;
+import org.teverus.adventoraBans.benchmark.BenchmarkDatabase;
+import org.teverus.adventoraBans.benchmark.BenchmarkPlugin;
+import org.teverus.adventoraBans.punishments.BanRecord;
+import org.teverus.adventoraBans.punishments.PunishmentType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Запись наказаний: ID из групповой и пакетной записи совпадают с ID строк в БД,
+ * а групповая запись повторяет только незакоммиченную транзакцию.
+ */
+class PunishmentWriteTest {
+
+    private static final int GROUP_SIZE = 40;
+
+    private BenchmarkDatabase database;
+    private Path dataFolder;
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        BenchmarkPlugin.deleteDataFolder(dataFolder);
+    }
+
+    @ParameterizedTest
+    @EnumSource(BenchmarkDatabase.Backend.class)
+    void groupCommitAssignsDatabaseIds(BenchmarkDatabase.Backend backend) throws Exception {
+        // Окно больше времени отправки: все наказания попадают в одну группу
+        database = BenchmarkDatabase.open(backend, 0, Map.of("database.group_commit.window_ms", 200));
+        List<BanRecord> records = newRecords("group", GROUP_SIZE);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (BanRecord record : records) {
+            futures.add(database.getManager().addPunishment(record));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        assertIdsMatchDatabase(records);
+    }
+
+    @ParameterizedTest
+    @EnumSource(BenchmarkDatabase.Backend.class)
+    void bulkAddReturnsDatabaseIds(BenchmarkDatabase.Backend backend) throws Exception {
+        // Пакет меньше списка: ключи читаются после каждого executeBatch
+        database = BenchmarkDatabase.open(backend, 0, Map.of("database.batch_size", 7));
+        List<BanRecord> records = newRecords("bulk", GROUP_SIZE);
+        List<Integer> ids = database.getManager().addPunishments(records).get(30, TimeUnit.SECONDS);
+
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i).getId(), ids.get(i));
+        }
+        assertIdsMatchDatabase(records);
+    }
+
+    @Test
+    void failedGroupIsRetriedPerRecord() throws Exception {
+        AdventoraBans plugin = newPlugin();
+        AtomicInteger groupWrites = new AtomicInteger();
+        List<BanRecord> applied = new ArrayList<>();
+        AtomicInteger nextId = new AtomicInteger(1);
+        PunishmentGroupCommitter committer = new PunishmentGroupCommitter(plugin, batch -> {
+            if (batch.size() > 1) {
+                groupWrites.incrementAndGet();
+                throw new SQLException("Тестовый сбой транзакции группы");
+            }
+            if (batch.get(0).getPunishedName().equals("bad-1")) {
+                throw new SQLException("Тестовый сбой записи наказания");
+            }
+            batch.get(0).setId(nextId.getAndIncrement());
+        }, applied::addAll, Runnable::run, 200, 100);
+
+        List<BanRecord> records = newRecords("bad", 3);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (BanRecord record : records) {
+            futures.add(committer.submit(record));
+        }
+        committer.close();
+
+        assertEquals(1, groupWrites.get());
+        assertTrue(futures.get(0).isDone() && !futures.get(0).isCompletedExceptionally());
+        Throwable failure = futures.get(1).handle((result, ex) -> ex).join();
+        assertInstanceOf(CompletionException.class, failure, "Ошибка обернута, как у записи без группировки");
+        assertInstanceOf(SQLException.class, failure.getCause());
+        assertTrue(futures.get(2).isDone() && !futures.get(2).isCompletedExceptionally());
+        assertEquals(List.of(records.get(0), records.get(2)), applied);
+    }
+
+    @Test
+    void committedGroupIsNotRewrittenWhenCacheUpdateFails() throws Exception {
+        AdventoraBans plugin = newPlugin();
+        AtomicInteger writes = new AtomicInteger();
+        PunishmentGroupCommitter committer = new PunishmentGroupCommitter(plugin, batch -> writes.incrementAndGet(), committed -> {
+            throw new IllegalStateException("Тестовый сбой обновления кэшей");
+        }, Runnable::run, 200, 100);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (BanRecord record : newRecords("cache", 3)) {
+            futures.add(committer.submit(record));
+        }
+        committer.close();
+
+        assertEquals(1, writes.get());
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isCompletedExceptionally());
+        }
+    }
+
+    private AdventoraBans newPlugin() throws Exception {
+        dataFolder = Files.createTempDirectory("adventorabans-test-");
+        return BenchmarkPlugin.create(dataFolder);
+    }
+
+    /**
+     * Наказания с уникальными именами; каждое пятое - бан диапазона CIDR (строка в ip_ban_ranges).
+     */
+    private static List<BanRecord> newRecords(String prefix, int count) {
+        List<BanRecord> records = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            boolean range = i % 5 == 4;
+            records.add(new BanRecord(range ? null : UUID.randomUUID(), prefix + "-" + i,
+                    range ? "10." + i + ".0.0/16" : "192.168.0." + i, null, "Console",
+                    range ? PunishmentType.IP_BAN : PunishmentType.BAN, "Тест", now, 0, true));
+        }
+        return records;
+    }
+
+    private void assertIdsMatchDatabase(List<BanRecord> records) throws SQLException {
+        Map<String, Integer> idsByName = new HashMap<>();
+        Map<Integer, String> rangesById = new HashMap<>();
+        try (Connection conn = database.openRawConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT id, punished_name FROM punishments")) {
+                while (rs.next()) {
+                    idsByName.put(rs.getString(2), rs.getInt(1));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT punishment_id, network FROM ip_ban_ranges")) {
+                while (rs.next()) {
+                    rangesById.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        assertEquals(records.size(), idsByName.size());
+        HashSet<Integer> seen = new HashSet<>();
+        for (BanRecord record : records) {
+            assertNotEquals(0, record.getId());
+            assertTrue(seen.add(record.getId()), "ID назначен дважды: " + record.getId());
+            assertEquals(idsByName.get(record.getPunishedName()), record.getId(), record.getPunishedName());
+            if (record.getPunishedIp().contains("/")) {
+                assertEquals(record.getPunishedIp(), rangesById.get(record.getId()));
+            }
+        }
+        assertEquals(records.size() / 5, rangesById.size());
+    }
+}